@@ -23,6 +23,9 @@ import androidx.lifecycle.ViewModelProvider;
 
 import com.google.android.material.textfield.TextInputLayout;
 
+import anwar.mlsa.hadera.aou.domain.use_case.VerifyAccountUseCase;
+import anwar.mlsa.hadera.aou.domain.util.EntityIdCodec;
+
 public class AddContactDialogFragment extends DialogFragment {
 
     private IdpayViewModel viewModel;
@@ -104,16 +107,18 @@ public class AddContactDialogFragment extends DialogFragment {
                 .setTitle("Add New Contact")
                 .setPositiveButton("Save", (dialog, which) -> {
                     String name = nameEditText.getText().toString().trim();
-                    String accountId = accountIdEditText.getText().toString().trim();
+                    String rawAccountId = accountIdEditText.getText().toString().trim();
 
-                    if (TextUtils.isEmpty(name) || TextUtils.isEmpty(accountId)) {
+                    if (TextUtils.isEmpty(name) || TextUtils.isEmpty(rawAccountId)) {
                         Toast.makeText(getContext(), "Name and Account ID cannot be empty", Toast.LENGTH_SHORT).show();
                         return;
                     }
-                    if (!accountId.matches("^0\\.0\\.[0-9]{7}$")) {
-                        Toast.makeText(getContext(), "Invalid Account ID format. Expected 0.0.XXXXXXX", Toast.LENGTH_SHORT).show();
+                    String formatError = VerifyAccountUseCase.formatError(rawAccountId);
+                    if (formatError != null) {
+                        Toast.makeText(getContext(), formatError, Toast.LENGTH_SHORT).show();
                         return;
                     }
+                    String accountId = EntityIdCodec.normalize(rawAccountId);
 
                     if (WalletStorage.addContact(requireContext(), name, accountId)) {
                         Toast.makeText(getContext(), "Contact saved", Toast.LENGTH_SHORT).show();
@@ -7,18 +7,10 @@ public class ApiConfig {
     public static final String BASE_URL = "https://mlsa-hedera-transfer-api.vercel.app";
     public static final String EXCHANGE_RATE_URL = "https://testnet.mirrornode.hedera.com/api/v1/network/exchangerate";
     
-    public static final String VERIFY_ENDPOINT = "/account/verify";
     public static final String BALANCE_ENDPOINT = "/account/balance/{accountId}";
     public static final String TRANSACTION_ENDPOINT = "/account/transaction";
     public static final String HISTORY_ENDPOINT = "/account/history/{accountId}";
 
-    public static HashMap<String, Object> getVerificationBody(String accountId, String privateKey) {
-        HashMap<String, Object> map = new HashMap<>();
-        map.put("accountId", accountId);
-        map.put("privateKey", privateKey);
-        return map;
-    }
-
     public static String getBalanceUrl(String accountId) {
         return BASE_URL + BALANCE_ENDPOINT.replace("{accountId}", accountId);
     }
@@ -0,0 +1,271 @@
+package anwar.mlsa.hadera.aou;
+
+import android.app.Activity;
+import android.content.Intent;
+import android.net.Uri;
+import android.os.Bundle;
+import android.text.Editable;
+import android.text.TextUtils;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.Button;
+import android.widget.ProgressBar;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
+import androidx.annotation.NonNull;
+import androidx.appcompat.app.AlertDialog;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.biometric.BiometricPrompt;
+import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.google.android.material.appbar.MaterialToolbar;
+import com.google.android.material.textfield.TextInputEditText;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import anwar.mlsa.hadera.aou.hedera.FeeEstimator;
+import anwar.mlsa.hadera.aou.hedera.FeeModel;
+import anwar.mlsa.hadera.aou.hedera.HederaClientProvider;
+import anwar.mlsa.hadera.aou.payout.BatchPayoutSubmitter;
+import anwar.mlsa.hadera.aou.payout.PayoutEntry;
+import anwar.mlsa.hadera.aou.payout.PayoutParser;
+
+public class BatchPayoutActivity extends AppCompatActivity implements BatchPayoutSubmitter.Listener {
+
+    private TextInputEditText payoutListEditText;
+    private TextInputEditText memoEditText;
+    private TextView summaryTextView;
+    private Button sendButton;
+    private ProgressBar progressBar;
+    private PayoutAdapter adapter;
+
+    private PayoutParser.Parsed parsed;
+    private BatchPayoutSubmitter submitter;
+    private BiometricPrompt biometricPrompt;
+    private BiometricPrompt.PromptInfo promptInfo;
+
+    private final ActivityResultLauncher<Intent> csvPickerLauncher = registerForActivityResult(
+            new ActivityResultContracts.StartActivityForResult(),
+            result -> {
+                if (result.getResultCode() == Activity.RESULT_OK && result.getData() != null && result.getData().getData() != null) {
+                    importCsv(result.getData().getData());
+                }
+            });
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.batch_payout);
+
+        MaterialToolbar toolbar = findViewById(R.id.toolbar);
+        toolbar.setNavigationOnClickListener(v -> finish());
+        payoutListEditText = findViewById(R.id.payout_list_field);
+        memoEditText = findViewById(R.id.payout_memo_field);
+        summaryTextView = findViewById(R.id.payout_summary_text);
+        sendButton = findViewById(R.id.send_payout_button);
+        progressBar = findViewById(R.id.progressBar);
+
+        adapter = new PayoutAdapter();
+        RecyclerView recyclerView = findViewById(R.id.payout_recyclerview);
+        recyclerView.setLayoutManager(new LinearLayoutManager(this));
+        recyclerView.setAdapter(adapter);
+
+        WalletStorage.Account account = WalletStorage.getCurrentAccount(this);
+        if (account == null || account.isHardware) {
+            // Every transaction would need its own confirmation on the device, which defeats batching.
+            summaryTextView.setText("Batch payouts need a software account.");
+            findViewById(R.id.validate_button).setEnabled(false);
+            findViewById(R.id.import_csv_button).setEnabled(false);
+            return;
+        }
+        HederaClientProvider.prewarm();
+
+        findViewById(R.id.validate_button).setOnClickListener(v -> validate());
+        findViewById(R.id.import_csv_button).setOnClickListener(v -> {
+            Intent intent = new Intent(Intent.ACTION_OPEN_DOCUMENT);
+            intent.addCategory(Intent.CATEGORY_OPENABLE);
+            intent.setType("text/*");
+            csvPickerLauncher.launch(intent);
+        });
+        sendButton.setOnClickListener(v -> showConfirmationDialog());
+        setupBiometrics();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (submitter != null) {
+            submitter.cancel();
+        }
+    }
+
+    private void setupBiometrics() {
+        biometricPrompt = new BiometricPrompt(this, ContextCompat.getMainExecutor(this), new BiometricPrompt.AuthenticationCallback() {
+            @Override
+            public void onAuthenticationSucceeded(@NonNull BiometricPrompt.AuthenticationResult result) {
+                super.onAuthenticationSucceeded(result);
+                startPayout();
+            }
+        });
+        promptInfo = new BiometricPrompt.PromptInfo.Builder()
+                .setTitle("Confirm Batch Payout")
+                .setSubtitle("Use your biometric credential to authorize all transfers in this batch")
+                .setNegativeButtonText("Cancel")
+                .build();
+    }
+
+    private void importCsv(Uri uri) {
+        try (InputStream in = getContentResolver().openInputStream(uri)) {
+            if (in == null) throw new IOException("Could not open file");
+            StringBuilder sb = new StringBuilder();
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                sb.append(line).append('\n');
+            }
+            payoutListEditText.setText(sb.toString());
+            validate();
+        } catch (IOException e) {
+            Toast.makeText(this, "Failed to import: " + e.getMessage(), Toast.LENGTH_LONG).show();
+        }
+    }
+
+    private void validate() {
+        long balanceTinybars = Math.round(WalletStorage.getRawBalance(this) * 100_000_000L);
+        // Sized as full transactions (sender plus a full set of recipients), so it errs high.
+        FeeModel.Estimate fee = FeeEstimator.estimate(this,
+                BatchPayoutSubmitter.MAX_RECIPIENTS_PER_TRANSACTION + 1, safeGetText(memoEditText).trim());
+        parsed = PayoutParser.parse(safeGetText(payoutListEditText), WalletStorage.getAccountId(this), balanceTinybars,
+                fee != null ? fee.highTinybars : 0);
+        adapter.setEntries(parsed.entries);
+        if (parsed.isValid()) {
+            int transactions = BatchPayoutSubmitter.transactionCount(parsed.entries.size());
+            String summary = String.format(Locale.US, "%d recipients in %d transactions, total %.8f ℏ",
+                    parsed.entries.size(), transactions, parsed.totalTinybars / 100_000_000.0);
+            if (fee != null) {
+                summary += "\nEstimated fees: " + HistoryApiParser.formatFee(fee.typicalTinybars * transactions);
+            }
+            summaryTextView.setText(summary);
+        } else {
+            summaryTextView.setText(TextUtils.join("\n", parsed.errors));
+        }
+        sendButton.setEnabled(parsed.isValid());
+    }
+
+    private void showConfirmationDialog() {
+        if (parsed == null || !parsed.isValid()) return;
+        new AlertDialog.Builder(this)
+                .setTitle("Confirm Batch Payout")
+                .setMessage(String.format(Locale.US, "Send %.8f ℏ to %d recipients?",
+                        parsed.totalTinybars / 100_000_000.0, parsed.entries.size()))
+                .setPositiveButton(getString(R.string.send_button_text), (dialog, which) -> biometricPrompt.authenticate(promptInfo))
+                .setNegativeButton(getString(R.string.cancel_button_text), null)
+                .show();
+    }
+
+    private void startPayout() {
+        String accountId = WalletStorage.getAccountId(this);
+        String privateKey = WalletStorage.getPrivateKey(this);
+        if (accountId == null || privateKey == null) {
+            Toast.makeText(this, "User credentials not found.", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        sendButton.setEnabled(false);
+        findViewById(R.id.validate_button).setEnabled(false);
+        findViewById(R.id.import_csv_button).setEnabled(false);
+        progressBar.setVisibility(View.VISIBLE);
+        submitter = new BatchPayoutSubmitter(this, this);
+        submitter.submit(accountId, privateKey, parsed.entries, safeGetText(memoEditText).trim());
+    }
+
+    @Override
+    public void onEntriesChanged() {
+        adapter.notifyDataSetChanged();
+    }
+
+    @Override
+    public void onFinished(int confirmed, int failed) {
+        progressBar.setVisibility(View.GONE);
+        summaryTextView.setText(String.format(Locale.US, "%d paid, %d failed", confirmed, failed));
+        VibrationManager.vibrate(this);
+    }
+
+    private String safeGetText(TextInputEditText editText) {
+        Editable text = editText.getText();
+        return text != null ? text.toString() : "";
+    }
+
+    private static class PayoutAdapter extends RecyclerView.Adapter<PayoutAdapter.ViewHolder> {
+
+        private final List<PayoutEntry> entries = new ArrayList<>();
+
+        void setEntries(List<PayoutEntry> newEntries) {
+            entries.clear();
+            entries.addAll(newEntries);
+            notifyDataSetChanged();
+        }
+
+        @NonNull
+        @Override
+        public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+            View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.recyclerview_history_item, parent, false);
+            return new ViewHolder(view);
+        }
+
+        @Override
+        public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+            holder.bind(entries.get(position));
+        }
+
+        @Override
+        public int getItemCount() {
+            return entries.size();
+        }
+
+        static class ViewHolder extends RecyclerView.ViewHolder {
+            TextView party, memo, date, amount, status, fee;
+
+            ViewHolder(@NonNull View itemView) {
+                super(itemView);
+                party = itemView.findViewById(R.id.party_textview);
+                memo = itemView.findViewById(R.id.memo_textview);
+                date = itemView.findViewById(R.id.date_textview);
+                amount = itemView.findViewById(R.id.amount_textview);
+                status = itemView.findViewById(R.id.status_textview);
+                fee = itemView.findViewById(R.id.fee_textview);
+            }
+
+            void bind(PayoutEntry entry) {
+                party.setText(entry.recipientId);
+                date.setText("Line " + entry.line);
+                memo.setText(entry.transactionId != null ? entry.transactionId : "");
+                amount.setText(HistoryApiParser.formatAmount(entry.amountTinybars, true));
+                status.setText(entry.status != null ? entry.status : entry.state.name());
+                fee.setVisibility(View.GONE);
+
+                int color;
+                if (entry.state == PayoutEntry.State.CONFIRMED) {
+                    color = R.color.colorPrimary;
+                } else if (entry.state == PayoutEntry.State.FAILED) {
+                    color = R.color.colorError;
+                } else {
+                    color = R.color.colorSecondaryVariant;
+                }
+                status.setTextColor(ContextCompat.getColor(itemView.getContext(), color));
+            }
+        }
+    }
+}
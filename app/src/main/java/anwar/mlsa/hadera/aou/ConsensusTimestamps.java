@@ -0,0 +1,60 @@
+package anwar.mlsa.hadera.aou;
+
+/**
+ * Helpers for mirror node consensus timestamps ("seconds.nanoseconds"). Comparing them as
+ * numbers rather than as formatted local dates keeps ordering exact across time zones and
+ * for transactions that reach consensus within the same second.
+ */
+public final class ConsensusTimestamps {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private ConsensusTimestamps() {
+    }
+
+    public static long toNanos(String timestamp) {
+        if (timestamp == null || timestamp.isEmpty()) return 0;
+        long seconds = 0;
+        long nanos = 0;
+        int nanoDigits = 0;
+        boolean inFraction = false;
+        for (int i = 0; i < timestamp.length(); i++) {
+            char c = timestamp.charAt(i);
+            if (c == '.') {
+                if (inFraction) return 0;
+                inFraction = true;
+            } else if (c >= '0' && c <= '9') {
+                if (!inFraction) {
+                    seconds = seconds * 10 + (c - '0');
+                } else if (nanoDigits < 9) {
+                    nanos = nanos * 10 + (c - '0');
+                    nanoDigits++;
+                }
+            } else {
+                return 0;
+            }
+        }
+        for (; nanoDigits < 9; nanoDigits++) {
+            nanos *= 10;
+        }
+        return seconds * NANOS_PER_SECOND + nanos;
+    }
+
+    public static String fromNanos(long nanos) {
+        long seconds = nanos / NANOS_PER_SECOND;
+        String fraction = Long.toString(nanos % NANOS_PER_SECOND);
+        StringBuilder sb = new StringBuilder(20).append(seconds).append('.');
+        for (int i = fraction.length(); i < 9; i++) {
+            sb.append('0');
+        }
+        return sb.append(fraction).toString();
+    }
+
+    public static int compare(String a, String b) {
+        return Long.compare(toNanos(a), toNanos(b));
+    }
+
+    public static boolean isAfter(String candidate, String reference) {
+        return reference == null || compare(candidate, reference) > 0;
+    }
+}
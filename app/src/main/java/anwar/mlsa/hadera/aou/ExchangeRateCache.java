@@ -0,0 +1,36 @@
+package anwar.mlsa.hadera.aou;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+/**
+ * Last known HBAR to USD rate, refreshed by the sync worker and read by screens that show USD values.
+ */
+public class ExchangeRateCache {
+
+    private static final String PREFS_NAME = "ExchangeRateCache";
+    private static final String KEY_USD_PER_HBAR = "usd_per_hbar";
+    private static final String KEY_UPDATED_AT = "updated_at";
+
+    public static void save(Context context, int centEquivalent, int hbarEquivalent) {
+        if (hbarEquivalent <= 0) return;
+        double usdPerHbar = (double) centEquivalent / hbarEquivalent / 100;
+        getPrefs(context).edit()
+                .putLong(KEY_USD_PER_HBAR, Double.doubleToRawLongBits(usdPerHbar))
+                .putLong(KEY_UPDATED_AT, System.currentTimeMillis())
+                .apply();
+    }
+
+    /** Returns the cached rate in dollars per HBAR, or 0 if none has been fetched yet. */
+    public static double getUsdPerHbar(Context context) {
+        return Double.longBitsToDouble(getPrefs(context).getLong(KEY_USD_PER_HBAR, 0L));
+    }
+
+    public static long getUpdatedAt(Context context) {
+        return getPrefs(context).getLong(KEY_UPDATED_AT, 0L);
+    }
+
+    private static SharedPreferences getPrefs(Context context) {
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+}
@@ -5,7 +5,9 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.ServiceConnection;
 import android.os.Bundle;
+import android.os.Handler;
 import android.os.IBinder;
+import android.os.Looper;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -23,14 +25,21 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 
+import anwar.mlsa.hadera.aou.hardware.DerivedAccountCache;
 import anwar.mlsa.hadera.aou.hardware.HardwareWalletService;
 
-public class HardwareWalletSetupActivity extends AppCompatActivity implements HardwareWalletService.AccountInfoListener {
+public class HardwareWalletSetupActivity extends AppCompatActivity {
 
     private static final String TAG = "HWSetupActivity";
-    private static final int MAX_ACCOUNTS_TO_SCAN = 5;
+    private static final int MAX_ACCOUNTS_TO_SCAN = 10;
 
     private Button scanButton;
     private ProgressBar progressBar;
@@ -41,9 +50,30 @@ public class HardwareWalletSetupActivity extends AppCompatActivity implements Ha
 
     private HardwareWalletService hardwareWalletService;
     private boolean isBound = false;
-    private int accountsFound = 0;
+
+    // Lookups for every index are queued at once; results are shown in batches rather than one by one.
+    private final List<CompletableFuture<String>> scans = new ArrayList<>();
+    private final List<ScanResult> scanResults = new ArrayList<>();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private boolean resultsPosted = false;
+    private int accountsToScan = 0;
     private int accountsScanned = 0;
 
+    // Accounts listed for the device in deviceId, by account id; those from the cache are confirmed on import.
+    private String deviceId;
+    private final Map<String, Integer> accountIndexes = new HashMap<>();
+    private final Set<String> confirmedAccounts = new HashSet<>();
+
+    private static class ScanResult {
+        final int accountIndex;
+        final String accountId;
+
+        ScanResult(int accountIndex, String accountId) {
+            this.accountIndex = accountIndex;
+            this.accountId = accountId;
+        }
+    }
+
     private final ServiceConnection serviceConnection = new ServiceConnection() {
         @Override
         public void onServiceConnected(ComponentName className, IBinder service) {
@@ -67,6 +97,7 @@ public class HardwareWalletSetupActivity extends AppCompatActivity implements Ha
         setupToolbar();
         initializeViews();
         setupRecyclerView();
+        showKnownAccounts(DerivedAccountCache.getLastDeviceId(this));
     }
 
     private void setupToolbar() {
@@ -83,8 +114,9 @@ public class HardwareWalletSetupActivity extends AppCompatActivity implements Ha
         recyclerView = findViewById(R.id.hw_accounts_recyclerview);
 
         scanButton.setOnClickListener(v -> {
-            if (isBound) {
-                adapter.clear();
+            if (isBound && hardwareWalletService.connectionStatus.getValue() == HardwareWalletService.ConnectionStatus.CONNECTED) {
+                startAccountScan();
+            } else if (isBound) {
                 hardwareWalletService.findAndConnectToDevice();
             } else {
                 Toast.makeText(this, "Service not connected yet.", Toast.LENGTH_SHORT).show();
@@ -108,6 +140,7 @@ public class HardwareWalletSetupActivity extends AppCompatActivity implements Ha
     @Override
     protected void onStop() {
         super.onStop();
+        cancelScan();
         if (isBound) {
             unbindService(serviceConnection);
             isBound = false;
@@ -121,16 +154,12 @@ public class HardwareWalletSetupActivity extends AppCompatActivity implements Ha
                 case DISCONNECTED:
                     progressBar.setVisibility(View.GONE);
                     scanButton.setEnabled(true);
-                    instructionsView.setVisibility(View.VISIBLE);
-                    recyclerView.setVisibility(View.GONE);
-                    instructionsText.setText("Connect your hardware wallet and press 'Scan' to find your accounts.");
+                    showAccountsOrInstructions("Connect your hardware wallet and press 'Scan' to find your accounts.");
                     break;
                 case SEARCHING:
                     progressBar.setVisibility(View.VISIBLE);
                     scanButton.setEnabled(false);
-                    instructionsView.setVisibility(View.VISIBLE);
-                    recyclerView.setVisibility(View.GONE);
-                    instructionsText.setText("Connecting to device...");
+                    showAccountsOrInstructions("Connecting to device...");
                     break;
                 case CONNECTED:
                     startAccountScan();
@@ -138,67 +167,163 @@ public class HardwareWalletSetupActivity extends AppCompatActivity implements Ha
                 case ERROR:
                     progressBar.setVisibility(View.GONE);
                     scanButton.setEnabled(true);
-                    instructionsView.setVisibility(View.VISIBLE);
-                    recyclerView.setVisibility(View.GONE);
-                    instructionsText.setText("Connection failed. Please reconnect and try again.");
+                    showAccountsOrInstructions("Connection failed. Please reconnect and try again.");
                     break;
             }
         });
     }
 
+    // Accounts already derived on this device are listed straight away, without asking it again.
+    private void showKnownAccounts(String knownDeviceId) {
+        deviceId = knownDeviceId;
+        accountIndexes.clear();
+        confirmedAccounts.clear();
+        adapter.clear();
+        for (Map.Entry<Integer, String> known : DerivedAccountCache.getAccounts(this, knownDeviceId, MAX_ACCOUNTS_TO_SCAN).entrySet()) {
+            accountIndexes.put(known.getValue(), known.getKey());
+        }
+        adapter.addAccounts(new ArrayList<>(accountIndexes.keySet()));
+        showAccountsOrInstructions("Connect your hardware wallet and press 'Scan' to find your accounts.");
+    }
+
+    private void showAccountsOrInstructions(String instructions) {
+        boolean hasAccounts = adapter.getItemCount() > 0;
+        instructionsText.setText(instructions);
+        instructionsView.setVisibility(hasAccounts ? View.GONE : View.VISIBLE);
+        recyclerView.setVisibility(hasAccounts ? View.VISIBLE : View.GONE);
+    }
+
     private void startAccountScan() {
-        instructionsText.setText("Scanning for accounts...");
+        cancelScan();
+        String connectedDeviceId = hardwareWalletService.getDeviceId();
+        if (connectedDeviceId == null || !connectedDeviceId.equals(deviceId)) showKnownAccounts(connectedDeviceId);
+
+        // Only indexes this device hasn't derived before go to it.
+        List<Integer> unknownIndexes = new ArrayList<>();
+        for (int index = 0; index < MAX_ACCOUNTS_TO_SCAN; index++) {
+            if (!accountIndexes.containsValue(index)) unknownIndexes.add(index);
+        }
+        accountsToScan = unknownIndexes.size();
+        accountsScanned = 0;
+        if (unknownIndexes.isEmpty()) {
+            onScanFinished();
+            return;
+        }
         progressBar.setVisibility(View.VISIBLE);
         scanButton.setEnabled(false);
-        instructionsView.setVisibility(View.VISIBLE);
-        recyclerView.setVisibility(View.GONE);
-        accountsFound = 0;
-        accountsScanned = 0;
-        scanNextAccount();
+        showAccountsOrInstructions("Scanning for accounts...");
+        for (int accountIndex : unknownIndexes) {
+            CompletableFuture<String> scan = hardwareWalletService.requestAccountId(accountIndex);
+            synchronized (scanResults) {
+                scans.add(scan);
+            }
+            scan.whenComplete((accountId, error) -> {
+                if (error instanceof CancellationException) return;
+                if (error != null) {
+                    Log.e(TAG, "Could not get account info for index " + accountIndex, error);
+                } else {
+                    Log.d(TAG, "Account " + accountIndex + " found: " + accountId);
+                }
+                onScanResult(scan, new ScanResult(accountIndex, error == null ? accountId : null));
+            });
+        }
     }
 
-    private void scanNextAccount() {
-        if (accountsScanned < MAX_ACCOUNTS_TO_SCAN) {
-            hardwareWalletService.requestAccountInfo(accountsScanned, this);
-        } else {
-            onScanFinished();
+    private void onScanResult(CompletableFuture<String> scan, ScanResult result) {
+        synchronized (scanResults) {
+            if (!scans.contains(scan)) return;
+            // A null account id stands for an index that failed; scanning carries on with the others.
+            scanResults.add(result);
+            if (resultsPosted) return;
+            resultsPosted = true;
         }
+        mainHandler.post(this::showScanResults);
     }
 
-    private void onScanFinished() {
-        progressBar.setVisibility(View.GONE);
-        scanButton.setEnabled(true);
-        if (accountsFound == 0) {
-            instructionsText.setText("No accounts found. Ensure the Hedera app is open on your device.");
-            instructionsView.setVisibility(View.VISIBLE);
-            recyclerView.setVisibility(View.GONE);
-        } else {
-            instructionsView.setVisibility(View.GONE);
-            recyclerView.setVisibility(View.VISIBLE);
+    private void showScanResults() {
+        List<String> found = new ArrayList<>();
+        synchronized (scanResults) {
+            for (ScanResult result : scanResults) {
+                accountsScanned++;
+                if (result.accountId == null || accountIndexes.containsKey(result.accountId)) continue;
+                found.add(result.accountId);
+                accountIndexes.put(result.accountId, result.accountIndex);
+                confirmedAccounts.add(result.accountId);
+                DerivedAccountCache.put(this, deviceId, result.accountIndex, result.accountId);
+            }
+            scanResults.clear();
+            resultsPosted = false;
         }
+        adapter.addAccounts(found);
+        if (accountsScanned >= accountsToScan) onScanFinished();
     }
 
-    @Override
-    public void onAccountInfoReceived(int accountIndex, String accountId) {
-        Log.d(TAG, "Account " + accountIndex + " found: " + accountId);
-        runOnUiThread(() -> {
-            accountsFound++;
-            adapter.addAccount(accountId);
-            accountsScanned++;
-            scanNextAccount();
-        });
+    private void cancelScan() {
+        synchronized (scanResults) {
+            for (CompletableFuture<String> scan : scans) {
+                scan.cancel(false);
+            }
+            scans.clear();
+            scanResults.clear();
+        }
     }
 
-    @Override
-    public void onAccountInfoError(int accountIndex, Exception e) {
-        Log.e(TAG, "Could not get account info for index " + accountIndex, e);
-        runOnUiThread(() -> {
-            accountsScanned++;
-            scanNextAccount(); // Continue scanning next account even if one fails
-        });
+    private void onScanFinished() {
+        progressBar.setVisibility(View.GONE);
+        scanButton.setEnabled(true);
+        showAccountsOrInstructions("No accounts found. Ensure the Hedera app is open on your device.");
     }
 
     private void importAccount(String accountId) {
+        Integer accountIndex = accountIndexes.get(accountId);
+        if (accountIndex == null || confirmedAccounts.contains(accountId)) {
+            completeImport(accountId);
+            return;
+        }
+        // Listed from the cache: check the device still derives this account before importing it.
+        if (!isBound || hardwareWalletService.connectionStatus.getValue() != HardwareWalletService.ConnectionStatus.CONNECTED) {
+            Toast.makeText(this, "Connect your hardware wallet to confirm this account.", Toast.LENGTH_SHORT).show();
+            if (isBound) hardwareWalletService.findAndConnectToDevice();
+            return;
+        }
+        String connectedDeviceId = hardwareWalletService.getDeviceId();
+        if (connectedDeviceId == null || !connectedDeviceId.equals(deviceId)) {
+            // The list belongs to another device; show what is known for the one plugged in instead.
+            showKnownAccounts(connectedDeviceId);
+            Toast.makeText(this, "A different hardware wallet is connected. Its accounts are shown instead.", Toast.LENGTH_LONG).show();
+            return;
+        }
+        hardwareWalletService.requestAccountId(accountIndex).whenComplete((derivedId, error) -> runOnUiThread(() -> {
+            if (!connectedDeviceId.equals(deviceId)) {
+                // The list was switched to another device while this one answered.
+                return;
+            }
+            if (!connectedDeviceId.equals(hardwareWalletService.getDeviceId())) {
+                // The device was swapped mid-request, so the answer may not be from this one.
+                showKnownAccounts(hardwareWalletService.getDeviceId());
+                return;
+            }
+            if (error != null) {
+                Log.e(TAG, "Could not confirm account " + accountId, error);
+                Toast.makeText(this, "Could not confirm this account on your hardware wallet.", Toast.LENGTH_LONG).show();
+            } else if (accountId.equals(derivedId)) {
+                confirmedAccounts.add(accountId);
+                completeImport(accountId);
+            } else {
+                DerivedAccountCache.put(this, connectedDeviceId, accountIndex, derivedId);
+                accountIndexes.remove(accountId);
+                adapter.removeAccount(accountId);
+                if (!accountIndexes.containsKey(derivedId)) {
+                    accountIndexes.put(derivedId, accountIndex);
+                    adapter.addAccounts(Collections.singletonList(derivedId));
+                }
+                confirmedAccounts.add(derivedId);
+                Toast.makeText(this, "This account is no longer on your hardware wallet. The list has been updated.", Toast.LENGTH_LONG).show();
+            }
+        }));
+    }
+
+    private void completeImport(String accountId) {
         if (WalletStorage.addHardwareAccount(this, accountId)) {
             int newAccountIndex = WalletStorage.getAccounts(this).size() - 1;
             WalletStorage.setCurrentAccountIndex(this, newAccountIndex);
@@ -244,12 +369,17 @@ public class HardwareWalletSetupActivity extends AppCompatActivity implements Ha
             return accountIds.size();
         }
 
-        void addAccount(String accountId) {
-            accountIds.add(accountId);
+        void addAccounts(List<String> newAccountIds) {
+            if (newAccountIds.isEmpty()) return;
+            accountIds.addAll(newAccountIds);
             Collections.sort(accountIds);
             notifyDataSetChanged();
         }
 
+        void removeAccount(String accountId) {
+            if (accountIds.remove(accountId)) notifyDataSetChanged();
+        }
+
         void clear() {
             accountIds.clear();
             notifyDataSetChanged();
@@ -39,8 +39,6 @@ import com.google.android.material.chip.Chip;
 import com.google.android.material.chip.ChipGroup;
 import com.google.gson.Gson;
 
-import java.io.OutputStream;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.HashMap;
@@ -48,6 +46,11 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.stream.Collectors;
 
+import anwar.mlsa.hadera.aou.domain.util.Result;
+import anwar.mlsa.hadera.aou.export.HistoryExportFormat;
+import anwar.mlsa.hadera.aou.export.HistoryExporter;
+import anwar.mlsa.hadera.aou.hedera.ConfirmationPipeline;
+
 public class HistoryActivity extends AppCompatActivity {
 
     private static final String HEDERA_API_BASE_URL = "https://testnet.mirrornode.hedera.com";
@@ -77,7 +80,9 @@ public class HistoryActivity extends AppCompatActivity {
     private String nextUrl = null;
     private CharSequence originalToolbarTitle;
     private ActivityResultLauncher<Intent> filePickerLauncher;
-    private String currentExportFormat = "csv";
+    private HistoryExportFormat currentExportFormat = HistoryExportFormat.CSV;
+
+    private final ConfirmationPipeline.Listener confirmationListener = (hederaTransactionId, status) -> updateDisplayList();
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -91,6 +96,18 @@ public class HistoryActivity extends AppCompatActivity {
         loadTransactionHistory(true);
     }
 
+    @Override
+    protected void onStart() {
+        super.onStart();
+        ConfirmationPipeline.addListener(confirmationListener);
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        ConfirmationPipeline.removeListener(confirmationListener);
+    }
+
     private void initializeViews() {
         appbar = findViewById(R.id.appbar);
         toolbar = findViewById(R.id.toolbar);
@@ -357,8 +374,9 @@ public class HistoryActivity extends AppCompatActivity {
         adapter.notifyDataSetChanged();
     }
 
+    // Sends from this device that the loaded pages don't include yet go on top.
     private List<Transaction> getViewableTransactions() {
-        return new ArrayList<>(masterTransactionList);
+        return PendingTransfers.overlay(PendingTransfers.recent(this, WalletStorage.getAccountId(this)), masterTransactionList);
     }
     
     private void showDatePicker() {
@@ -390,15 +408,21 @@ public class HistoryActivity extends AppCompatActivity {
             int selectedId = formatGroup.getCheckedRadioButtonId();
             RadioButton selectedRadioButton = dialogView.findViewById(selectedId);
             if (selectedRadioButton.getId() == R.id.format_csv) {
-                currentExportFormat = "csv";
-                openFilePicker("hadera_history.csv", "text/csv");
+                currentExportFormat = HistoryExportFormat.CSV;
             } else if (selectedRadioButton.getId() == R.id.format_json) {
-                currentExportFormat = "json";
-                openFilePicker("hadera_history.json", "application/json");
+                currentExportFormat = HistoryExportFormat.JSON;
+            } else if (selectedRadioButton.getId() == R.id.format_ndjson) {
+                currentExportFormat = HistoryExportFormat.NDJSON;
             } else if (selectedRadioButton.getId() == R.id.format_log) {
-                currentExportFormat = "log";
-                openFilePicker("hadera_history.log", "text/plain");
+                currentExportFormat = HistoryExportFormat.LOG;
+            } else if (selectedRadioButton.getId() == R.id.format_ndjson_gz) {
+                currentExportFormat = HistoryExportFormat.NDJSON_GZIP;
+            } else if (selectedRadioButton.getId() == R.id.format_compact) {
+                currentExportFormat = HistoryExportFormat.COMPACT;
+            } else {
+                return;
             }
+            openFilePicker(currentExportFormat.fileName("hadera_history"), currentExportFormat.mimeType);
         });
         builder.setNegativeButton("Cancel", (dialog, which) -> dialog.cancel());
 
@@ -427,38 +451,24 @@ public class HistoryActivity extends AppCompatActivity {
     }
 
     private void exportToFile(Uri uri) {
-        List<Transaction> transactionsToExport = getViewableTransactions();
-        if (transactionsToExport.isEmpty()) {
+        String accountId = WalletStorage.getAccountId(this);
+        if (accountId == null || accountId.isEmpty()) {
             Toast.makeText(this, "No history to export.", Toast.LENGTH_SHORT).show();
             return;
         }
 
-        String content = "";
-        switch (currentExportFormat) {
-            case "csv":
-                content = "Date,Party,Amount,Memo,Type,Status,Fee\n" +
-                        transactionsToExport.stream()
-                                .map(t -> t.date + "," + t.party + "," + t.amount + "," + t.memo + "," + t.type + "," + t.status + "," + t.fee)
-                                .collect(Collectors.joining("\n"));
-                break;
-            case "json":
-                content = new Gson().toJson(transactionsToExport);
-                break;
-            case "log":
-                content = transactionsToExport.stream()
-                        .map(Object::toString)
-                        .collect(Collectors.joining("\n--------------------\n"));
-                break;
-        }
-
-        try (OutputStream os = getContentResolver().openOutputStream(uri)) {
-            if (os != null) {
-                os.write(content.getBytes(StandardCharsets.UTF_8));
-                Toast.makeText(this, "History exported successfully!", Toast.LENGTH_LONG).show();
+        Context appContext = getApplicationContext();
+        HistoryExporter.export(accountId, currentExportFormat, () -> appContext.getContentResolver().openOutputStream(uri), result -> {
+            if (result instanceof Result.Loading) {
+                progressBar.setVisibility(View.VISIBLE);
+            } else if (result instanceof Result.Success) {
+                progressBar.setVisibility(View.GONE);
+                Toast.makeText(appContext, "History exported successfully!", Toast.LENGTH_LONG).show();
+            } else if (result instanceof Result.Error) {
+                progressBar.setVisibility(View.GONE);
+                Toast.makeText(appContext, "Export failed: " + ((Result.Error<Integer>) result).message, Toast.LENGTH_LONG).show();
             }
-        } catch (Exception e) {
-            Toast.makeText(this, "Export failed: " + e.getMessage(), Toast.LENGTH_LONG).show();
-        }
+        });
     }
     
     public static class HistoryAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
@@ -544,6 +554,8 @@ public class HistoryActivity extends AppCompatActivity {
 
                 if ("SUCCESS".equalsIgnoreCase(transaction.status)) {
                     status.setTextColor(ContextCompat.getColor(itemView.getContext(), R.color.colorPrimary));
+                } else if (ConfirmationPipeline.STATUS_PENDING.equals(transaction.status)) {
+                    status.setTextColor(ContextCompat.getColor(itemView.getContext(), R.color.colorSecondaryVariant));
                 } else {
                     status.setTextColor(ContextCompat.getColor(itemView.getContext(), R.color.colorError));
                 }
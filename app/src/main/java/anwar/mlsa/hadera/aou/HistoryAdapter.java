@@ -16,6 +16,8 @@ import com.google.gson.Gson;
 
 import java.util.Objects;
 
+import anwar.mlsa.hadera.aou.hedera.ConfirmationPipeline;
+
 public class HistoryAdapter extends ListAdapter<Transaction, HistoryAdapter.ViewHolder> {
 
     public HistoryAdapter() {
@@ -25,12 +27,18 @@ public class HistoryAdapter extends ListAdapter<Transaction, HistoryAdapter.View
     private static final DiffUtil.ItemCallback<Transaction> DIFF_CALLBACK = new DiffUtil.ItemCallback<Transaction>() {
         @Override
         public boolean areItemsTheSame(@NonNull Transaction oldItem, @NonNull Transaction newItem) {
-            return Objects.equals(oldItem.transactionId, newItem.transactionId);
+            return PendingTransfers.key(oldItem).equals(PendingTransfers.key(newItem));
         }
 
         @Override
         public boolean areContentsTheSame(@NonNull Transaction oldItem, @NonNull Transaction newItem) {
-            return new Gson().toJson(oldItem).equals(new Gson().toJson(newItem));
+            return Objects.equals(oldItem.type, newItem.type)
+                    && Objects.equals(oldItem.amount, newItem.amount)
+                    && Objects.equals(oldItem.party, newItem.party)
+                    && Objects.equals(oldItem.date, newItem.date)
+                    && Objects.equals(oldItem.status, newItem.status)
+                    && Objects.equals(oldItem.memo, newItem.memo)
+                    && Objects.equals(oldItem.fee, newItem.fee);
         }
     };
 
@@ -81,6 +89,8 @@ public class HistoryAdapter extends ListAdapter<Transaction, HistoryAdapter.View
             }
             if ("SUCCESS".equalsIgnoreCase(transaction.status)) {
                 status.setTextColor(ContextCompat.getColor(itemView.getContext(), R.color.colorReceived));
+            } else if (ConfirmationPipeline.STATUS_PENDING.equals(transaction.status)) {
+                status.setTextColor(ContextCompat.getColor(itemView.getContext(), R.color.colorSecondaryVariant));
             } else {
                 status.setTextColor(ContextCompat.getColor(itemView.getContext(), R.color.colorSent));
             }
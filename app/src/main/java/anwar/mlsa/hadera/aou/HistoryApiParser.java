@@ -17,6 +17,9 @@ public class HistoryApiParser {
     public static class HistoryResponse {
         public ArrayList<Transaction> transactions;
         public String nextUrl;
+        // Consensus timestamps of the first and last rows on the page, including rows that were filtered out.
+        public String firstConsensusTimestamp;
+        public String lastConsensusTimestamp;
 
         HistoryResponse(ArrayList<Transaction> transactions, String nextUrl) {
             this.transactions = transactions;
@@ -27,6 +30,8 @@ public class HistoryApiParser {
     public static HistoryResponse parse(String response, String currentAccountId) {
         ArrayList<Transaction> newTransactions = new ArrayList<>();
         String nextUrl = null;
+        String firstConsensusTimestamp = null;
+        String lastConsensusTimestamp = null;
 
         if (response == null) {
             return new HistoryResponse(newTransactions, null);
@@ -35,11 +40,15 @@ public class HistoryApiParser {
         try {
             JSONObject jsonResponse = new JSONObject(response);
             JSONObject links = jsonResponse.optJSONObject("links");
-            nextUrl = (links != null) ? links.optString("next", null) : null;
+            nextUrl = (links != null && !links.isNull("next")) ? links.optString("next", null) : null;
 
             JSONArray transactions = jsonResponse.getJSONArray("transactions");
             for (int i = 0; i < transactions.length(); i++) {
                 JSONObject tx = transactions.getJSONObject(i);
+                lastConsensusTimestamp = tx.optString("consensus_timestamp", lastConsensusTimestamp);
+                if (firstConsensusTimestamp == null) {
+                    firstConsensusTimestamp = lastConsensusTimestamp;
+                }
 
                 if (!"CRYPTOTRANSFER".equals(tx.optString("name"))) {
                     continue;
@@ -71,6 +80,8 @@ public class HistoryApiParser {
 
                 Transaction transaction = new Transaction();
                 transaction.transactionId = tx.getString("consensus_timestamp");
+                transaction.transferCount = userAccountTransfers;
+                transaction.hederaTransactionId = tx.optString("transaction_id", null);
                 long chargedTxFee = tx.getLong("charged_tx_fee");
                 String otherPartyAccount = "";
 
@@ -84,8 +95,10 @@ public class HistoryApiParser {
                             otherPartyAccount = t.getString("account");
                         }
                     }
-                    transaction.amount = String.format(Locale.US, "-%.8f ℏ", principalRecipientAmount / 100_000_000.0);
-                    transaction.fee = String.format(Locale.US, "%.8f ℏ", chargedTxFee / 100_000_000.0);
+                    transaction.amountTinybars = -principalRecipientAmount;
+                    transaction.feeTinybars = chargedTxFee;
+                    transaction.amount = formatAmount(principalRecipientAmount, true);
+                    transaction.fee = formatFee(chargedTxFee);
                     transaction.party = otherPartyAccount;
                 } else { 
                     transaction.type = "Received";
@@ -97,7 +110,8 @@ public class HistoryApiParser {
                             otherPartyAccount = t.getString("account");
                         }
                     }
-                    transaction.amount = String.format(Locale.US, "+%.8f ℏ", userAmount / 100_000_000.0);
+                    transaction.amountTinybars = userAmount;
+                    transaction.amount = formatAmount(userAmount, false);
                     transaction.fee = null;
                     transaction.party = otherPartyAccount;
                 }
@@ -118,10 +132,21 @@ public class HistoryApiParser {
             }
         } catch (JSONException e) {
         }
-        return new HistoryResponse(newTransactions, nextUrl);
+        HistoryResponse historyResponse = new HistoryResponse(newTransactions, nextUrl);
+        historyResponse.firstConsensusTimestamp = firstConsensusTimestamp;
+        historyResponse.lastConsensusTimestamp = lastConsensusTimestamp;
+        return historyResponse;
+    }
+
+    public static String formatAmount(long tinybars, boolean sent) {
+        return String.format(Locale.US, sent ? "-%.8f ℏ" : "+%.8f ℏ", Math.abs(tinybars) / 100_000_000.0);
+    }
+
+    public static String formatFee(long tinybars) {
+        return String.format(Locale.US, "%.8f ℏ", tinybars / 100_000_000.0);
     }
 
-    private static String formatHederaTimestamp(String consensusTimestamp) {
+    public static String formatHederaTimestamp(String consensusTimestamp) {
         try {
             String[] parts = consensusTimestamp.split("\\.");
             long seconds = Long.parseLong(parts[0]);
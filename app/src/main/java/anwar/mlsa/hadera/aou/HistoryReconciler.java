@@ -0,0 +1,103 @@
+package anwar.mlsa.hadera.aou;
+
+import android.content.Context;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import anwar.mlsa.hadera.aou.hedera.ConfirmationPipeline;
+import anwar.mlsa.hadera.aou.outbox.OutboxStore;
+import timber.log.Timber;
+
+/**
+ * Settles the rows written for transfers sent from this device against the mirror node's records.
+ * Local rows carry the SDK transaction id and mirror rows the mirror's form of it, so each local row
+ * is matched with one map lookup. A matched row takes the consensus timestamp, result and fee of the
+ * record, which makes it the same row as the synced one wherever rows are keyed by transaction id.
+ * A pending row whose whole validity window falls inside the span the mirror rows cover, but which
+ * isn't among them, never reached consensus and is marked expired. Each account's rows are settled
+ * under the history lock and saved in one write.
+ */
+public final class HistoryReconciler {
+
+    public static final String STATUS_EXPIRED = "TRANSACTION_EXPIRED";
+
+    // Longest validity this app signs with (the outbox's); the SDK default is shorter.
+    private static final long VALIDITY_WINDOW_NANOS = 180_000_000_000L;
+
+    private HistoryReconciler() {
+    }
+
+    /** {@code mirrorRows} must be one contiguous run of the account's records, as a page or live update is. */
+    public static void reconcile(Context context, String accountId, List<Transaction> mirrorRows) {
+        if (accountId == null || mirrorRows == null || mirrorRows.isEmpty()) return;
+        Map<String, Transaction> byId = new HashMap<>();
+        long oldest = Long.MAX_VALUE;
+        long newest = 0;
+        for (Transaction row : mirrorRows) {
+            if (row.hederaTransactionId != null) byId.put(row.hederaTransactionId, row);
+            long consensus = ConsensusTimestamps.toNanos(row.transactionId);
+            if (consensus > 0) {
+                oldest = Math.min(oldest, consensus);
+                newest = Math.max(newest, consensus);
+            }
+        }
+        final long coveredFrom = oldest;
+        final long coveredTo = newest;
+
+        List<String[]> settled = new ArrayList<>();
+        WalletStorage.editHistory(context, accountId, history -> {
+            // A batch payout writes one row per recipient under the same id; those keep their own identity.
+            Map<String, Integer> rowsPerId = new HashMap<>();
+            for (Transaction local : history) {
+                if (local.hederaTransactionId != null) rowsPerId.merge(local.hederaTransactionId, 1, Integer::sum);
+            }
+            boolean changed = false;
+            for (Transaction local : history) {
+                if (local.hederaTransactionId == null) continue;
+                Transaction record = byId.get(ConfirmationPipeline.toMirrorId(local.hederaTransactionId));
+                if (record != null) {
+                    if (promote(local, record, rowsPerId.get(local.hederaTransactionId) == 1)) {
+                        settled.add(new String[]{local.hederaTransactionId, local.status});
+                        changed = true;
+                    }
+                } else if (ConfirmationPipeline.STATUS_PENDING.equals(local.status)
+                        && neverReachedConsensus(local.hederaTransactionId, coveredFrom, coveredTo)
+                        && !OutboxStore.containsTransaction(context, local.hederaTransactionId)) {
+                    local.status = STATUS_EXPIRED;
+                    settled.add(new String[]{local.hederaTransactionId, local.status});
+                    changed = true;
+                }
+            }
+            return changed;
+        });
+
+        for (String[] row : settled) {
+            Timber.d("Reconciled %s as %s", row[0], row[1]);
+            ConfirmationPipeline.settle(row[0], row[1]);
+        }
+    }
+
+    private static boolean promote(Transaction local, Transaction record, boolean onlyRow) {
+        boolean changed = !record.status.equals(local.status) || !record.date.equals(local.date);
+        local.status = record.status;
+        local.date = record.date;
+        if (onlyRow && !record.transactionId.equals(local.transactionId)) {
+            local.transactionId = record.transactionId;
+            local.fee = record.fee;
+            local.feeTinybars = record.feeTinybars;
+            local.transferCount = record.transferCount;
+            changed = true;
+        }
+        return changed;
+    }
+
+    private static boolean neverReachedConsensus(String hederaTransactionId, long coveredFrom, long coveredTo) {
+        int at = hederaTransactionId.indexOf('@');
+        if (at < 0) return false;
+        long validStart = ConsensusTimestamps.toNanos(hederaTransactionId.substring(at + 1));
+        return validStart > 0 && coveredFrom <= validStart && validStart + VALIDITY_WINDOW_NANOS <= coveredTo;
+    }
+}
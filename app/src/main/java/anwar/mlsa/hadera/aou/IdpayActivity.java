@@ -34,7 +34,6 @@ import com.google.android.material.textfield.TextInputLayout;
 import com.hedera.hashgraph.sdk.Client;
 import com.hedera.hashgraph.sdk.PrecheckStatusException;
 import com.hedera.hashgraph.sdk.Transaction;
-import com.hedera.hashgraph.sdk.TransactionReceipt;
 import com.hedera.hashgraph.sdk.TransactionResponse;
 import com.hedera.hashgraph.sdk.TransferTransaction;
 
@@ -45,10 +44,17 @@ import java.util.concurrent.TimeoutException;
 
 import anwar.mlsa.hadera.aou.domain.util.Result;
 import anwar.mlsa.hadera.aou.hardware.HardwareWalletService;
+import anwar.mlsa.hadera.aou.hedera.FeeEstimator;
+import anwar.mlsa.hadera.aou.hedera.FeeModel;
+import anwar.mlsa.hadera.aou.hedera.HederaClientProvider;
+import anwar.mlsa.hadera.aou.hedera.LocalTransferSigner;
+import anwar.mlsa.hadera.aou.hedera.SubmissionMode;
+import anwar.mlsa.hadera.aou.hedera.TransactionSubmitter;
 
 public class IdpayActivity extends AppCompatActivity implements HardwareWalletService.HardwareWalletListener {
 
     private static final String TAG = "IdpayActivity";
+    private static final String METRIC_SUBMIT_TO_ACCEPTED = "hw_submit_to_accepted";
 
     private TextInputEditText recipientIdEditText;
     private TextInputEditText amountEditText;
@@ -60,6 +66,7 @@ public class IdpayActivity extends AppCompatActivity implements HardwareWalletSe
     private TextInputLayout recipientLayout;
     private TextInputLayout amountLayout;
     private TextView verifiedTextView;
+    private TextView feeEstimateTextView;
 
     private IdpayViewModel viewModel;
     private double currentBalance = 0.0;
@@ -145,6 +152,14 @@ public class IdpayActivity extends AppCompatActivity implements HardwareWalletSe
         observeViewModel();
         loadInitialData();
         setupBiometrics();
+        if (isCurrentAccountHardware() || SubmissionMode.isLocalSigningEnabled(this)) {
+            HederaClientProvider.prewarm();
+        }
+    }
+
+    private boolean isCurrentAccountHardware() {
+        WalletStorage.Account currentAccount = WalletStorage.getCurrentAccount(this);
+        return currentAccount != null && currentAccount.isHardware;
     }
 
     @Override
@@ -154,6 +169,14 @@ public class IdpayActivity extends AppCompatActivity implements HardwareWalletSe
         bindService(intent, hardwareWalletConnection, Context.BIND_AUTO_CREATE);
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (isFinishing() && viewModel != null) {
+            viewModel.discardSpeculative();
+        }
+    }
+
     @Override
     protected void onStop() {
         super.onStop();
@@ -218,11 +241,20 @@ public class IdpayActivity extends AppCompatActivity implements HardwareWalletSe
         recipientLayout = findViewById(R.id.recipient_input_layout);
         amountLayout = findViewById(R.id.amount_input_layout);
         verifiedTextView = findViewById(R.id.verified_text);
+        feeEstimateTextView = findViewById(R.id.fee_estimate_text);
     }
 
     private void setupToolbar() {
         MaterialToolbar toolbar = findViewById(R.id.toolbar);
         toolbar.setNavigationOnClickListener(v -> finish());
+        toolbar.inflateMenu(R.menu.idpay_menu);
+        toolbar.setOnMenuItemClickListener(item -> {
+            if (item.getItemId() == R.id.action_batch_payout) {
+                startActivity(new Intent(this, BatchPayoutActivity.class));
+                return true;
+            }
+            return false;
+        });
     }
 
     private void setupListeners() {
@@ -264,6 +296,26 @@ public class IdpayActivity extends AppCompatActivity implements HardwareWalletSe
         
         recipientIdEditText.addTextChangedListener(recipientTextWatcher);
         amountEditText.addTextChangedListener(amountTextWatcher);
+        memoEditText.addTextChangedListener(new TextWatcher() {
+            @Override public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
+            @Override public void onTextChanged(CharSequence s, int start, int before, int count) {}
+            @Override
+            public void afterTextChanged(Editable s) {
+                updateSpeculativeTransfer();
+                updateFeeEstimate();
+            }
+        });
+    }
+
+    // Prepares the transfer while the user reviews and confirms it; anything prepared for older inputs is dropped.
+    private void updateSpeculativeTransfer() {
+        if (viewModel == null) return;
+        if (Boolean.TRUE.equals(viewModel.isSendButtonEnabled().getValue())) {
+            viewModel.prepareSpeculatively(safeGetText(recipientIdEditText), safeGetText(amountEditText),
+                    safeGetText(memoEditText).trim());
+        } else {
+            viewModel.discardSpeculative();
+        }
     }
 
     private void observeViewModel() {
@@ -277,7 +329,10 @@ public class IdpayActivity extends AppCompatActivity implements HardwareWalletSe
         });
         viewModel.getRecipientHelperText().observe(this, recipientLayout::setHelperText);
         viewModel.getAmountError().observe(this, error -> amountLayout.setError(error));
-        viewModel.isSendButtonEnabled().observe(this, isEnabled -> sendButton.setEnabled(isEnabled));
+        viewModel.isSendButtonEnabled().observe(this, isEnabled -> {
+            sendButton.setEnabled(isEnabled);
+            updateSpeculativeTransfer();
+        });
         viewModel.getVerifiedRecipient().observe(this, accountId -> {
             if (accountId != null && !accountId.isEmpty()) {
                 verifiedTextView.setVisibility(View.VISIBLE);
@@ -348,17 +403,30 @@ public class IdpayActivity extends AppCompatActivity implements HardwareWalletSe
 
     private void broadcastTransaction(byte[] signedTxBytes) {
         new Thread(() -> {
+            // Measured from the signature arriving, so it includes waiting for the client if it isn't warm yet.
+            long start = System.currentTimeMillis();
+            Client client;
+            try {
+                client = HederaClientProvider.acquire();
+            } catch (Exception e) {
+                onSignatureError(e);
+                return;
+            }
             try {
-                Client client = Client.forTestnet();
                 Transaction<?> signedTx = Transaction.fromBytes(signedTxBytes);
-                TransactionResponse txResponse = signedTx.execute(client);
-                TransactionReceipt receipt = txResponse.getReceipt(client);
+                TransactionResponse txResponse = TransactionSubmitter.submit(getApplicationContext(), client, signedTx);
+                LatencyStats.record(getApplicationContext(), METRIC_SUBMIT_TO_ACCEPTED, System.currentTimeMillis() - start);
+                Map<String, Object> result = LocalTransferSigner.toResultMap(txResponse.transactionId.toString(), txResponse.nodeId);
                 runOnUiThread(() -> {
                     setLoadingState(false);
-                    Toast.makeText(this, "Transaction successful: " + receipt.status, Toast.LENGTH_LONG).show();
+                    viewModel.saveTransactionToHistory(safeGetText(amountEditText), safeGetText(recipientIdEditText),
+                            safeGetText(memoEditText).trim(), result);
+                    launchSuccessScreen(result);
                 });
             } catch (Exception e) {
                 onSignatureError(e);
+            } finally {
+                HederaClientProvider.release();
             }
         }).start();
     }
@@ -375,6 +443,20 @@ public class IdpayActivity extends AppCompatActivity implements HardwareWalletSe
         currentBalance = WalletStorage.getRawBalance(this);
         balanceTextView.setText(WalletStorage.getFormattedBalance(this));
         viewModel.fetchExchangeRate();
+        viewModel.preverifyKnownRecipients();
+        updateFeeEstimate();
+        FeeEstimator.refresh(this, this::updateFeeEstimate);
+    }
+
+    private void updateFeeEstimate() {
+        FeeModel.Estimate estimate = FeeEstimator.estimate(this, 2, safeGetText(memoEditText).trim());
+        if (estimate == null) {
+            feeEstimateTextView.setVisibility(View.GONE);
+            return;
+        }
+        feeEstimateTextView.setText("Estimated fee: " + HistoryApiParser.formatFee(estimate.typicalTinybars)
+                + " (recently up to " + HistoryApiParser.formatFee(estimate.highTinybars) + ")");
+        feeEstimateTextView.setVisibility(View.VISIBLE);
     }
 
     private void setLoadingState(boolean isLoading) {
@@ -407,6 +489,7 @@ public class IdpayActivity extends AppCompatActivity implements HardwareWalletSe
         Intent intent = new Intent(this, SentpayActivity.class);
         intent.putExtra("TRANSACTION_ID", String.valueOf(responseMap.get("transactionId")));
         intent.putExtra("HASHSCAN_URL", String.valueOf(responseMap.get("hashscan")));
+        intent.putExtra("QUEUED", Boolean.TRUE.equals(responseMap.get("queued")));
         intent.putExtra("MEMO", safeGetText(memoEditText));
         startActivity(intent);
         finish();
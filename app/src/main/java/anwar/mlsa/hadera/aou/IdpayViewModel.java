@@ -21,14 +21,28 @@ import com.hedera.hashgraph.sdk.TransferTransaction;
 import org.json.JSONObject;
 
 import java.math.BigDecimal;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
 
 import anwar.mlsa.hadera.aou.domain.use_case.SendTransactionUseCase;
 import anwar.mlsa.hadera.aou.domain.use_case.VerifyAccountUseCase;
+import anwar.mlsa.hadera.aou.domain.util.EntityIdCodec;
 import anwar.mlsa.hadera.aou.domain.util.Result;
+import anwar.mlsa.hadera.aou.hedera.ConfirmationPipeline;
+import anwar.mlsa.hadera.aou.hedera.HederaClientProvider;
+import anwar.mlsa.hadera.aou.hedera.LocalTransferSigner;
+import anwar.mlsa.hadera.aou.hedera.SpeculativeTransfer;
+import anwar.mlsa.hadera.aou.hedera.SubmissionMode;
+import anwar.mlsa.hadera.aou.hedera.TransactionSubmitter;
+import anwar.mlsa.hadera.aou.sync.SyncScheduler;
 
 public class IdpayViewModel extends AndroidViewModel {
 
+    private static final int MAX_PREVERIFIED = 50;
+    // A tinybar is the smallest unit, so anything finer can't be sent.
+    private static final int HBAR_DECIMALS = 8;
+
     private final VerifyAccountUseCase verifyAccountUseCase;
     private final SendTransactionUseCase sendTransactionUseCase;
     private final RequestQueue requestQueue;
@@ -45,6 +59,8 @@ public class IdpayViewModel extends AndroidViewModel {
     private final Handler debounceHandler = new Handler(Looper.getMainLooper());
     private Runnable debounceRunnable;
     private boolean isRecipientCurrentlyValid = false;
+    // Bumped whenever the recipient changes; verification results for an older recipient are dropped.
+    private int recipientGeneration = 0;
 
     public IdpayViewModel(@NonNull Application application,
                             VerifyAccountUseCase verifyAccountUseCase,
@@ -91,6 +107,8 @@ public class IdpayViewModel extends AndroidViewModel {
         verifiedRecipient.postValue(null);
         recipientHelperText.postValue(null);
         isRecipientCurrentlyValid = false;
+        recipientGeneration++;
+        verifyAccountUseCase.cancelPending();
         debounceHandler.removeCallbacks(debounceRunnable);
         debounceRunnable = () -> validateInputs(recipientId, amountStr, currentBalance);
         debounceHandler.postDelayed(debounceRunnable, 300);
@@ -104,7 +122,9 @@ public class IdpayViewModel extends AndroidViewModel {
         boolean isAmountValid = false;
         try {
             double amount = Double.parseDouble(amountStr);
-            if (amount > 0 && amount <= currentBalance) {
+            if (new BigDecimal(amountStr.trim()).stripTrailingZeros().scale() > HBAR_DECIMALS) {
+                amountError.postValue("Amounts have at most " + HBAR_DECIMALS + " decimal places.");
+            } else if (amount > 0 && amount <= currentBalance) {
                 isAmountValid = true;
                 amountError.postValue(null);
             } else if (amount > currentBalance) {
@@ -123,14 +143,17 @@ public class IdpayViewModel extends AndroidViewModel {
     }
 
     private void validateInputs(String recipientId, String amountStr, double currentBalance) {
-        isRecipientCurrentlyValid = recipientId != null && recipientId.matches("^0\\.0\\.[0-9]{7}$");
+        String formatError = VerifyAccountUseCase.formatError(recipientId);
+        isRecipientCurrentlyValid = formatError == null;
 
         if (recipientId == null || recipientId.isEmpty()) {
             recipientError.postValue(null);
         } else if (!isRecipientCurrentlyValid) {
-            recipientError.postValue("Account ID must be in the format 0.0.XXXXXXX");
+            recipientError.postValue(formatError);
         } else {
+            int generation = recipientGeneration;
             verifyAccountUseCase.execute(recipientId, result -> {
+                if (generation != recipientGeneration) return;
                 if (result instanceof Result.Success) {
                     if (((Result.Success<Boolean>) result).data) {
                         recipientHelperText.postValue("Account ID verified");
@@ -151,7 +174,14 @@ public class IdpayViewModel extends AndroidViewModel {
     }
 
     public void verifyAccountId(String accountId) {
+        int generation = ++recipientGeneration;
+        verifyAccountUseCase.cancelPending();
+        debounceHandler.removeCallbacks(debounceRunnable);
         verifyAccountUseCase.execute(accountId, result -> {
+            if (generation != recipientGeneration) {
+                isLoading.postValue(false);
+                return;
+            }
             if (result instanceof Result.Loading) {
                 isLoading.postValue(true);
             } else if (result instanceof Result.Success) {
@@ -172,13 +202,33 @@ public class IdpayViewModel extends AndroidViewModel {
         });
     }
 
+    /** Looks up contacts and recent recipients ahead of time, so picking one of them verifies instantly. */
+    public void preverifyKnownRecipients() {
+        Application app = getApplication();
+        Set<String> accountIds = new LinkedHashSet<>();
+        for (WalletStorage.Contact contact : WalletStorage.getContacts(app)) {
+            accountIds.add(contact.getAccountId());
+        }
+        String accountId = WalletStorage.getAccountId(app);
+        if (accountId != null) {
+            // Newest first, so the recipients most likely to be picked again are the ones looked up.
+            for (Transaction t : WalletStorage.getHistory(app, accountId)) {
+                if (accountIds.size() >= MAX_PREVERIFIED) break;
+                if ("Sent".equals(t.type) && t.party != null) accountIds.add(t.party);
+            }
+        }
+        verifyAccountUseCase.preverify(accountIds);
+    }
+
     public void sendTransaction(String recipientId, String amountStr, String memo, double currentBalance) {
-        sendTransactionUseCase.execute(recipientId, amountStr, memo, currentBalance, result -> {
+        String recipient = canonicalId(recipientId);
+        sendTransactionUseCase.execute(recipient, amountStr, memo, currentBalance, result -> {
             if (result instanceof Result.Loading) {
                 isLoading.postValue(true);
             } else if (result instanceof Result.Success) {
                 isLoading.postValue(false);
-                saveTransactionToHistory(amountStr, recipientId, memo);
+                saveTransactionToHistory(amountStr, recipient, memo, ((Result.Success<Map<String, Object>>) result).data);
+                SyncScheduler.onUserActivity(getApplication());
                 transactionResult.postValue(result);
             } else if (result instanceof Result.Error) {
                 isLoading.postValue(false);
@@ -187,28 +237,64 @@ public class IdpayViewModel extends AndroidViewModel {
         });
     }
 
+    /**
+     * Starts preparing the transfer on screen once the inputs are valid, so confirming it only has to
+     * submit. Hardware accounts sign on the device, so for them only the client is warmed.
+     */
+    public void prepareSpeculatively(String recipientId, String amountStr, String memo) {
+        WalletStorage.Account account = WalletStorage.getCurrentAccount(getApplication());
+        if (account == null) return;
+        if (account.isHardware) {
+            HederaClientProvider.prewarm();
+            return;
+        }
+        if (!SubmissionMode.isLocalSigningEnabled(getApplication()) || account.getPrivateKey() == null) return;
+        try {
+            long tinybars = LocalTransferSigner.toTinybars(Double.parseDouble(amountStr));
+            SpeculativeTransfer.prepare(account.getAccountId(), account.getPrivateKey(), canonicalId(recipientId), tinybars, memo);
+        } catch (NumberFormatException | ArithmeticException e) {
+            SpeculativeTransfer.discard();
+        }
+    }
+
+    public void discardSpeculative() {
+        SpeculativeTransfer.discard();
+    }
+
     public TransferTransaction createUnsignedTransaction(String senderAccountId, String recipientId, String amountStr, String memo) {
         try {
             BigDecimal amount = new BigDecimal(amountStr);
-            return new TransferTransaction()
+            return TransactionSubmitter.preferHealthyNodes(new TransferTransaction()
                     .addHbarTransfer(AccountId.fromString(senderAccountId), Hbar.from(amount).negated())
-                    .addHbarTransfer(AccountId.fromString(recipientId), Hbar.from(amount))
-                    .setTransactionMemo(memo);
+                    .addHbarTransfer(AccountId.fromString(canonicalId(recipientId)), Hbar.from(amount))
+                    .setTransactionMemo(memo));
         } catch (NumberFormatException e) {
             return null;
         }
     }
 
-    private void saveTransactionToHistory(String amount, String receiverId, String memo) {
+    /**
+     * Records a sent transfer. When the response carries a transaction id the row starts out pending and
+     * is settled in place by {@link ConfirmationPipeline} once consensus is known.
+     */
+    public void saveTransactionToHistory(String amount, String receiverId, String memo, Map<String, Object> response) {
         String currentDate = new java.text.SimpleDateFormat("yyyy-MM-dd HH:mm:ss", java.util.Locale.getDefault()).format(new java.util.Date());
+        Object transactionId = response != null ? response.get("transactionId") : null;
         Transaction transaction = new Transaction();
         transaction.type = "Sent";
         transaction.amount = "-" + amount + " ℏ";
-        transaction.party = receiverId;
+        transaction.party = canonicalId(receiverId);
         transaction.date = currentDate;
-        transaction.status = "Completed";
+        transaction.status = transactionId != null ? ConfirmationPipeline.STATUS_PENDING : "Completed";
         transaction.memo = memo;
+        transaction.hederaTransactionId = transactionId != null ? transactionId.toString() : null;
         WalletStorage.saveTransaction(getApplication(), transaction);
+        // Queued transfers are tracked by the outbox once they have actually been sent.
+        if (transaction.hederaTransactionId != null && !Boolean.TRUE.equals(response.get("queued"))) {
+            Object nodeId = response.get("nodeId");
+            ConfirmationPipeline.track(getApplication(), WalletStorage.getAccountId(getApplication()),
+                    transaction.hederaTransactionId, nodeId != null ? AccountId.fromString(nodeId.toString()) : null);
+        }
     }
 
     @Override
@@ -219,4 +305,10 @@ public class IdpayViewModel extends AndroidViewModel {
             requestQueue.cancelAll(this);
         }
     }
+
+    // Drops a typed checksum, so ids are sent and stored in one form.
+    private static String canonicalId(String accountId) {
+        String normalized = EntityIdCodec.normalize(accountId);
+        return normalized != null ? normalized : accountId;
+    }
 }
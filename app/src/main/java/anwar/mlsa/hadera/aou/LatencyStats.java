@@ -0,0 +1,58 @@
+package anwar.mlsa.hadera.aou;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.util.Locale;
+
+import timber.log.Timber;
+
+/**
+ * Small persistent timing counters (count, last, average, max) keyed by metric name, so that
+ * background runs and user-facing latencies can be compared across app restarts.
+ */
+public class LatencyStats {
+
+    private static final String PREFS_NAME = "LatencyStats";
+    private static final String SUFFIX_COUNT = "_count";
+    private static final String SUFFIX_TOTAL = "_total";
+    private static final String SUFFIX_LAST = "_last";
+    private static final String SUFFIX_MAX = "_max";
+
+    private static SharedPreferences getPrefs(Context context) {
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    public static synchronized void record(Context context, String metric, long millis) {
+        SharedPreferences prefs = getPrefs(context);
+        long count = prefs.getLong(metric + SUFFIX_COUNT, 0) + 1;
+        long total = prefs.getLong(metric + SUFFIX_TOTAL, 0) + millis;
+        long max = Math.max(prefs.getLong(metric + SUFFIX_MAX, 0), millis);
+        prefs.edit()
+                .putLong(metric + SUFFIX_COUNT, count)
+                .putLong(metric + SUFFIX_TOTAL, total)
+                .putLong(metric + SUFFIX_LAST, millis)
+                .putLong(metric + SUFFIX_MAX, max)
+                .apply();
+        Timber.d("%s: %d ms (avg %d ms over %d)", metric, millis, total / count, count);
+    }
+
+    public static long getAverage(Context context, String metric) {
+        SharedPreferences prefs = getPrefs(context);
+        long count = prefs.getLong(metric + SUFFIX_COUNT, 0);
+        return count == 0 ? 0 : prefs.getLong(metric + SUFFIX_TOTAL, 0) / count;
+    }
+
+    public static long getLast(Context context, String metric) {
+        return getPrefs(context).getLong(metric + SUFFIX_LAST, 0);
+    }
+
+    public static String describe(Context context, String metric) {
+        SharedPreferences prefs = getPrefs(context);
+        long count = prefs.getLong(metric + SUFFIX_COUNT, 0);
+        if (count == 0) return metric + ": no samples";
+        return String.format(Locale.US, "%s: last %d ms, avg %d ms, max %d ms (%d samples)", metric,
+                prefs.getLong(metric + SUFFIX_LAST, 0), prefs.getLong(metric + SUFFIX_TOTAL, 0) / count,
+                prefs.getLong(metric + SUFFIX_MAX, 0), count);
+    }
+}
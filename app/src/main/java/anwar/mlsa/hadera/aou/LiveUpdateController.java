@@ -0,0 +1,177 @@
+package anwar.mlsa.hadera.aou;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.DefaultLifecycleObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.ArrayDeque;
+import java.util.List;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import timber.log.Timber;
+
+/**
+ * Polls for transactions newer than the newest one on screen while its lifecycle owner is resumed.
+ * Each poll asks only for rows after the known consensus timestamp and revalidates with the last
+ * ETag, so an idle account costs one small (usually 304) response per tick. The interval starts
+ * short, grows while nothing changes and resets on activity. Polling stops as soon as the owner
+ * pauses, and never exceeds {@link #MAX_REQUESTS_PER_MINUTE}.
+ */
+public class LiveUpdateController implements DefaultLifecycleObserver {
+
+    public interface Listener {
+        /** Called on the main thread with new rows, newest first. */
+        void onNewTransactions(String accountId, List<Transaction> transactions);
+    }
+
+    private static final String HISTORY_URL = "https://testnet.mirrornode.hedera.com/api/v1/transactions";
+    private static final long MIN_INTERVAL_MS = 5_000;
+    private static final long MAX_INTERVAL_MS = 30_000;
+    private static final int MAX_REQUESTS_PER_MINUTE = 12;
+    private static final long MINUTE_MS = 60_000;
+
+    private final Context context;
+    private final Listener listener;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final ArrayDeque<Long> requestTimes = new ArrayDeque<>();
+    private final Runnable tick = this::poll;
+
+    private String accountId;
+    private String latestTimestamp;
+    private String etag;
+    private String etagUrl;
+    private long intervalMs = MIN_INTERVAL_MS;
+    private boolean resumed = false;
+    private Call inFlight;
+
+    public LiveUpdateController(Context context, LifecycleOwner owner, Listener listener) {
+        this.context = context.getApplicationContext();
+        this.listener = listener;
+        owner.getLifecycle().addObserver(this);
+    }
+
+    /** Sets the account being shown and the consensus timestamp of its newest row on screen. */
+    public void setLatest(String accountId, String latestTimestamp) {
+        if (accountId == null || !accountId.equals(this.accountId)) {
+            etag = null;
+            etagUrl = null;
+        }
+        this.accountId = accountId;
+        if (latestTimestamp != null && ConsensusTimestamps.isAfter(latestTimestamp, this.latestTimestamp)) {
+            this.latestTimestamp = latestTimestamp;
+        }
+    }
+
+    @Override
+    public void onResume(@NonNull LifecycleOwner owner) {
+        resumed = true;
+        intervalMs = MIN_INTERVAL_MS;
+        schedule(intervalMs);
+    }
+
+    @Override
+    public void onPause(@NonNull LifecycleOwner owner) {
+        resumed = false;
+        handler.removeCallbacks(tick);
+        if (inFlight != null) {
+            inFlight.cancel();
+            inFlight = null;
+        }
+    }
+
+    @Override
+    public void onDestroy(@NonNull LifecycleOwner owner) {
+        owner.getLifecycle().removeObserver(this);
+    }
+
+    private void schedule(long delayMs) {
+        handler.removeCallbacks(tick);
+        if (resumed) {
+            handler.postDelayed(tick, delayMs);
+        }
+    }
+
+    private void poll() {
+        if (!resumed || inFlight != null) return;
+        if (accountId == null || latestTimestamp == null || !ConnectivityUtil.isConnected(context)) {
+            backOff();
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        while (!requestTimes.isEmpty() && now - requestTimes.peekFirst() >= MINUTE_MS) {
+            requestTimes.pollFirst();
+        }
+        if (requestTimes.size() >= MAX_REQUESTS_PER_MINUTE) {
+            schedule(requestTimes.peekFirst() + MINUTE_MS - now);
+            return;
+        }
+        requestTimes.addLast(now);
+
+        final String pollAccountId = accountId;
+        final String url = HISTORY_URL + "?account.id=" + accountId + "&limit=25&timestamp=gt:" + latestTimestamp;
+        Request.Builder builder = new Request.Builder().url(url);
+        if (etag != null && url.equals(etagUrl)) {
+            builder.header("If-None-Match", etag);
+        }
+        final Call call = RequestNetworkController.getInstance().getClient().newCall(builder.build());
+        inFlight = call;
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(@NonNull Call c, @NonNull IOException e) {
+                if (!c.isCanceled()) Timber.w(e, "Live update failed");
+                handler.post(() -> onPollFinished(call, null, null, null));
+            }
+
+            @Override
+            public void onResponse(@NonNull Call c, @NonNull Response response) {
+                HistoryApiParser.HistoryResponse page = null;
+                String responseEtag = response.header("ETag");
+                try (ResponseBody body = response.body()) {
+                    if (response.code() != HttpURLConnection.HTTP_NOT_MODIFIED && response.isSuccessful() && body != null) {
+                        page = HistoryApiParser.parse(body.string(), pollAccountId);
+                    }
+                } catch (IOException e) {
+                    Timber.w(e, "Live update failed");
+                }
+                final HistoryApiParser.HistoryResponse result = page;
+                handler.post(() -> onPollFinished(call, url, responseEtag, result));
+            }
+        });
+    }
+
+    private void onPollFinished(Call call, String url, String responseEtag, HistoryApiParser.HistoryResponse page) {
+        if (inFlight == call) inFlight = null;
+        if (!resumed || call.isCanceled()) return;
+        if (responseEtag != null) {
+            etag = responseEtag;
+            etagUrl = url;
+        }
+        if (page == null || page.transactions == null || page.firstConsensusTimestamp == null) {
+            backOff();
+            return;
+        }
+        // Filtered-out rows (e.g. non-transfers) still move the cursor so they aren't fetched again.
+        setLatest(accountId, page.firstConsensusTimestamp);
+        if (!page.transactions.isEmpty()) {
+            listener.onNewTransactions(accountId, page.transactions);
+        }
+        intervalMs = MIN_INTERVAL_MS;
+        schedule(intervalMs);
+    }
+
+    private void backOff() {
+        intervalMs = Math.min(MAX_INTERVAL_MS, intervalMs * 3 / 2);
+        schedule(intervalMs);
+    }
+}
@@ -0,0 +1,100 @@
+package anwar.mlsa.hadera.aou;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.reflect.TypeToken;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * On-device copy of each account's most recent mirror node history, newest first. Filled in the
+ * background by the sync worker so that screens can show history before their own request returns.
+ */
+public class LocalHistoryStore {
+
+    private static final String PREFS_NAME = "LocalHistory";
+    private static final String SUFFIX_HISTORY = "_HISTORY";
+    private static final int MAX_ROWS = 200;
+
+    private static final Map<String, ArrayList<Transaction>> cache = new HashMap<>();
+
+    private static SharedPreferences getPrefs(Context context) {
+        return context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    public static synchronized List<Transaction> getRecent(Context context, String accountId, int limit) {
+        ArrayList<Transaction> history = load(context, accountId);
+        return new ArrayList<>(history.subList(0, Math.min(limit, history.size())));
+    }
+
+    public static synchronized List<Transaction> getHistory(Context context, String accountId) {
+        return new ArrayList<>(load(context, accountId));
+    }
+
+    /**
+     * Adds rows that aren't stored yet, keeps the list ordered by consensus time and trims the oldest.
+     * Rows sent from this device are settled against the incoming ones first.
+     */
+    public static synchronized void merge(Context context, String accountId, List<Transaction> rows) {
+        if (rows == null || rows.isEmpty()) return;
+        HistoryReconciler.reconcile(context, accountId, rows);
+        ArrayList<Transaction> history = load(context, accountId);
+        HashMap<String, Transaction> byId = new HashMap<>();
+        for (Transaction t : history) {
+            if (t.transactionId != null) byId.put(t.transactionId, t);
+        }
+        boolean changed = false;
+        for (Transaction row : rows) {
+            if (row.transactionId == null || byId.containsKey(row.transactionId)) continue;
+            byId.put(row.transactionId, row);
+            history.add(row);
+            changed = true;
+        }
+        if (!changed) return;
+        history.sort((a, b) -> ConsensusTimestamps.compare(b.transactionId, a.transactionId));
+        while (history.size() > MAX_ROWS) {
+            history.remove(history.size() - 1);
+        }
+        save(context, accountId, history);
+    }
+
+    public static synchronized void clear(Context context, String accountId) {
+        cache.remove(accountId);
+        getPrefs(context).edit().remove(accountId + SUFFIX_HISTORY).apply();
+    }
+
+    public static synchronized void clearAll(Context context) {
+        cache.clear();
+        getPrefs(context).edit().clear().apply();
+    }
+
+    private static ArrayList<Transaction> load(Context context, String accountId) {
+        ArrayList<Transaction> history = cache.get(accountId);
+        if (history != null) return history;
+        history = new ArrayList<>();
+        String json = getPrefs(context).getString(accountId + SUFFIX_HISTORY, null);
+        if (json != null && !json.isEmpty()) {
+            try {
+                Type type = new TypeToken<ArrayList<Transaction>>() {}.getType();
+                ArrayList<Transaction> stored = new Gson().fromJson(json, type);
+                if (stored != null) history = stored;
+            } catch (JsonSyntaxException e) {
+                // Corrupt cache; it is refilled by the next sync.
+            }
+        }
+        cache.put(accountId, history);
+        return history;
+    }
+
+    private static void save(Context context, String accountId, ArrayList<Transaction> history) {
+        cache.put(accountId, history);
+        getPrefs(context).edit().putString(accountId + SUFFIX_HISTORY, new Gson().toJson(history)).apply();
+    }
+}
@@ -8,7 +8,6 @@ import android.net.Uri;
 import android.os.Bundle;
 import android.text.Editable;
 import android.text.TextWatcher;
-import android.util.Log;
 import android.view.View;
 import android.widget.Button;
 import android.widget.ProgressBar;
@@ -19,14 +18,15 @@ import androidx.appcompat.app.AppCompatActivity;
 
 import com.google.android.material.textfield.TextInputEditText;
 import com.google.android.material.textfield.TextInputLayout;
-import com.google.gson.Gson;
-import com.google.gson.JsonSyntaxException;
-
-import java.util.HashMap;
 import java.util.List;
 
+import anwar.mlsa.hadera.aou.domain.util.EntityIdCodec;
+import anwar.mlsa.hadera.aou.hedera.AccountKeyVerifier;
+
 public class MainActivity extends AppCompatActivity {
 
+    private static final String METRIC_LOGIN_VERIFY = "login_verify";
+
     private TextInputEditText accountIdEditText;
     private TextInputEditText privateKeyEditText;
     private TextInputLayout accountIdLayout;
@@ -36,15 +36,6 @@ public class MainActivity extends AppCompatActivity {
     private ProgressBar progressBar;
     private TextView welcomeMessage;
 
-    private RequestNetwork networkReq;
-    private RequestNetwork.RequestListener networkListener;
-
-    private static class VerificationResponse {
-        boolean valid;
-        String message;
-        String error;
-    }
-
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -65,9 +56,6 @@ public class MainActivity extends AppCompatActivity {
         TextView mlsaEg = findViewById(R.id.mlsa_eg);
         welcomeMessage = findViewById(R.id.welcome_message);
 
-        networkReq = new RequestNetwork(this);
-        setupNetworkListener();
-
         loginButton.setOnClickListener(v -> {
             VibrationManager.vibrate(this);
             handleLogin();
@@ -108,7 +96,7 @@ public class MainActivity extends AppCompatActivity {
 
             @Override
             public void afterTextChanged(Editable s) {
-                if (!s.toString().trim().matches("^0\\.0\\.[0-9]+$")) {
+                if (!EntityIdCodec.isAccountNum(s.toString().trim())) {
                     accountIdLayout.setError("Valid Account ID is required.");
                 } else {
                     accountIdLayout.setError(null);
@@ -117,26 +105,6 @@ public class MainActivity extends AppCompatActivity {
         });
     }
 
-    private void setupNetworkListener() {
-        networkListener = new RequestNetwork.RequestListener() {
-            @Override
-            public void onResponse(String tag, String response, HashMap<String, Object> responseHeaders) {
-                if ("verify_tag".equals(tag)) {
-                    setLoadingState(false);
-                    handleVerificationResponse(response);
-                }
-            }
-
-            @Override
-            public void onErrorResponse(String tag, String message) {
-                if ("verify_tag".equals(tag)) {
-                    setLoadingState(false);
-                    privateKeyLayout.setError("Network Error: " + message);
-                }
-            }
-        };
-    }
-    
     private void updateWelcomeMessage() {
         if (WalletStorage.getAccounts(this).isEmpty()) {
             welcomeMessage.setText("Welcome!");
@@ -152,16 +120,25 @@ public class MainActivity extends AppCompatActivity {
         if (!validateInputs(accountId, privateKey)) {
             return;
         }
+        accountId = EntityIdCodec.normalize(accountId);
 
         setLoadingState(true);
-        HashMap<String, Object> verificationBody = ApiConfig.getVerificationBody(accountId, privateKey);
-        networkReq.setParams(verificationBody, RequestNetworkController.REQUEST_BODY);
-        networkReq.startRequestNetwork(RequestNetworkController.POST, ApiConfig.BASE_URL + ApiConfig.VERIFY_ENDPOINT, "verify_tag", networkListener);
+        final String verifiedAccountId = accountId;
+        final long start = System.currentTimeMillis();
+        AccountKeyVerifier.verify(accountId, privateKey, error -> {
+            setLoadingState(false);
+            LatencyStats.record(this, METRIC_LOGIN_VERIFY, System.currentTimeMillis() - start);
+            if (error == null) {
+                completeLogin(verifiedAccountId, privateKey);
+            } else {
+                privateKeyLayout.setError(error);
+            }
+        });
     }
 
     private boolean validateInputs(String accountId, String privateKey) {
         boolean isValid = true;
-        if (accountId.isEmpty() || !accountId.matches("^0\\.0\\.[0-9]+$")) {
+        if (!EntityIdCodec.isAccountNum(accountId)) {
             accountIdLayout.setError("Valid Account ID is required.");
             isValid = false;
         } else {
@@ -177,49 +154,32 @@ public class MainActivity extends AppCompatActivity {
         return isValid;
     }
 
-    private void handleVerificationResponse(String response) {
-        try {
-            VerificationResponse verificationResponse = new Gson().fromJson(response, VerificationResponse.class);
-            if (verificationResponse != null && verificationResponse.valid) {
-                String accountId = accountIdEditText.getText().toString().trim();
-                String privateKey = privateKeyEditText.getText().toString().trim();
-
-                List<WalletStorage.Account> accounts = WalletStorage.getAccounts(this);
-                int accountIndex = -1;
-                for (int i = 0; i < accounts.size(); i++) {
-                    if (accounts.get(i).getAccountId().equals(accountId)) {
-                        accountIndex = i;
-                        break;
-                    }
-                }
+    private void completeLogin(String accountId, String privateKey) {
+        List<WalletStorage.Account> accounts = WalletStorage.getAccounts(this);
+        int accountIndex = -1;
+        for (int i = 0; i < accounts.size(); i++) {
+            if (accounts.get(i).getAccountId().equals(accountId)) {
+                accountIndex = i;
+                break;
+            }
+        }
 
-                if (accountIndex != -1) {
-                    // Account exists, set it as current
-                    WalletStorage.setCurrentAccountIndex(this, accountIndex);
-                    startActivity(new Intent(this, TransferActivity.class));
-                    finishAffinity();
-                } else {
-                    // Account doesn't exist, try to add it
-                    if (WalletStorage.addAccount(this, accountId, privateKey)) {
-                        // Set the new account as current
-                        WalletStorage.setCurrentAccountIndex(this, WalletStorage.getAccounts(this).size() - 1);
-                        startActivity(new Intent(this, TransferActivity.class));
-                        finishAffinity();
-                    } else {
-                        // Failed to add account (max limit reached)
-                        privateKeyLayout.setError("Cannot add more accounts. Maximum of 6 accounts reached.");
-                    }
-                }
+        if (accountIndex != -1) {
+            // Account exists, set it as current
+            WalletStorage.setCurrentAccountIndex(this, accountIndex);
+            startActivity(new Intent(this, TransferActivity.class));
+            finishAffinity();
+        } else {
+            // Account doesn't exist, try to add it
+            if (WalletStorage.addAccount(this, accountId, privateKey)) {
+                // Set the new account as current
+                WalletStorage.setCurrentAccountIndex(this, WalletStorage.getAccounts(this).size() - 1);
+                startActivity(new Intent(this, TransferActivity.class));
+                finishAffinity();
             } else {
-                String errorMessage = verificationResponse != null ? (verificationResponse.message != null ? verificationResponse.message : verificationResponse.error) : "Invalid credentials.";
-                privateKeyLayout.setError(errorMessage != null ? errorMessage : "Invalid credentials.");
+                // Failed to add account (max limit reached)
+                privateKeyLayout.setError("Cannot add more accounts. Maximum of 6 accounts reached.");
             }
-        } catch (JsonSyntaxException e) {
-            Log.e("MainActivity_JsonError", "Server sent invalid JSON.", e);
-            privateKeyLayout.setError("Error: Could not understand server response.");
-        } catch (Exception e) {
-            Log.e("MainActivity_ResponseError", "Unexpected error during response handling.", e);
-            privateKeyLayout.setError("An unexpected error occurred.");
         }
     }
 
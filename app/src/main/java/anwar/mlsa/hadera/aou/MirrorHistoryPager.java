@@ -0,0 +1,74 @@
+package anwar.mlsa.hadera.aou;
+
+import java.io.IOException;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Walks an account's mirror node history one page at a time on the calling thread.
+ * Only the current page is held in memory, so callers can stream arbitrarily long histories.
+ */
+public class MirrorHistoryPager {
+
+    private static final String HEDERA_API_BASE_URL = "https://testnet.mirrornode.hedera.com";
+    private static final String HISTORY_API_ENDPOINT = "/api/v1/transactions";
+    private static final int PAGE_SIZE = 100;
+
+    private final OkHttpClient client;
+    private final String accountId;
+    private String firstUrl;
+    private String nextUrl;
+    private boolean started = false;
+
+    public MirrorHistoryPager(OkHttpClient client, String accountId) {
+        this.client = client;
+        this.accountId = accountId;
+        this.firstUrl = HISTORY_API_ENDPOINT + "?account.id=" + accountId + "&limit=" + PAGE_SIZE;
+    }
+
+    /**
+     * Pages oldest-first through transactions that reached consensus strictly after
+     * {@code afterTimestamp}, or through the whole history when it is null.
+     */
+    public static MirrorHistoryPager ascendingAfter(OkHttpClient client, String accountId, String afterTimestamp) {
+        MirrorHistoryPager pager = new MirrorHistoryPager(client, accountId);
+        pager.firstUrl += "&order=asc";
+        if (afterTimestamp != null) {
+            pager.firstUrl += "&timestamp=gt:" + afterTimestamp;
+        }
+        return pager;
+    }
+
+    public static MirrorHistoryPager resume(OkHttpClient client, String accountId, String nextUrl) {
+        MirrorHistoryPager pager = new MirrorHistoryPager(client, accountId);
+        pager.started = true;
+        pager.nextUrl = nextUrl;
+        return pager;
+    }
+
+    public boolean hasNext() {
+        return !started || nextUrl != null;
+    }
+
+    public HistoryApiParser.HistoryResponse next() throws IOException {
+        String path = started ? nextUrl : firstUrl;
+        Request request = new Request.Builder().url(HEDERA_API_BASE_URL + path).build();
+        try (Response response = client.newCall(request).execute()) {
+            ResponseBody body = response.body();
+            if (!response.isSuccessful() || body == null) {
+                throw new IOException("Mirror node returned HTTP " + response.code());
+            }
+            HistoryApiParser.HistoryResponse page = HistoryApiParser.parse(body.string(), accountId);
+            started = true;
+            nextUrl = (page.nextUrl != null && !page.nextUrl.isEmpty()) ? page.nextUrl : null;
+            return page;
+        }
+    }
+
+    public String getNextUrl() {
+        return nextUrl;
+    }
+}
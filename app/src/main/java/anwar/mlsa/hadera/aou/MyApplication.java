@@ -2,21 +2,15 @@ package anwar.mlsa.hadera.aou;
 
 import android.app.Application;
 
-import androidx.work.Constraints;
-import androidx.work.ExistingPeriodicWorkPolicy;
-import androidx.work.NetworkType;
-import androidx.work.PeriodicWorkRequest;
-import androidx.work.WorkManager;
-
-import java.util.concurrent.TimeUnit;
-
 import anwar.mlsa.hadera.aou.BuildConfig;
+import anwar.mlsa.hadera.aou.hedera.ConfirmationPipeline;
+import anwar.mlsa.hadera.aou.hedera.HederaClientProvider;
+import anwar.mlsa.hadera.aou.outbox.OutboxWorker;
+import anwar.mlsa.hadera.aou.sync.SyncScheduler;
 import timber.log.Timber;
 
 public class MyApplication extends Application {
 
-    private static final String TRANSACTION_WORKER_TAG = "transaction_check_worker";
-
     @Override
     public void onCreate() {
         super.onCreate();
@@ -28,23 +22,25 @@ public class MyApplication extends Application {
         }
 
         ThemeManager.applyTheme(this);
-        setupRecurringWork();
+        HederaClientProvider.init(this);
+        ConfirmationPipeline.resumePending(this);
+        OutboxWorker.scheduleIfPending(this);
+        SyncScheduler.start(this);
     }
 
-    private void setupRecurringWork() {
-        Constraints constraints = new Constraints.Builder()
-                .setRequiredNetworkType(NetworkType.CONNECTED)
-                .build();
-
-        PeriodicWorkRequest repeatingRequest = new PeriodicWorkRequest.Builder(
-                TransactionNotificationWorker.class, 15, TimeUnit.MINUTES)
-                .setConstraints(constraints)
-                .build();
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        if (level >= TRIM_MEMORY_BACKGROUND || level == TRIM_MEMORY_RUNNING_LOW || level == TRIM_MEMORY_RUNNING_CRITICAL) {
+            // Rebuilt lazily on the next send.
+            HederaClientProvider.close();
+        }
+    }
 
-        WorkManager.getInstance(getApplicationContext()).enqueueUniquePeriodicWork(
-                TRANSACTION_WORKER_TAG,
-                ExistingPeriodicWorkPolicy.KEEP,
-                repeatingRequest);
+    @Override
+    public void onLowMemory() {
+        super.onLowMemory();
+        HederaClientProvider.close();
     }
 
     private static class ReleaseTree extends Timber.Tree {
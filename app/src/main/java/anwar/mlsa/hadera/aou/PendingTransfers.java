@@ -0,0 +1,69 @@
+package anwar.mlsa.hadera.aou;
+
+import android.content.Context;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import anwar.mlsa.hadera.aou.hedera.ConfirmationPipeline;
+
+/**
+ * Transfers sent from this device, shown on top of the synced history until the mirror node has
+ * them, so a send appears in the lists at once instead of after the next sync happens to include it.
+ * A row stays while it is pending, and for a while after it settles so the outcome can be seen; once
+ * the synced rows contain it, the synced row is shown instead.
+ */
+public final class PendingTransfers {
+
+    // How long a settled send is still shown while the mirror node hasn't caught up with it.
+    private static final long SETTLED_VISIBLE_NANOS = 30 * 60 * 1_000_000_000L;
+
+    private PendingTransfers() {
+    }
+
+    /** Unsettled and recently settled sends of {@code accountId}, newest first. */
+    public static List<Transaction> recent(Context context, String accountId) {
+        List<Transaction> recent = new ArrayList<>();
+        if (accountId == null) return recent;
+        long cutoff = System.currentTimeMillis() * 1_000_000L - SETTLED_VISIBLE_NANOS;
+        for (Transaction t : WalletStorage.getHistory(context, accountId)) {
+            if (t.hederaTransactionId == null) continue;
+            if (ConfirmationPipeline.STATUS_PENDING.equals(t.status) || validStartNanos(t) > cutoff) {
+                recent.add(t);
+            }
+        }
+        return recent;
+    }
+
+    /** {@code synced} with the sends it doesn't contain yet put on top. */
+    public static List<Transaction> overlay(List<Transaction> pending, List<Transaction> synced) {
+        if (pending.isEmpty()) return new ArrayList<>(synced);
+        Set<String> syncedIds = new HashSet<>();
+        for (Transaction t : synced) {
+            if (t.transactionId != null) syncedIds.add(t.transactionId);
+            if (t.hederaTransactionId != null) syncedIds.add(t.hederaTransactionId);
+        }
+        List<Transaction> combined = new ArrayList<>(pending.size() + synced.size());
+        for (Transaction t : pending) {
+            boolean alreadySynced = (t.transactionId != null && syncedIds.contains(t.transactionId))
+                    || syncedIds.contains(ConfirmationPipeline.toMirrorId(t.hederaTransactionId));
+            if (!alreadySynced) combined.add(t);
+        }
+        combined.addAll(synced);
+        return combined;
+    }
+
+    /** A key that is unique within a list that mixes sent and synced rows. */
+    public static String key(Transaction t) {
+        if (t.transactionId != null) return t.transactionId;
+        // Rows of one batch payout share a transaction id, so the recipient tells them apart.
+        return t.hederaTransactionId + "|" + t.party;
+    }
+
+    private static long validStartNanos(Transaction t) {
+        int at = t.hederaTransactionId.indexOf('@');
+        return at < 0 ? 0 : ConsensusTimestamps.toNanos(t.hederaTransactionId.substring(at + 1));
+    }
+}
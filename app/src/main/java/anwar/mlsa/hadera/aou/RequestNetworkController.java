@@ -44,6 +44,10 @@ public class RequestNetworkController {
         return mInstance;
     }
 
+    public OkHttpClient getClient() {
+        return client;
+    }
+
     public void execute(final RequestNetwork requestNetwork, String method, String url, final String tag, final RequestNetwork.RequestListener requestListener) {
         Context context = requestNetwork.getContext();
         if (!ConnectivityUtil.isConnected(context)) {
@@ -32,6 +32,8 @@ import com.google.zxing.common.HybridBinarizer;
 import java.io.FileNotFoundException;
 import java.io.InputStream;
 
+import anwar.mlsa.hadera.aou.domain.util.EntityIdCodec;
+
 public class ScannerqrActivity extends AppCompatActivity {
 
     private static final int PERMISSION_REQUEST_CODE = 100;
@@ -136,14 +138,15 @@ public class ScannerqrActivity extends AppCompatActivity {
 
     private void handleScannedResult(String text) {
         String currentAccountId = WalletStorage.getAccountId(this);
-        if (text != null && text.equals(currentAccountId)){
+        String scannedId = EntityIdCodec.isAccountNum(text) ? EntityIdCodec.normalize(text) : null;
+        if (scannedId != null && scannedId.equals(currentAccountId)){
             Toast.makeText(this, "You cannot send to your own account.", Toast.LENGTH_LONG).show();
             if (mCodeScanner != null) {
                 mCodeScanner.startPreview();
             }
-        } else if (text != null && text.matches("^0\\.0\\.[0-9]+$")) {
+        } else if (scannedId != null) {
             Intent resultIntent = new Intent();
-            resultIntent.putExtra("SCANNED_ID", text);
+            resultIntent.putExtra("SCANNED_ID", scannedId);
             setResult(RESULT_OK, resultIntent);
             finish();
         } else {
@@ -11,9 +11,12 @@ import androidx.appcompat.app.AppCompatActivity;
 
 import com.google.android.material.appbar.MaterialToolbar;
 
-public class SentpayActivity extends AppCompatActivity {
+import anwar.mlsa.hadera.aou.hedera.ConfirmationPipeline;
+
+public class SentpayActivity extends AppCompatActivity implements ConfirmationPipeline.Listener {
 
     private TextView transactionIdTextView;
+    private TextView transactionStatusTextView;
     private Button viewOnHashScanButton;
     private Button shareButton;
     private Button doneButton;
@@ -39,6 +42,15 @@ public class SentpayActivity extends AppCompatActivity {
         }
 
         transactionIdTextView.setText(transactionId);
+        String status = ConfirmationPipeline.getStatus(transactionId);
+        if (status != null) {
+            showStatus(status);
+        } else if (intent.getBooleanExtra("QUEUED", false)) {
+            transactionStatusTextView.setText("Status: queued, will be sent when back online");
+        } else {
+            showStatus(ConfirmationPipeline.STATUS_PENDING);
+        }
+        ConfirmationPipeline.addListener(this);
 
         setupListeners();
 
@@ -56,11 +68,30 @@ public class SentpayActivity extends AppCompatActivity {
         toolbar.setNavigationOnClickListener(v -> goToMainScreen());
 
         transactionIdTextView = findViewById(R.id.transaction_id_textview);
+        transactionStatusTextView = findViewById(R.id.transaction_status_textview);
         viewOnHashScanButton = findViewById(R.id.view_on_hashscan_button);
         shareButton = findViewById(R.id.share_button);
         doneButton = findViewById(R.id.done_button);
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        ConfirmationPipeline.removeListener(this);
+    }
+
+    @Override
+    public void onConfirmed(String hederaTransactionId, String status) {
+        if (hederaTransactionId.equals(transactionId)) {
+            showStatus(status);
+        }
+    }
+
+    private void showStatus(String status) {
+        transactionStatusTextView.setText(ConfirmationPipeline.STATUS_PENDING.equals(status)
+                ? "Status: awaiting consensus…" : "Status: " + status);
+    }
+
     private void setupListeners() {
         doneButton.setOnClickListener(v -> goToMainScreen());
 
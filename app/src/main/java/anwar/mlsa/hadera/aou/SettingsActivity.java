@@ -22,46 +22,44 @@ import androidx.annotation.NonNull;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.app.AppCompatDelegate;
-import androidx.documentfile.provider.DocumentFile;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
-import androidx.work.Constraints;
-import androidx.work.ExistingPeriodicWorkPolicy;
-import androidx.work.NetworkType;
-import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkInfo;
 import androidx.work.WorkManager;
 
 import com.google.android.material.appbar.MaterialToolbar;
 import com.google.android.material.card.MaterialCardView;
 import com.google.android.material.switchmaterial.SwitchMaterial;
-import com.google.gson.Gson;
 
-import java.io.OutputStream;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
+import java.util.UUID;
+
+import anwar.mlsa.hadera.aou.export.HistoryExportFormat;
+import anwar.mlsa.hadera.aou.export.HistoryExportWorker;
+import anwar.mlsa.hadera.aou.hedera.SubmissionMode;
+import anwar.mlsa.hadera.aou.sync.SyncScheduler;
 
 public class SettingsActivity extends AppCompatActivity {
 
-    private static final String NOTIFICATION_WORK_TAG = "transaction_notification_work";
     private static final String PREFS_NAME = "SettingsPrefs";
     private static final String KEY_EXPORT_PATH = "EXPORT_PATH";
-    private static final String EXPORT_HISTORY_TAG = "export_history_tag";
+    private static final String KEY_EXPORT_APPEND = "EXPORT_APPEND";
 
     private RecyclerView accountsRecyclerView;
     private AccountAdapter accountAdapter;
     private SwitchMaterial notificationsSwitch;
+    private TextView syncStatsText;
     private SwitchMaterial hapticFeedbackSwitch;
+    private SwitchMaterial localSigningSwitch;
+    private TextView sendLatencyText;
     private Button exportHistoryButton;
     private ImageButton changeExportLocationButton;
     private RadioGroup exportFormatRadioGroup;
+    private SwitchMaterial exportAppendSwitch;
     private ProgressBar exportProgressBar;
     private Uri exportLocation;
-
-    private RequestNetwork networkReq;
-    private RequestNetwork.RequestListener networkListener;
+    private UUID pendingExportId;
 
     private final ActivityResultLauncher<Intent> directoryPickerLauncher = registerForActivityResult(
             new ActivityResultContracts.StartActivityForResult(),
@@ -88,13 +86,14 @@ public class SettingsActivity extends AppCompatActivity {
         setupToolbar();
         loadExportLocation();
         initializeViews();
-        setupNetworkListener();
         setupThemeButtons();
         setupAccountButtons();
         setupRecyclerView();
         setupNotificationSwitch();
         setupHapticFeedbackSwitch();
+        setupLocalSigningSwitch();
         setupExportButton();
+        observeExportWork();
         setupSourceCodeLink();
         setupDeveloperInfo();
     }
@@ -108,10 +107,14 @@ public class SettingsActivity extends AppCompatActivity {
     private void initializeViews() {
         accountsRecyclerView = findViewById(R.id.accounts_recyclerview);
         notificationsSwitch = findViewById(R.id.notifications_switch);
+        syncStatsText = findViewById(R.id.sync_stats_text);
         hapticFeedbackSwitch = findViewById(R.id.haptic_feedback_switch);
+        localSigningSwitch = findViewById(R.id.local_signing_switch);
+        sendLatencyText = findViewById(R.id.send_latency_text);
         exportHistoryButton = findViewById(R.id.export_history_button);
         changeExportLocationButton = findViewById(R.id.change_export_location_button);
         exportFormatRadioGroup = findViewById(R.id.export_format_radiogroup);
+        exportAppendSwitch = findViewById(R.id.export_append_switch);
         exportProgressBar = findViewById(R.id.export_progress_bar);
     }
 
@@ -134,6 +137,12 @@ public class SettingsActivity extends AppCompatActivity {
     }
 
     private void setupExportButton() {
+        SharedPreferences prefs = getSharedPreferences(PREFS_NAME, MODE_PRIVATE);
+        exportAppendSwitch.setChecked(prefs.getBoolean(KEY_EXPORT_APPEND, false));
+        exportAppendSwitch.setOnCheckedChangeListener((buttonView, isChecked) -> {
+            VibrationManager.vibrate(this);
+            prefs.edit().putBoolean(KEY_EXPORT_APPEND, isChecked).apply();
+        });
         exportHistoryButton.setOnClickListener(v -> fetchHistoryForExport());
         changeExportLocationButton.setOnClickListener(v -> {
             Intent intent = new Intent(Intent.ACTION_OPEN_DOCUMENT_TREE);
@@ -148,114 +157,66 @@ public class SettingsActivity extends AppCompatActivity {
             return;
         }
 
-        exportProgressBar.setVisibility(View.VISIBLE);
-        exportHistoryButton.setEnabled(false);
+        HistoryExportFormat format = getSelectedExportFormat();
+        if (format == null) {
+            Toast.makeText(this, "Please select an export format.", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        if (exportLocation == null) {
+            Toast.makeText(this, "Please set an export location first.", Toast.LENGTH_LONG).show();
+            return;
+        }
 
-        String url = "https://testnet.mirrornode.hedera.com/api/v1/transactions?account.id=" + accountId + "&limit=1000";
-        networkReq.startRequestNetwork(RequestNetworkController.GET, url, EXPORT_HISTORY_TAG, networkListener);
+        boolean append = exportAppendSwitch.isChecked();
+        if (append && !format.supportsAppend()) {
+            Toast.makeText(this, "JSON exports can't be appended to; the file will be rewritten.", Toast.LENGTH_SHORT).show();
+        }
+        pendingExportId = HistoryExportWorker.enqueue(this, accountId, format, exportLocation, append);
+        Toast.makeText(this, "Export started. You can leave this screen.", Toast.LENGTH_SHORT).show();
     }
 
-    private void setupNetworkListener() {
-        networkReq = new RequestNetwork(this);
-        networkListener = new RequestNetwork.RequestListener() {
-            @Override
-            public void onResponse(String tag, String response, HashMap<String, Object> responseHeaders) {
-                if (EXPORT_HISTORY_TAG.equals(tag)) {
-                    exportProgressBar.setVisibility(View.GONE);
-                    exportHistoryButton.setEnabled(true);
-
-                    HistoryApiParser.HistoryResponse historyResponse = HistoryApiParser.parse(response, WalletStorage.getAccountId(SettingsActivity.this));
-                    if (historyResponse.transactions.isEmpty()) {
-                        Toast.makeText(SettingsActivity.this, "No transaction history found online.", Toast.LENGTH_SHORT).show();
-                        return;
+    private void observeExportWork() {
+        WorkManager.getInstance(this).getWorkInfosByTagLiveData(HistoryExportWorker.TAG).observe(this, workInfos -> {
+            boolean exportRunning = false;
+            for (WorkInfo workInfo : workInfos) {
+                if (!workInfo.getState().isFinished()) {
+                    exportRunning = true;
+                } else if (workInfo.getId().equals(pendingExportId)) {
+                    pendingExportId = null;
+                    if (workInfo.getState() == WorkInfo.State.SUCCEEDED) {
+                        int rows = workInfo.getOutputData().getInt(HistoryExportWorker.KEY_ROWS, 0);
+                        boolean appended = workInfo.getOutputData().getBoolean(HistoryExportWorker.KEY_APPENDED, false);
+                        if (appended) {
+                            Toast.makeText(this, rows == 0 ? "No new transactions to export." : rows + " new transactions appended.", Toast.LENGTH_LONG).show();
+                        } else {
+                            Toast.makeText(this, rows == 0 ? "No transaction history found online." : "History exported successfully.", Toast.LENGTH_LONG).show();
+                        }
+                    } else if (workInfo.getState() == WorkInfo.State.FAILED) {
+                        Toast.makeText(this, "Failed to export history.", Toast.LENGTH_LONG).show();
                     }
-                    proceedWithExport(historyResponse.transactions);
-                }
-            }
-
-            @Override
-            public void onErrorResponse(String tag, String message) {
-                if (EXPORT_HISTORY_TAG.equals(tag)) {
-                    exportProgressBar.setVisibility(View.GONE);
-                    exportHistoryButton.setEnabled(true);
-                    Toast.makeText(SettingsActivity.this, "Failed to fetch history: " + message, Toast.LENGTH_LONG).show();
                 }
             }
-        };
+            exportProgressBar.setVisibility(exportRunning ? View.VISIBLE : View.GONE);
+            exportHistoryButton.setEnabled(!exportRunning);
+        });
     }
 
-    private void proceedWithExport(ArrayList<Transaction> transactions) {
+    private HistoryExportFormat getSelectedExportFormat() {
         int selectedId = exportFormatRadioGroup.getCheckedRadioButtonId();
-        String fileName, mimeType, content;
-
         if (selectedId == R.id.export_format_json) {
-            fileName = "hadera-history-export.json";
-            mimeType = "application/json";
-            content = new Gson().toJson(transactions);
+            return HistoryExportFormat.JSON;
+        } else if (selectedId == R.id.export_format_ndjson) {
+            return HistoryExportFormat.NDJSON;
         } else if (selectedId == R.id.export_format_log) {
-            fileName = "hadera-history-export.log";
-            mimeType = "text/plain";
-            content = getLogFormattedHistory(transactions);
+            return HistoryExportFormat.LOG;
+        } else if (selectedId == R.id.export_format_ndjson_gz) {
+            return HistoryExportFormat.NDJSON_GZIP;
+        } else if (selectedId == R.id.export_format_compact) {
+            return HistoryExportFormat.COMPACT;
         } else if (selectedId == R.id.export_format_csv) {
-            fileName = "hadera-history-export.csv";
-            mimeType = "text/csv";
-            content = getCsvFormattedHistory(transactions);
-        } else {
-            Toast.makeText(this, "Please select an export format.", Toast.LENGTH_SHORT).show();
-            return;
-        }
-
-        if (exportLocation != null) {
-            writeContentToUri(exportLocation, fileName, mimeType, content);
-        } else {
-            Toast.makeText(this, "Please set an export location first.", Toast.LENGTH_LONG).show();
-        }
-    }
-
-    private void writeContentToUri(Uri treeUri, String fileName, String mimeType, String content) {
-        try {
-            DocumentFile directory = DocumentFile.fromTreeUri(this, treeUri);
-            DocumentFile file = directory.findFile(fileName);
-            if (file != null) {
-                file.delete();
-            }
-            file = directory.createFile(mimeType, fileName);
-
-            try (OutputStream os = getContentResolver().openOutputStream(file.getUri())) {
-                os.write(content.getBytes());
-                Toast.makeText(this, "History exported successfully.", Toast.LENGTH_LONG).show();
-            } catch (Exception e) {
-                Toast.makeText(this, "Error writing to file.", Toast.LENGTH_SHORT).show();
-            }
-        } catch (Exception e) {
-            Toast.makeText(this, "Error accessing export location. Please select it again.", Toast.LENGTH_LONG).show();
-        }
-    }
-
-    private String getLogFormattedHistory(ArrayList<Transaction> transactions) {
-        StringBuilder sb = new StringBuilder();
-        for (Transaction t : transactions) {
-            sb.append("Type: ").append(t.type).append("\n");
-            sb.append("Date: ").append(t.date).append("\n");
-            sb.append("Amount: ").append(t.amount).append("\n");
-            sb.append("Party: ").append(t.party).append("\n");
-            sb.append("Status: ").append(t.status).append("\n");
-            if (t.fee != null) {
-                sb.append("Fee: ").append(t.fee).append("\n");
-            }
-            if (t.memo != null && !t.memo.isEmpty()) {
-                sb.append("Memo: ").append(t.memo).append("\n");
-            }
-            sb.append("\n");
+            return HistoryExportFormat.CSV;
         }
-        return sb.toString();
-    }
-
-    private String getCsvFormattedHistory(ArrayList<Transaction> transactions) {
-        return "Date,Party,Amount,Memo,Type,Status,Fee\n" +
-                transactions.stream()
-                        .map(t -> t.date + "," + t.party + "," + t.amount + "," + t.memo + "," + t.type + "," + t.status + "," + t.fee)
-                        .collect(Collectors.joining("\n"));
+        return null;
     }
 
     private void setupThemeButtons() {
@@ -290,13 +251,14 @@ public class SettingsActivity extends AppCompatActivity {
         notificationsSwitch.setChecked(NotificationManager.areNotificationsEnabled(this));
         notificationsSwitch.setOnCheckedChangeListener((buttonView, isChecked) -> {
             VibrationManager.vibrate(this);
+            // The sync worker checks this flag on every run; it keeps running for history and rates.
             NotificationManager.setNotificationsEnabled(this, isChecked);
             if (isChecked) {
-                startNotificationWorker();
-            } else {
-                stopNotificationWorker();
+                SyncScheduler.start(this);
             }
         });
+        // How the background sync has been doing, so its adaptive interval can be checked on this device.
+        syncStatsText.setText(SyncScheduler.describeStats(this));
     }
 
     private void setupHapticFeedbackSwitch() {
@@ -307,15 +269,17 @@ public class SettingsActivity extends AppCompatActivity {
         });
     }
 
-    private void startNotificationWorker() {
-        Constraints constraints = new Constraints.Builder().setRequiredNetworkType(NetworkType.CONNECTED).build();
-        PeriodicWorkRequest workRequest = new PeriodicWorkRequest.Builder(TransactionNotificationWorker.class, 15, TimeUnit.MINUTES)
-                .setConstraints(constraints).build();
-        WorkManager.getInstance(this).enqueueUniquePeriodicWork(NOTIFICATION_WORK_TAG, ExistingPeriodicWorkPolicy.REPLACE, workRequest);
-    }
-
-    private void stopNotificationWorker() {
-        WorkManager.getInstance(this).cancelUniqueWork(NOTIFICATION_WORK_TAG);
+    private void setupLocalSigningSwitch() {
+        localSigningSwitch.setChecked(SubmissionMode.isLocalSigningEnabled(this));
+        localSigningSwitch.setOnCheckedChangeListener((buttonView, isChecked) -> {
+            VibrationManager.vibrate(this);
+            SubmissionMode.setLocalSigningEnabled(this, isChecked);
+        });
+        // End to end send times of both paths, so they can be compared on this device and network.
+        sendLatencyText.setText(LatencyStats.describe(this, SubmissionMode.METRIC_SEND_LOCAL) + "\n"
+                + LatencyStats.describe(this, SubmissionMode.METRIC_SEND_PROXY) + "\n"
+                + LatencyStats.describe(this, SubmissionMode.METRIC_SUBMIT_SPECULATIVE) + "\n"
+                + LatencyStats.describe(this, SubmissionMode.METRIC_SUBMIT_COLD));
     }
 
     private void setupAccountButtons() {
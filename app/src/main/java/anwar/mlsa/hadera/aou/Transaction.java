@@ -2,6 +2,9 @@ package anwar.mlsa.hadera.aou;
 
 public class Transaction {
     public String transactionId;
+    // Payer and valid start id: the SDK's 0.0.5@1700000000.000000005 on rows sent from this device,
+    // the mirror node's 0.0.5-1700000000-000000005 on synced rows.
+    public String hederaTransactionId;
     public String type;
     public String amount;
     public String party;
@@ -9,4 +12,8 @@ public class Transaction {
     public String status;
     public String memo;
     public String fee;
+    public long amountTinybars;
+    public long feeTinybars;
+    // Accounts in the hbar transfer list, fee accounts excluded; 0 on rows stored before it was kept.
+    public int transferCount;
 }
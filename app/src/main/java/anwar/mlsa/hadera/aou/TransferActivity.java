@@ -30,10 +30,14 @@ import com.google.gson.reflect.TypeToken;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 
 import anwar.mlsa.hadera.aou.databinding.TransferBinding;
+import anwar.mlsa.hadera.aou.hedera.ConfirmationPipeline;
 
 public class TransferActivity extends AppCompatActivity {
 
@@ -41,9 +45,13 @@ public class TransferActivity extends AppCompatActivity {
 
     private RequestNetwork networkReq;
     private RequestNetwork.RequestListener networkListener;
+    private LiveUpdateController liveUpdates;
 
     private HistoryAdapter historyAdapter;
     private BlogAdapter blogAdapter;
+    // The latest rows from the mirror node; pending local sends are laid over these when shown.
+    private List<Transaction> syncedRecent = new ArrayList<>();
+    private final ConfirmationPipeline.Listener confirmationListener = (hederaTransactionId, status) -> updateHistoryView(syncedRecent);
 
     private double exchangeRate = 0.0;
 
@@ -75,9 +83,16 @@ public class TransferActivity extends AppCompatActivity {
     @Override
     protected void onStart() {
         super.onStart();
+        ConfirmationPipeline.addListener(confirmationListener);
         updateUI();
     }
 
+    @Override
+    protected void onStop() {
+        super.onStop();
+        ConfirmationPipeline.removeListener(confirmationListener);
+    }
+
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         getMenuInflater().inflate(R.menu.main_menu, menu);
@@ -172,6 +187,8 @@ public class TransferActivity extends AppCompatActivity {
         binding.recyclerview2.setLayoutManager(new LinearLayoutManager(this));
         historyAdapter = new HistoryAdapter();
         binding.recyclerview2.setAdapter(historyAdapter);
+
+        liveUpdates = new LiveUpdateController(this, this, this::onLiveTransactions);
     }
 
     private void setupNetworkListener() {
@@ -235,6 +252,10 @@ public class TransferActivity extends AppCompatActivity {
         } else {
             binding.accountID.setText(accountId);
             binding.balanceTextView.setText(WalletStorage.getFormattedBalance(this));
+            if (exchangeRate == 0) {
+                exchangeRate = ExchangeRateCache.getUsdPerHbar(this);
+                updateBalanceInUSD();
+            }
             fetchBalance(accountId);
             fetchExchangeRate();
             loadRecentHistory();
@@ -269,6 +290,9 @@ public class TransferActivity extends AppCompatActivity {
             updateHistoryView(new ArrayList<>());
             return;
         }
+        List<Transaction> cached = LocalHistoryStore.getRecent(this, accountId, 3);
+        // Shown right away so a send made since the last sync is on top before the request returns.
+        updateHistoryView(historyAdapter.getItemCount() == 0 ? cached : syncedRecent);
         String url = HEDERA_API_BASE_URL + HISTORY_API_ENDPOINT + "?account.id=" + accountId + "&limit=25";
         networkReq.startRequestNetwork(RequestNetworkController.GET, url, HEDERA_HISTORY_TAG, networkListener);
     }
@@ -313,6 +337,7 @@ public class TransferActivity extends AppCompatActivity {
                 int cents = rateResponse.current_rate.cent_equivalent;
                 int hbars = rateResponse.current_rate.hbar_equivalent;
                 if (hbars > 0) {
+                    ExchangeRateCache.save(this, cents, hbars);
                     exchangeRate = (double) cents / hbars / 100; // Convert cents to dollars
                     updateBalanceInUSD();
                 }
@@ -333,17 +358,39 @@ public class TransferActivity extends AppCompatActivity {
     }
 
     private void handleHistoryApiResponse(String response) {
-        HistoryApiParser.HistoryResponse historyResponse = HistoryApiParser.parse(response, WalletStorage.getAccountId(this));
+        String accountId = WalletStorage.getAccountId(this);
+        HistoryApiParser.HistoryResponse historyResponse = HistoryApiParser.parse(response, accountId);
         ArrayList<Transaction> recentTransactions = new ArrayList<>();
         if (historyResponse != null && historyResponse.transactions != null) {
+            if (accountId != null) {
+                LocalHistoryStore.merge(this, accountId, historyResponse.transactions);
+                liveUpdates.setLatest(accountId, historyResponse.firstConsensusTimestamp);
+            }
             recentTransactions.addAll(historyResponse.transactions.subList(0, Math.min(historyResponse.transactions.size(), 3)));
         }
         updateHistoryView(recentTransactions);
     }
 
-    private void updateHistoryView(ArrayList<Transaction> transactions) {
+    private void onLiveTransactions(String accountId, List<Transaction> newTransactions) {
+        if (!accountId.equals(WalletStorage.getAccountId(this))) return;
+        LocalHistoryStore.merge(this, accountId, newTransactions);
+        ArrayList<Transaction> recentTransactions = new ArrayList<>(newTransactions);
+        Set<String> seen = new HashSet<>();
+        for (Transaction t : newTransactions) seen.add(t.transactionId);
+        for (Transaction t : syncedRecent) {
+            if (t.transactionId == null || seen.add(t.transactionId)) recentTransactions.add(t);
+        }
+        // ListAdapter diffs by transaction id, so only the new rows are inserted and bound.
+        updateHistoryView(new ArrayList<>(recentTransactions.subList(0, Math.min(recentTransactions.size(), 3))));
+        fetchBalance(accountId);
+    }
+
+    private void updateHistoryView(List<Transaction> synced) {
+        syncedRecent = synced;
+        List<Transaction> overlaid = PendingTransfers.overlay(PendingTransfers.recent(this, WalletStorage.getAccountId(this)), synced);
+        ArrayList<Transaction> transactions = new ArrayList<>(overlaid.subList(0, Math.min(overlaid.size(), 3)));
         runOnUiThread(() -> {
-            if (transactions == null || transactions.isEmpty()) {
+            if (transactions.isEmpty()) {
                 binding.emptyHistoryMessage.setVisibility(View.VISIBLE);
                 binding.recyclerview2.setVisibility(View.GONE);
             } else {
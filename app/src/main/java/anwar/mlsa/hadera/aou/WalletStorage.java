@@ -19,6 +19,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Predicate;
 
 public class WalletStorage {
 
@@ -94,6 +95,7 @@ public class WalletStorage {
             editor.remove(accountId + SUFFIX_RAW_BALANCE);
             editor.remove(accountId + SUFFIX_TRANSACTION_HISTORY);
             editor.remove(accountId + SUFFIX_HISTORY_MIGRATED);
+            LocalHistoryStore.clear(context, accountId);
             accounts.remove(index);
             saveAccounts(context, accounts);
 
@@ -195,29 +197,76 @@ public class WalletStorage {
     public static ArrayList<Transaction> getHistory(Context context) {
         String accountId = getAccountId(context);
         if (accountId == null) return new ArrayList<>();
+        return getHistory(context, accountId);
+    }
+
+    public static ArrayList<Transaction> getHistory(Context context, String accountId) {
         String json = getPrefs(context).getString(accountId + SUFFIX_TRANSACTION_HISTORY, null);
         if (json == null || json.isEmpty()) return new ArrayList<>();
         try {
             Type type = new TypeToken<ArrayList<Transaction>>() {}.getType();
-            return new Gson().fromJson(json, type);
+            ArrayList<Transaction> history = new Gson().fromJson(json, type);
+            return history != null ? history : new ArrayList<>();
         } catch (JsonSyntaxException e) {
             return new ArrayList<>();
         }
     }
 
-    public static void saveTransaction(Context context, Transaction newTransaction) {
+    public static synchronized void saveTransaction(Context context, Transaction newTransaction) {
         String accountId = getAccountId(context);
         if (accountId != null) {
-            ArrayList<Transaction> history = getHistory(context);
-            if (history == null) history = new ArrayList<>();
+            ArrayList<Transaction> history = getHistory(context, accountId);
             history.add(0, newTransaction);
             String json = new Gson().toJson(history);
             getPrefs(context).edit().putString(accountId + SUFFIX_TRANSACTION_HISTORY, json).apply();
         }
     }
 
+    /**
+     * Sets the status of the rows submitted as {@code hederaTransactionId} (several for a batch payout);
+     * returns false if there are none.
+     */
+    public static synchronized boolean updateTransactionStatus(Context context, String accountId, String hederaTransactionId, String status) {
+        ArrayList<Transaction> history = getHistory(context, accountId);
+        boolean found = false;
+        for (Transaction t : history) {
+            if (hederaTransactionId.equals(t.hederaTransactionId)) {
+                t.status = status;
+                found = true;
+            }
+        }
+        if (found) {
+            getPrefs(context).edit().putString(accountId + SUFFIX_TRANSACTION_HISTORY, new Gson().toJson(history)).apply();
+        }
+        return found;
+    }
+
+    /** Runs {@code edit} on the stored rows under the history lock and saves them in one write if it returns true. */
+    public static synchronized void editHistory(Context context, String accountId, Predicate<ArrayList<Transaction>> edit) {
+        ArrayList<Transaction> history = getHistory(context, accountId);
+        if (edit.test(history)) {
+            getPrefs(context).edit().putString(accountId + SUFFIX_TRANSACTION_HISTORY, new Gson().toJson(history)).apply();
+        }
+    }
+
+    /** Points rows at the new id after a transfer had to be signed again. */
+    public static synchronized void replaceHederaTransactionId(Context context, String accountId, String oldId, String newId) {
+        ArrayList<Transaction> history = getHistory(context, accountId);
+        boolean found = false;
+        for (Transaction t : history) {
+            if (oldId.equals(t.hederaTransactionId)) {
+                t.hederaTransactionId = newId;
+                found = true;
+            }
+        }
+        if (found) {
+            getPrefs(context).edit().putString(accountId + SUFFIX_TRANSACTION_HISTORY, new Gson().toJson(history)).apply();
+        }
+    }
+
     public static void logout(Context context) {
         getPrefs(context).edit().clear().apply();
+        LocalHistoryStore.clearAll(context);
     }
 
     // --- Data Classes ---
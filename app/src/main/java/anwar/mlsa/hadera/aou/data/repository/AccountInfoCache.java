@@ -0,0 +1,64 @@
+package anwar.mlsa.hadera.aou.data.repository;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Recently looked-up accounts, so a recipient that is typed again, picked from contacts or scanned
+ * doesn't cost another mirror node round trip. Accounts that exist are kept much longer than misses:
+ * an existing account is rarely deleted, but a missing id can be created at any moment.
+ */
+final class AccountInfoCache {
+
+    static final class AccountInfo {
+        final boolean exists;
+        final boolean deleted;
+
+        AccountInfo(boolean exists, boolean deleted) {
+            this.exists = exists;
+            this.deleted = deleted;
+        }
+
+        boolean canReceive() {
+            return exists && !deleted;
+        }
+    }
+
+    private static final int MAX_ENTRIES = 256;
+    private static final long FOUND_TTL_MS = 10 * 60_000;
+    private static final long MISSING_TTL_MS = 30_000;
+
+    private static final class Entry {
+        final AccountInfo info;
+        final long expiresAt;
+
+        Entry(AccountInfo info, long expiresAt) {
+            this.info = info;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    // Access order, so the least recently used account is the one evicted.
+    private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    /** The cached lookup for {@code accountId}, or null if there is none or it has expired. */
+    synchronized AccountInfo get(String accountId) {
+        Entry entry = entries.get(accountId);
+        if (entry == null) return null;
+        if (entry.expiresAt <= System.currentTimeMillis()) {
+            entries.remove(accountId);
+            return null;
+        }
+        return entry.info;
+    }
+
+    synchronized void put(String accountId, AccountInfo info) {
+        long ttl = info.exists ? FOUND_TTL_MS : MISSING_TTL_MS;
+        entries.put(accountId, new Entry(info, System.currentTimeMillis() + ttl));
+    }
+}
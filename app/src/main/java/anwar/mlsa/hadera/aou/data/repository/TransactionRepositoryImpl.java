@@ -1,45 +1,86 @@
 package anwar.mlsa.hadera.aou.data.repository;
 
 import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+
 import com.google.gson.Gson;
 import com.google.gson.JsonSyntaxException;
 import com.google.gson.reflect.TypeToken;
 
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.Consumer;
 
 import anwar.mlsa.hadera.aou.ApiConfig;
+import anwar.mlsa.hadera.aou.ConnectivityUtil;
 import anwar.mlsa.hadera.aou.HistoryApiParser;
+import anwar.mlsa.hadera.aou.LatencyStats;
 import anwar.mlsa.hadera.aou.RequestNetwork;
 import anwar.mlsa.hadera.aou.RequestNetworkController;
 import anwar.mlsa.hadera.aou.WalletStorage;
 import anwar.mlsa.hadera.aou.domain.repository.TransactionRepository;
 import anwar.mlsa.hadera.aou.domain.util.Result;
+import anwar.mlsa.hadera.aou.hedera.LocalTransferSigner;
+import anwar.mlsa.hadera.aou.hedera.SubmissionMode;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import timber.log.Timber;
 
 public class TransactionRepositoryImpl implements TransactionRepository {
 
     private static final String VERIFY_TAG = "VERIFY_ACCOUNT";
+    private static final String PREVERIFY_TAG = "PREVERIFY_ACCOUNT";
     private static final String SEND_TX_TAG = "SEND_TRANSACTION";
     private static final String BALANCE_TAG = "GET_BALANCE";
     private static final String HISTORY_TAG = "GET_HISTORY";
     private static final String EXCHANGE_RATE_TAG = "GET_EXCHANGE_RATE";
     private static final String HEDERA_API_BASE_URL = "https://testnet.mirrornode.hedera.com";
+    // One send at a time; a second tap must not race the first for the same sender's funds.
+    private static final ExecutorService signingExecutor = Executors.newSingleThreadExecutor();
+    // Shared by every screen's repository, so lookups made on one screen are reused on the next.
+    private static final AccountInfoCache accountCache = new AccountInfoCache();
+    private static final Map<String, AccountLookup> accountLookups = new HashMap<>();
 
     private final RequestNetwork networkReq;
     private final Context context;
     private final Gson gson = new Gson();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
 
     private static class ExchangeRateResponse {
         Rate current_rate;
     }
 
+    private static class MirrorAccount {
+        String account;
+        boolean deleted;
+    }
+
     private static class Rate {
         int cent_equivalent;
         int hbar_equivalent;
     }
 
+    // One request for an account and everyone waiting on it. Guarded by accountLookups.
+    private static class AccountLookup {
+        Call call;
+        // From verifyAccount; cancelVerifications answers and drops them.
+        final List<Consumer<Result<Boolean>>> verifying = new ArrayList<>();
+        final List<Consumer<Result<Boolean>>> preverifying = new ArrayList<>();
+    }
+
     public TransactionRepositoryImpl(Context context) {
         this.context = context.getApplicationContext();
         this.networkReq = new RequestNetwork(this.context);
@@ -47,21 +88,117 @@ public class TransactionRepositoryImpl implements TransactionRepository {
 
     @Override
     public void verifyAccount(String accountId, Consumer<Result<Boolean>> callback) {
+        AccountInfoCache.AccountInfo cached = accountCache.get(accountId);
+        if (cached != null) {
+            callback.accept(new Result.Success<>(cached.canReceive()));
+            return;
+        }
         callback.accept(new Result.Loading<>());
-        String url = HEDERA_API_BASE_URL + "/api/v1/balances?account.id=" + accountId;
-        networkReq.startRequestNetwork(RequestNetworkController.GET, url, VERIFY_TAG, new RequestNetwork.RequestListener() {
-            @Override
-            public void onResponse(String tag, String response, HashMap<String, Object> responseHeaders) {
-                try {
-                    Map<String, Object> map = gson.fromJson(response, new TypeToken<HashMap<String, Object>>() {}.getType());
-                    callback.accept(new Result.Success<>(map.containsKey("balances")));
-                } catch (Exception e) {
-                    callback.accept(new Result.Error<>("Failed to parse verification response."));
+        lookupAccount(accountId, VERIFY_TAG, callback);
+    }
+
+    @Override
+    public void cancelVerifications() {
+        List<Consumer<Result<Boolean>>> cancelled = new ArrayList<>();
+        List<Call> calls = new ArrayList<>();
+        synchronized (accountLookups) {
+            Iterator<AccountLookup> it = accountLookups.values().iterator();
+            while (it.hasNext()) {
+                AccountLookup lookup = it.next();
+                cancelled.addAll(lookup.verifying);
+                lookup.verifying.clear();
+                // A pre-verification still wants the answer; the request is only dropped once nobody does.
+                if (lookup.preverifying.isEmpty()) {
+                    it.remove();
+                    calls.add(lookup.call);
                 }
             }
+        }
+        for (Call call : calls) {
+            call.cancel();
+        }
+        deliver(cancelled, new Result.Error<>("Canceled"));
+    }
+
+    @Override
+    public void preverifyAccounts(Collection<String> accountIds) {
+        for (String accountId : accountIds) {
+            if (accountCache.get(accountId) == null) {
+                lookupAccount(accountId, PREVERIFY_TAG, result -> { });
+            }
+        }
+    }
+
+    // Concurrent lookups of the same account share one request; only definite answers are cached.
+    private void lookupAccount(String accountId, String tag, Consumer<Result<Boolean>> callback) {
+        if (!ConnectivityUtil.isConnected(context)) {
+            callback.accept(new Result.Error<>("No internet connection"));
+            return;
+        }
+        AccountLookup lookup;
+        synchronized (accountLookups) {
+            lookup = accountLookups.get(accountId);
+            boolean joined = lookup != null;
+            if (!joined) {
+                lookup = new AccountLookup();
+                Request request = new Request.Builder()
+                        .url(HEDERA_API_BASE_URL + "/api/v1/accounts/" + accountId)
+                        .tag(tag)
+                        .build();
+                lookup.call = RequestNetworkController.getInstance().getClient().newCall(request);
+                accountLookups.put(accountId, lookup);
+            }
+            (VERIFY_TAG.equals(tag) ? lookup.verifying : lookup.preverifying).add(callback);
+            if (joined) return;
+        }
+        final AccountLookup started = lookup;
+        started.call.enqueue(new Callback() {
             @Override
-            public void onErrorResponse(String tag, String message) {
-                callback.accept(new Result.Error<>(message));
+            public void onFailure(Call call, IOException e) {
+                finishLookup(accountId, started, new Result.Error<>(e.getMessage()));
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (ResponseBody body = response.body()) {
+                    AccountInfoCache.AccountInfo info;
+                    if (response.code() == HttpURLConnection.HTTP_NOT_FOUND) {
+                        info = new AccountInfoCache.AccountInfo(false, false);
+                    } else if (response.isSuccessful() && body != null) {
+                        MirrorAccount account = gson.fromJson(body.string(), MirrorAccount.class);
+                        info = new AccountInfoCache.AccountInfo(account != null && account.account != null,
+                                account != null && account.deleted);
+                    } else {
+                        finishLookup(accountId, started, new Result.Error<>("Verification failed with code " + response.code()));
+                        return;
+                    }
+                    accountCache.put(accountId, info);
+                    finishLookup(accountId, started, new Result.Success<>(info.canReceive()));
+                } catch (IOException | JsonSyntaxException e) {
+                    finishLookup(accountId, started, new Result.Error<>("Failed to parse verification response."));
+                }
+            }
+        });
+    }
+
+    // A cancelled lookup has already answered its waiters and left the map, so this delivers nothing for it.
+    private void finishLookup(String accountId, AccountLookup lookup, Result<Boolean> result) {
+        List<Consumer<Result<Boolean>>> waiting = new ArrayList<>();
+        synchronized (accountLookups) {
+            accountLookups.remove(accountId, lookup);
+            waiting.addAll(lookup.verifying);
+            waiting.addAll(lookup.preverifying);
+            lookup.verifying.clear();
+            lookup.preverifying.clear();
+        }
+        deliver(waiting, result);
+    }
+
+    private void deliver(List<Consumer<Result<Boolean>>> callbacks, Result<Boolean> result) {
+        if (callbacks.isEmpty()) return;
+        mainHandler.post(() -> {
+            for (Consumer<Result<Boolean>> callback : callbacks) {
+                callback.accept(result);
             }
         });
     }
@@ -77,6 +214,12 @@ public class TransactionRepositoryImpl implements TransactionRepository {
             return;
         }
 
+        final long start = System.currentTimeMillis();
+        if (SubmissionMode.isLocalSigningEnabled(context)) {
+            sendSignedLocally(senderAccountId, senderPrivateKey, recipientId, amount, memo, start, callback);
+            return;
+        }
+
         HashMap<String, Object> body = ApiConfig.getTransactionBody(senderAccountId, senderPrivateKey, amount, recipientId, memo);
         networkReq.setParams(body, RequestNetworkController.REQUEST_BODY);
         networkReq.startRequestNetwork(RequestNetworkController.POST, ApiConfig.BASE_URL + ApiConfig.TRANSACTION_ENDPOINT, SEND_TX_TAG, new RequestNetwork.RequestListener() {
@@ -85,6 +228,7 @@ public class TransactionRepositoryImpl implements TransactionRepository {
                 try {
                     Map<String, Object> map = gson.fromJson(response, new TypeToken<HashMap<String, Object>>() {}.getType());
                     if (map != null && "Transfer Success".equals(map.get("status"))) {
+                        LatencyStats.record(context, SubmissionMode.METRIC_SEND_PROXY, System.currentTimeMillis() - start);
                         callback.accept(new Result.Success<>(map));
                     } else {
                         String error = (map != null && map.get("error") != null) ? map.get("error").toString() : "Unknown transaction error";
@@ -101,6 +245,21 @@ public class TransactionRepositoryImpl implements TransactionRepository {
         });
     }
 
+    private void sendSignedLocally(String senderAccountId, String senderPrivateKey, String recipientId, double amount,
+                                   String memo, long start, Consumer<Result<Map<String, Object>>> callback) {
+        signingExecutor.execute(() -> {
+            try {
+                Map<String, Object> map = LocalTransferSigner.send(context, senderAccountId, senderPrivateKey, recipientId, amount, memo);
+                LatencyStats.record(context, SubmissionMode.METRIC_SEND_LOCAL, System.currentTimeMillis() - start);
+                mainHandler.post(() -> callback.accept(new Result.Success<>(map)));
+            } catch (Exception e) {
+                Timber.w(e, "On-device transfer failed");
+                String message = e.getMessage() != null ? e.getMessage() : "Unknown transaction error";
+                mainHandler.post(() -> callback.accept(new Result.Error<>(message)));
+            }
+        });
+    }
+
     @Override
     public void getBalance(String accountId, Consumer<Result<Map<String, Object>>> callback) {
         callback.accept(new Result.Loading<>());
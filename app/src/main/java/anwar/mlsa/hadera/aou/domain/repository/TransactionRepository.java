@@ -1,5 +1,6 @@
 package anwar.mlsa.hadera.aou.domain.repository;
 
+import java.util.Collection;
 import java.util.Map;
 import java.util.function.Consumer;
 
@@ -10,6 +11,12 @@ public interface TransactionRepository {
 
     void verifyAccount(String accountId, Consumer<Result<Boolean>> callback);
 
+    /** Cancels verifications still in flight; their callbacks get an error. Pre-verifications are kept. */
+    void cancelVerifications();
+
+    /** Looks up accounts in the background so later verifications of them are answered from cache. */
+    void preverifyAccounts(Collection<String> accountIds);
+
     void sendTransaction(
         String recipientId,
         double amount,
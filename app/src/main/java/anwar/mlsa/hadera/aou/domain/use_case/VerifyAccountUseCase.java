@@ -1,13 +1,16 @@
 package anwar.mlsa.hadera.aou.domain.use_case;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.function.Consumer;
 
 import anwar.mlsa.hadera.aou.domain.repository.TransactionRepository;
+import anwar.mlsa.hadera.aou.domain.util.EntityIdCodec;
 import anwar.mlsa.hadera.aou.domain.util.Result;
 
 public class VerifyAccountUseCase {
 
-    private static final String ACCOUNT_ID_REGEX = "^0\\.0\\.[0-9]+$";
     private final TransactionRepository repository;
 
     public VerifyAccountUseCase(TransactionRepository repository) {
@@ -15,10 +18,35 @@ public class VerifyAccountUseCase {
     }
 
     public void execute(String accountId, Consumer<Result<Boolean>> callback) {
-        if (accountId == null || !accountId.matches(ACCOUNT_ID_REGEX)) {
-            callback.accept(new Result.Error<>("Invalid Account ID format."));
+        String error = formatError(accountId);
+        if (error != null) {
+            callback.accept(new Result.Error<>(error));
             return;
         }
-        repository.verifyAccount(accountId, callback);
+        repository.verifyAccount(EntityIdCodec.normalize(accountId), callback);
+    }
+
+    public void cancelPending() {
+        repository.cancelVerifications();
+    }
+
+    public void preverify(Collection<String> accountIds) {
+        List<String> valid = new ArrayList<>();
+        for (String accountId : accountIds) {
+            if (formatError(accountId) == null) valid.add(EntityIdCodec.normalize(accountId));
+        }
+        if (!valid.isEmpty()) repository.preverifyAccounts(valid);
+    }
+
+    /** Why {@code accountId} can't be sent to, judged offline, or null if it can be looked up. */
+    public static String formatError(String accountId) {
+        switch (EntityIdCodec.check(accountId)) {
+            case EntityIdCodec.BAD_CHECKSUM:
+                return "Checksum doesn't match; check the Account ID for typos.";
+            case EntityIdCodec.VALID:
+                return EntityIdCodec.isEvmAddress(accountId) ? "Enter the 0.0.X Account ID instead of an EVM address." : null;
+            default:
+                return "Account ID must be in the format 0.0.X";
+        }
     }
 }
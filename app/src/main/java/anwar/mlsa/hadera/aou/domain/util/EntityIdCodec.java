@@ -0,0 +1,149 @@
+package anwar.mlsa.hadera.aou.domain.util;
+
+/**
+ * Validates Hedera entity IDs without a network round trip. Accepts {@code shard.realm.num},
+ * {@code shard.realm.num-abcde} with a HIP-15 checksum, and EVM addresses ({@code 0x} plus 40 hex
+ * digits, or {@code shard.realm.<40 hex>}). Checking doesn't allocate, so it can run on every
+ * keystroke.
+ * <p>
+ * Components must be written without leading zeros, as the checksum is defined over the canonical
+ * form; {@code 0.0.0123} is rejected rather than silently meaning {@code 0.0.123}.
+ */
+public final class EntityIdCodec {
+
+    public static final int VALID = 0;
+    public static final int MALFORMED = 1;
+    public static final int BAD_CHECKSUM = 2;
+
+    // HIP-15 ledger ids. The app only talks to testnet.
+    public static final int LEDGER_MAINNET = 0;
+    public static final int LEDGER_TESTNET = 1;
+    public static final int LEDGER_PREVIEWNET = 2;
+
+    private static final int CHECKSUM_LENGTH = 5;
+    private static final int EVM_ADDRESS_LENGTH = 40;
+    // Longest component that can't overflow a long.
+    private static final int MAX_NUMBER_DIGITS = 18;
+
+    private static final int P3 = 26 * 26 * 26;
+    private static final int P5 = 26 * 26 * 26 * 26 * 26;
+    private static final int M = 1_000_003;
+    private static final int W = 31;
+
+    private EntityIdCodec() {
+    }
+
+    public static int check(CharSequence id) {
+        return check(id, LEDGER_TESTNET);
+    }
+
+    public static int check(CharSequence id, int ledgerId) {
+        if (id == null) return MALFORMED;
+        int length = id.length();
+        if (isHexRun(id, evmStart(id), length)) return VALID;
+
+        int realmStart = numberEnd(id, 0) + 1;
+        if (realmStart == 0 || realmStart >= length || id.charAt(realmStart - 1) != '.') return MALFORMED;
+        int numStart = numberEnd(id, realmStart) + 1;
+        if (numStart == 0 || numStart >= length || id.charAt(numStart - 1) != '.') return MALFORMED;
+        if (isHexRun(id, numStart, length)) return VALID;
+
+        int numEnd = numberEnd(id, numStart);
+        if (numEnd < 0) return MALFORMED;
+        if (numEnd == length) return VALID;
+        if (id.charAt(numEnd) != '-' || length - numEnd - 1 != CHECKSUM_LENGTH) return MALFORMED;
+
+        long value = checksumValue(id, numEnd, ledgerId);
+        for (int i = length - 1; i > numEnd; i--) {
+            if (Character.toLowerCase(id.charAt(i)) != (char) ('a' + value % 26)) return BAD_CHECKSUM;
+            value /= 26;
+        }
+        return VALID;
+    }
+
+    public static boolean isValid(CharSequence id) {
+        return check(id) == VALID;
+    }
+
+    /** True for the EVM address forms; these name an alias, not an account number. */
+    public static boolean isEvmAddress(CharSequence id) {
+        if (id == null || check(id) != VALID) return false;
+        int length = id.length();
+        return length >= EVM_ADDRESS_LENGTH && isHexRun(id, length - EVM_ADDRESS_LENGTH, length);
+    }
+
+    /** A valid {@code shard.realm.num} id, with or without checksum. */
+    public static boolean isAccountNum(CharSequence id) {
+        return check(id) == VALID && !isEvmAddress(id);
+    }
+
+    /** {@code id} without its checksum, or null if it isn't valid. EVM addresses are returned as given. */
+    public static String normalize(String id) {
+        if (check(id) != VALID) return null;
+        int dash = id.indexOf('-');
+        return dash < 0 ? id : id.substring(0, dash);
+    }
+
+    public static String checksum(long shard, long realm, long num) {
+        return checksum(shard + "." + realm + "." + num, LEDGER_TESTNET);
+    }
+
+    static String checksum(String address, int ledgerId) {
+        long value = checksumValue(address, address.length(), ledgerId);
+        char[] letters = new char[CHECKSUM_LENGTH];
+        for (int i = CHECKSUM_LENGTH - 1; i >= 0; i--) {
+            letters[i] = (char) ('a' + value % 26);
+            value /= 26;
+        }
+        return new String(letters);
+    }
+
+    // HIP-15, over the first {@code end} characters of the canonical "shard.realm.num".
+    private static long checksumValue(CharSequence address, int end, int ledgerId) {
+        int s = 0;
+        int s0 = 0;
+        int s1 = 0;
+        for (int i = 0; i < end; i++) {
+            char c = address.charAt(i);
+            int d = c == '.' ? 10 : c - '0';
+            s = (W * s + d) % P3;
+            if (i % 2 == 0) {
+                s0 = (s0 + d) % 11;
+            } else {
+                s1 = (s1 + d) % 11;
+            }
+        }
+        // The ledger id byte followed by six zero bytes.
+        long sh = (ledgerId & 0xff) % P5;
+        for (int i = 0; i < 6; i++) {
+            sh = (W * sh) % P5;
+        }
+        long c = ((((long) (end % 5) * 11 + s0) * 11 + s1) * P3 + s + sh) % P5;
+        return (c * M) % P5;
+    }
+
+    // Index after the decimal number starting at {@code from}, or -1 if there is none or it isn't canonical.
+    private static int numberEnd(CharSequence id, int from) {
+        int i = from;
+        while (i < id.length() && id.charAt(i) >= '0' && id.charAt(i) <= '9') {
+            i++;
+        }
+        int digits = i - from;
+        if (digits == 0 || digits > MAX_NUMBER_DIGITS || (digits > 1 && id.charAt(from) == '0')) return -1;
+        return i;
+    }
+
+    private static int evmStart(CharSequence id) {
+        return id.length() > 2 && id.charAt(0) == '0' && (id.charAt(1) == 'x' || id.charAt(1) == 'X') ? 2 : 0;
+    }
+
+    private static boolean isHexRun(CharSequence id, int from, int to) {
+        if (to - from != EVM_ADDRESS_LENGTH) return false;
+        for (int i = from; i < to; i++) {
+            char c = id.charAt(i);
+            boolean hex = (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+            if (!hex) return false;
+        }
+        return true;
+    }
+}
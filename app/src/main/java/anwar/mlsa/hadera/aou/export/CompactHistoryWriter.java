@@ -0,0 +1,192 @@
+package anwar.mlsa.hadera.aou.export;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import anwar.mlsa.hadera.aou.ConsensusTimestamps;
+import anwar.mlsa.hadera.aou.Transaction;
+
+/**
+ * Binary columnar history format. The file starts with {@link #MAGIC} and a version byte, followed
+ * by self-contained blocks, one per flush (at most {@link #MAX_BLOCK_ROWS} rows each):
+ * <pre>
+ * varint rows
+ * varint dictionarySize, then per entry: varint length + UTF-8 bytes (parties and statuses)
+ * rows x zigzag varint   consensus timestamp in nanos, delta to the previous row of the block
+ * rows x byte            flags (bit 0 sent, bit 1 has fee)
+ * rows x zigzag varint   amount in tinybars
+ * rows x varint          fee in tinybars, only for rows with the fee flag
+ * rows x varint          party dictionary index
+ * rows x varint          status dictionary index
+ * rows x (varint length + UTF-8 bytes)  memo
+ * </pre>
+ * Formatted dates and amounts are not stored; {@link HistoryExportReader} rebuilds them.
+ */
+public class CompactHistoryWriter extends HistoryExportWriter {
+
+    static final byte[] MAGIC = {'H', 'D', 'R', 'C'};
+    static final int VERSION = 1;
+    static final int MAX_BLOCK_ROWS = 4096;
+
+    static final int FLAG_SENT = 1;
+    static final int FLAG_HAS_FEE = 1 << 1;
+
+    private final OutputStream target;
+    private final BlockBuffer block = new BlockBuffer();
+
+    private final long[] timestamps = new long[MAX_BLOCK_ROWS];
+    private final byte[] flags = new byte[MAX_BLOCK_ROWS];
+    private final long[] amounts = new long[MAX_BLOCK_ROWS];
+    private final long[] fees = new long[MAX_BLOCK_ROWS];
+    private final int[] parties = new int[MAX_BLOCK_ROWS];
+    private final int[] statuses = new int[MAX_BLOCK_ROWS];
+    private final String[] memos = new String[MAX_BLOCK_ROWS];
+    private final HashMap<String, Integer> dictionaryIndex = new HashMap<>();
+    private final ArrayList<String> dictionary = new ArrayList<>();
+    private int pending = 0;
+
+    CompactHistoryWriter(OutputStream outputStream) {
+        this.target = new BufferedOutputStream(outputStream, BUFFER_SIZE);
+    }
+
+    @Override
+    public void begin() throws IOException {
+        target.write(MAGIC);
+        target.write(VERSION);
+    }
+
+    @Override
+    protected void writeRow(Transaction t, int index) throws IOException {
+        if (pending == MAX_BLOCK_ROWS) {
+            writeBlock();
+        }
+        boolean sent = "Sent".equals(t.type);
+        int rowFlags = sent ? FLAG_SENT : 0;
+        if (t.fee != null) rowFlags |= FLAG_HAS_FEE;
+        timestamps[pending] = ConsensusTimestamps.toNanos(t.transactionId);
+        flags[pending] = (byte) rowFlags;
+        amounts[pending] = t.amountTinybars;
+        fees[pending] = t.feeTinybars;
+        parties[pending] = intern(t.party);
+        statuses[pending] = intern(t.status);
+        memos[pending] = t.memo;
+        pending++;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writeBlock();
+        target.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        target.close();
+    }
+
+    private int intern(String value) {
+        String key = value != null ? value : "";
+        Integer index = dictionaryIndex.get(key);
+        if (index == null) {
+            index = dictionary.size();
+            dictionary.add(key);
+            dictionaryIndex.put(key, index);
+        }
+        return index;
+    }
+
+    private void writeBlock() throws IOException {
+        if (pending == 0) return;
+        block.reset();
+        block.writeVarint(pending);
+        block.writeVarint(dictionary.size());
+        for (String entry : dictionary) {
+            block.writeString(entry);
+        }
+        long previous = 0;
+        for (int i = 0; i < pending; i++) {
+            block.writeVarint(zigzag(timestamps[i] - previous));
+            previous = timestamps[i];
+        }
+        for (int i = 0; i < pending; i++) {
+            block.write(flags[i]);
+        }
+        for (int i = 0; i < pending; i++) {
+            block.writeVarint(zigzag(amounts[i]));
+        }
+        for (int i = 0; i < pending; i++) {
+            if ((flags[i] & FLAG_HAS_FEE) != 0) block.writeVarint(fees[i]);
+        }
+        for (int i = 0; i < pending; i++) {
+            block.writeVarint(parties[i]);
+        }
+        for (int i = 0; i < pending; i++) {
+            block.writeVarint(statuses[i]);
+        }
+        for (int i = 0; i < pending; i++) {
+            block.writeString(memos[i]);
+            memos[i] = null;
+        }
+        block.writeTo(target);
+        pending = 0;
+        dictionary.clear();
+        dictionaryIndex.clear();
+    }
+
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    /** Growable byte buffer reused across blocks so encoding doesn't allocate per row. */
+    private static final class BlockBuffer {
+        private byte[] bytes = new byte[BUFFER_SIZE];
+        private int size;
+
+        void reset() {
+            size = 0;
+        }
+
+        void write(int b) {
+            ensureCapacity(1);
+            bytes[size++] = (byte) b;
+        }
+
+        void writeVarint(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0) {
+                bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        void writeString(String value) {
+            if (value == null || value.isEmpty()) {
+                writeVarint(0);
+                return;
+            }
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(utf8.length);
+            ensureCapacity(utf8.length);
+            System.arraycopy(utf8, 0, bytes, size, utf8.length);
+            size += utf8.length;
+        }
+
+        void writeTo(OutputStream out) throws IOException {
+            out.write(bytes, 0, size);
+        }
+
+        private void ensureCapacity(int extra) {
+            if (size + extra > bytes.length) {
+                byte[] grown = new byte[Math.max(bytes.length * 2, size + extra)];
+                System.arraycopy(bytes, 0, grown, 0, size);
+                bytes = grown;
+            }
+        }
+    }
+}
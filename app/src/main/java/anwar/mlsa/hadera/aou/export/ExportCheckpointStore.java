@@ -0,0 +1,67 @@
+package anwar.mlsa.hadera.aou.export;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+
+public class ExportCheckpointStore {
+
+    private static final String PREFS_NAME = "ExportCheckpoints";
+    private static final String CURSOR_PREFS_NAME = "ExportCursors";
+
+    public static class Checkpoint {
+        public String fileUri;
+        public String nextUrl;
+        public boolean pagesStarted;
+        public long bytesWritten;
+        public int rowsWritten;
+        public boolean append;
+        public String lastTimestamp;
+        public long appendBaseBytes;
+    }
+
+    private static SharedPreferences getPrefs(Context context) {
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    public static Checkpoint load(Context context, String exportName) {
+        String json = getPrefs(context).getString(exportName, null);
+        if (json == null) return null;
+        try {
+            return new Gson().fromJson(json, Checkpoint.class);
+        } catch (JsonSyntaxException e) {
+            return null;
+        }
+    }
+
+    // Committed synchronously: a checkpoint only helps if it survives the process being killed right after.
+    public static void save(Context context, String exportName, Checkpoint checkpoint) {
+        getPrefs(context).edit().putString(exportName, new Gson().toJson(checkpoint)).commit();
+    }
+
+    public static void clear(Context context, String exportName) {
+        getPrefs(context).edit().remove(exportName).apply();
+    }
+
+    private static String cursorKey(String accountId, String fileUri) {
+        return accountId + "|" + fileUri;
+    }
+
+    /** Consensus timestamp of the newest transaction already in the given export file, or null. */
+    public static String getLastExportedTimestamp(Context context, String accountId, String fileUri) {
+        return context.getSharedPreferences(CURSOR_PREFS_NAME, Context.MODE_PRIVATE)
+                .getString(cursorKey(accountId, fileUri), null);
+    }
+
+    public static void setLastExportedTimestamp(Context context, String accountId, String fileUri, String timestamp) {
+        SharedPreferences.Editor editor = context.getSharedPreferences(CURSOR_PREFS_NAME, Context.MODE_PRIVATE).edit();
+        if (timestamp == null) {
+            editor.remove(cursorKey(accountId, fileUri));
+        } else {
+            editor.putString(cursorKey(accountId, fileUri), timestamp);
+        }
+        editor.commit();
+    }
+}
@@ -0,0 +1,27 @@
+package anwar.mlsa.hadera.aou.export;
+
+public enum HistoryExportFormat {
+    CSV("csv", "text/csv"),
+    JSON("json", "application/json"),
+    NDJSON("ndjson", "application/x-ndjson"),
+    NDJSON_GZIP("ndjson.gz", "application/gzip"),
+    COMPACT("hdrc", "application/octet-stream"),
+    LOG("log", "text/plain");
+
+    public final String extension;
+    public final String mimeType;
+
+    HistoryExportFormat(String extension, String mimeType) {
+        this.extension = extension;
+        this.mimeType = mimeType;
+    }
+
+    // A JSON array can't grow without rewriting its closing bracket; every other format can be appended to.
+    public boolean supportsAppend() {
+        return this != JSON;
+    }
+
+    public String fileName(String baseName) {
+        return baseName + "." + extension;
+    }
+}
@@ -0,0 +1,216 @@
+package anwar.mlsa.hadera.aou.export;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+import anwar.mlsa.hadera.aou.ConsensusTimestamps;
+import anwar.mlsa.hadera.aou.HistoryApiParser;
+import anwar.mlsa.hadera.aou.Transaction;
+
+/**
+ * Reads back files written by the NDJSON, gzip NDJSON and compact exporters one transaction at a
+ * time. {@link #read()} returns {@code null} once the file is exhausted.
+ */
+public abstract class HistoryExportReader implements Closeable {
+
+    public static HistoryExportReader open(HistoryExportFormat format, InputStream inputStream) throws IOException {
+        switch (format) {
+            case NDJSON:
+                return new NdjsonReader(inputStream);
+            case NDJSON_GZIP:
+                return new NdjsonReader(new GZIPInputStream(inputStream, HistoryExportWriter.BUFFER_SIZE));
+            case COMPACT:
+                return new CompactReader(inputStream);
+            default:
+                throw new IllegalArgumentException("Reading " + format + " exports is not supported");
+        }
+    }
+
+    public abstract Transaction read() throws IOException;
+
+    static class NdjsonReader extends HistoryExportReader {
+        private final Gson gson = new Gson();
+        private final BufferedReader in;
+
+        NdjsonReader(InputStream inputStream) {
+            this.in = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8), HistoryExportWriter.BUFFER_SIZE);
+        }
+
+        @Override
+        public Transaction read() throws IOException {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.isEmpty()) continue;
+                try {
+                    return gson.fromJson(line, Transaction.class);
+                } catch (JsonSyntaxException e) {
+                    throw new IOException("Malformed export row", e);
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    static class CompactReader extends HistoryExportReader {
+        private final DataInputStream in;
+
+        private long[] timestamps = new long[0];
+        private byte[] flags = new byte[0];
+        private long[] amounts = new long[0];
+        private long[] fees = new long[0];
+        private int[] parties = new int[0];
+        private int[] statuses = new int[0];
+        private String[] memos = new String[0];
+        private String[] dictionary = new String[0];
+        private int blockRows = 0;
+        private int position = 0;
+
+        CompactReader(InputStream inputStream) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(inputStream, HistoryExportWriter.BUFFER_SIZE));
+            byte[] magic = new byte[CompactHistoryWriter.MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(magic, CompactHistoryWriter.MAGIC)) {
+                throw new IOException("Not a compact history export");
+            }
+            int version = in.readUnsignedByte();
+            if (version != CompactHistoryWriter.VERSION) {
+                throw new IOException("Unsupported compact export version " + version);
+            }
+        }
+
+        @Override
+        public Transaction read() throws IOException {
+            if (position == blockRows && !readBlock()) {
+                return null;
+            }
+            int i = position++;
+            boolean sent = (flags[i] & CompactHistoryWriter.FLAG_SENT) != 0;
+            Transaction t = new Transaction();
+            t.transactionId = ConsensusTimestamps.fromNanos(timestamps[i]);
+            t.type = sent ? "Sent" : "Received";
+            t.amountTinybars = amounts[i];
+            t.amount = HistoryApiParser.formatAmount(amounts[i], sent);
+            if ((flags[i] & CompactHistoryWriter.FLAG_HAS_FEE) != 0) {
+                t.feeTinybars = fees[i];
+                t.fee = HistoryApiParser.formatFee(fees[i]);
+            }
+            t.party = dictionary[parties[i]];
+            t.status = dictionary[statuses[i]];
+            t.date = HistoryApiParser.formatHederaTimestamp(t.transactionId);
+            t.memo = memos[i];
+            return t;
+        }
+
+        private boolean readBlock() throws IOException {
+            int first = in.read();
+            if (first < 0) return false;
+            int rows = (int) readVarint(first);
+            ensureCapacity(rows);
+            int dictionarySize = (int) readVarint();
+            dictionary = new String[dictionarySize];
+            for (int i = 0; i < dictionarySize; i++) {
+                dictionary[i] = readString();
+            }
+            long previous = 0;
+            for (int i = 0; i < rows; i++) {
+                previous += unzigzag(readVarint());
+                timestamps[i] = previous;
+            }
+            in.readFully(flags, 0, rows);
+            for (int i = 0; i < rows; i++) {
+                amounts[i] = unzigzag(readVarint());
+            }
+            for (int i = 0; i < rows; i++) {
+                fees[i] = (flags[i] & CompactHistoryWriter.FLAG_HAS_FEE) != 0 ? readVarint() : 0;
+            }
+            for (int i = 0; i < rows; i++) {
+                parties[i] = checkIndex(readVarint());
+            }
+            for (int i = 0; i < rows; i++) {
+                statuses[i] = checkIndex(readVarint());
+            }
+            for (int i = 0; i < rows; i++) {
+                memos[i] = readString();
+            }
+            blockRows = rows;
+            position = 0;
+            return rows > 0 || readBlock();
+        }
+
+        private void ensureCapacity(int rows) throws IOException {
+            if (rows < 0 || rows > CompactHistoryWriter.MAX_BLOCK_ROWS) {
+                throw new IOException("Corrupt block header");
+            }
+            if (timestamps.length < rows) {
+                timestamps = new long[rows];
+                flags = new byte[rows];
+                amounts = new long[rows];
+                fees = new long[rows];
+                parties = new int[rows];
+                statuses = new int[rows];
+                memos = new String[rows];
+            }
+        }
+
+        private int checkIndex(long index) throws IOException {
+            if (index < 0 || index >= dictionary.length) {
+                throw new IOException("Corrupt dictionary index");
+            }
+            return (int) index;
+        }
+
+        private String readString() throws IOException {
+            int length = (int) readVarint();
+            if (length == 0) return "";
+            byte[] utf8 = new byte[length];
+            in.readFully(utf8);
+            return new String(utf8, StandardCharsets.UTF_8);
+        }
+
+        private long readVarint() throws IOException {
+            int first = in.read();
+            if (first < 0) throw new EOFException();
+            return readVarint(first);
+        }
+
+        private long readVarint(int first) throws IOException {
+            long value = first & 0x7F;
+            int shift = 7;
+            int b = first;
+            while ((b & 0x80) != 0) {
+                if (shift > 63) throw new IOException("Corrupt varint");
+                b = in.read();
+                if (b < 0) throw new EOFException();
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            }
+            return value;
+        }
+
+        private static long unzigzag(long value) {
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,334 @@
+package anwar.mlsa.hadera.aou.export;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.content.Context;
+import android.content.pm.ServiceInfo;
+import android.net.Uri;
+import android.os.Build;
+import android.os.ParcelFileDescriptor;
+
+import androidx.annotation.NonNull;
+import androidx.core.app.NotificationCompat;
+import androidx.documentfile.provider.DocumentFile;
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.ForegroundInfo;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import anwar.mlsa.hadera.aou.HistoryApiParser;
+import anwar.mlsa.hadera.aou.MirrorHistoryPager;
+import anwar.mlsa.hadera.aou.R;
+import anwar.mlsa.hadera.aou.RequestNetworkController;
+import anwar.mlsa.hadera.aou.Transaction;
+import timber.log.Timber;
+
+/**
+ * Exports an account's history into the chosen export tree as a background job. After every page
+ * the writer is flushed and the page cursor, row count and file length are checkpointed, so a job
+ * interrupted by process death or a lost connection truncates back to the checkpoint and continues.
+ * <p>
+ * In append mode the history is written oldest-first and the newest exported consensus timestamp is
+ * remembered per account and file; the next append export only fetches and writes newer rows.
+ */
+public class HistoryExportWorker extends Worker {
+
+    public static final String TAG = "history_export";
+    public static final String KEY_ROWS = "rows";
+    public static final String KEY_APPENDED = "appended";
+
+    private static final String KEY_ACCOUNT_ID = "account_id";
+    private static final String KEY_TREE_URI = "tree_uri";
+    private static final String KEY_FORMAT = "format";
+    private static final String KEY_EXPORT_NAME = "export_name";
+    private static final String KEY_APPEND = "append";
+    private static final String CHANNEL_ID = "export_channel";
+    private static final String EXPORT_FILE_BASE_NAME = "hadera-history-export";
+    private static final int MAX_ATTEMPTS = 8;
+
+    private NotificationManager notificationManager;
+    private int notificationId;
+
+    public HistoryExportWorker(@NonNull Context context, @NonNull WorkerParameters workerParams) {
+        super(context, workerParams);
+    }
+
+    public static UUID enqueue(Context context, String accountId, HistoryExportFormat format, Uri treeUri, boolean append) {
+        String exportName = TAG + "_" + accountId + "_" + format.extension;
+        Data input = new Data.Builder()
+                .putString(KEY_ACCOUNT_ID, accountId)
+                .putString(KEY_TREE_URI, treeUri.toString())
+                .putString(KEY_FORMAT, format.name())
+                .putString(KEY_EXPORT_NAME, exportName)
+                .putBoolean(KEY_APPEND, append)
+                .build();
+        Constraints constraints = new Constraints.Builder().setRequiredNetworkType(NetworkType.CONNECTED).build();
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(HistoryExportWorker.class)
+                .setInputData(input)
+                .setConstraints(constraints)
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, 30, TimeUnit.SECONDS)
+                .addTag(TAG)
+                .build();
+        WorkManager.getInstance(context).enqueueUniqueWork(exportName, ExistingWorkPolicy.KEEP, request);
+        return request.getId();
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Context context = getApplicationContext();
+        String accountId = getInputData().getString(KEY_ACCOUNT_ID);
+        String exportName = getInputData().getString(KEY_EXPORT_NAME);
+        String treeUri = getInputData().getString(KEY_TREE_URI);
+        String formatName = getInputData().getString(KEY_FORMAT);
+        if (accountId == null || exportName == null || treeUri == null || formatName == null) {
+            return Result.failure();
+        }
+        HistoryExportFormat format = HistoryExportFormat.valueOf(formatName);
+        boolean append = getInputData().getBoolean(KEY_APPEND, false) && format.supportsAppend();
+
+        notificationManager = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+        notificationId = exportName.hashCode();
+        createNotificationChannel();
+        startForeground();
+
+        ExportCheckpointStore.Checkpoint checkpoint = ExportCheckpointStore.load(context, exportName);
+        ParcelFileDescriptor descriptor = null;
+        HistoryExportWriter writer = null;
+        try {
+            if (checkpoint != null && checkpoint.bytesWritten >= 0) {
+                descriptor = reopen(Uri.parse(checkpoint.fileUri));
+            }
+            if (descriptor == null && append) {
+                checkpoint = new ExportCheckpointStore.Checkpoint();
+                descriptor = openForAppend(Uri.parse(treeUri), format, accountId, checkpoint);
+                if (descriptor != null) {
+                    Timber.d("Appending to %s after %s", exportName, checkpoint.lastTimestamp);
+                    ExportCheckpointStore.save(context, exportName, checkpoint);
+                }
+            }
+            if (descriptor == null) {
+                checkpoint = new ExportCheckpointStore.Checkpoint();
+                checkpoint.append = append;
+                Uri fileUri = createExportFile(Uri.parse(treeUri), format, accountId);
+                checkpoint.fileUri = fileUri.toString();
+                ExportCheckpointStore.setLastExportedTimestamp(context, accountId, checkpoint.fileUri, null);
+                descriptor = reopen(fileUri);
+                if (descriptor == null) {
+                    // The provider can't reopen for random access; export still works but can't resume mid-file.
+                    descriptor = context.getContentResolver().openFileDescriptor(fileUri, "w");
+                    checkpoint.bytesWritten = -1;
+                }
+                ExportCheckpointStore.save(context, exportName, checkpoint);
+            } else {
+                Timber.d("Resuming export %s at row %d", exportName, checkpoint.rowsWritten);
+            }
+            if (descriptor == null) {
+                throw new IOException("Could not open the export file.");
+            }
+
+            boolean appendedToExisting = checkpoint.append && checkpoint.appendBaseBytes > 0;
+            FileOutputStream outputStream = new FileOutputStream(descriptor.getFileDescriptor());
+            FileChannel channel = checkpoint.bytesWritten >= 0 ? outputStream.getChannel() : null;
+            if (channel != null) {
+                channel.truncate(checkpoint.bytesWritten);
+                channel.position(checkpoint.bytesWritten);
+            }
+
+            writer = HistoryExportWriter.create(format, outputStream, checkpoint.rowsWritten);
+            MirrorHistoryPager pager;
+            if (checkpoint.pagesStarted) {
+                pager = MirrorHistoryPager.resume(RequestNetworkController.getInstance().getClient(), accountId, checkpoint.nextUrl);
+            } else if (checkpoint.append) {
+                pager = MirrorHistoryPager.ascendingAfter(RequestNetworkController.getInstance().getClient(), accountId, checkpoint.lastTimestamp);
+            } else {
+                pager = new MirrorHistoryPager(RequestNetworkController.getInstance().getClient(), accountId);
+            }
+            // Before the first page, a cursor only exists when continuing a previous export's file.
+            if (!checkpoint.pagesStarted && checkpoint.lastTimestamp == null) {
+                writer.begin();
+            }
+
+            while (pager.hasNext()) {
+                if (isStopped()) {
+                    return Result.retry();
+                }
+                HistoryApiParser.HistoryResponse page = pager.next();
+                for (Transaction transaction : page.transactions) {
+                    writer.write(transaction);
+                }
+                writer.flush();
+                checkpoint.pagesStarted = true;
+                if (page.lastConsensusTimestamp != null) {
+                    checkpoint.lastTimestamp = page.lastConsensusTimestamp;
+                }
+                checkpoint.nextUrl = pager.getNextUrl();
+                checkpoint.rowsWritten = writer.getRowCount();
+                if (channel != null) {
+                    checkpoint.bytesWritten = channel.position();
+                }
+                ExportCheckpointStore.save(context, exportName, checkpoint);
+                reportProgress(checkpoint.rowsWritten);
+            }
+            writer.end();
+            writer.flush();
+
+            if (checkpoint.append) {
+                ExportCheckpointStore.setLastExportedTimestamp(context, accountId, checkpoint.fileUri, checkpoint.lastTimestamp);
+            }
+            ExportCheckpointStore.clear(context, exportName);
+            showResultNotification("History export complete", checkpoint.rowsWritten + (appendedToExisting ? " new" : "") + " transactions exported.");
+            return Result.success(new Data.Builder()
+                    .putInt(KEY_ROWS, checkpoint.rowsWritten)
+                    .putBoolean(KEY_APPENDED, appendedToExisting)
+                    .build());
+        } catch (IOException e) {
+            Timber.w(e, "Export %s interrupted, will resume from checkpoint", exportName);
+            if (getRunAttemptCount() + 1 >= MAX_ATTEMPTS) {
+                ExportCheckpointStore.clear(context, exportName);
+                showResultNotification("History export failed", e.getMessage() != null ? e.getMessage() : "Network error.");
+                return Result.failure();
+            }
+            return Result.retry();
+        } catch (SecurityException | IllegalArgumentException e) {
+            Timber.e(e, "Export location is no longer accessible");
+            ExportCheckpointStore.clear(context, exportName);
+            showResultNotification("History export failed", "Error accessing export location. Please select it again.");
+            return Result.failure();
+        } finally {
+            closeQuietly(writer, descriptor);
+            // Posted by hand when the foreground promotion failed, so nothing else takes it down.
+            notificationManager.cancel(notificationId);
+        }
+    }
+
+    private ParcelFileDescriptor reopen(Uri fileUri) {
+        try {
+            return getApplicationContext().getContentResolver().openFileDescriptor(fileUri, "rw");
+        } catch (IOException | SecurityException | IllegalArgumentException | UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Reopens the existing export file at its end if we know which transactions it already holds.
+     * Returns null when there is nothing to continue, in which case a full export is written.
+     */
+    private ParcelFileDescriptor openForAppend(Uri treeUri, HistoryExportFormat format, String accountId,
+                                               ExportCheckpointStore.Checkpoint checkpoint) {
+        DocumentFile directory = DocumentFile.fromTreeUri(getApplicationContext(), treeUri);
+        DocumentFile file = directory != null ? directory.findFile(exportFileName(format, accountId)) : null;
+        if (file == null) return null;
+        String fileUri = file.getUri().toString();
+        String lastTimestamp = ExportCheckpointStore.getLastExportedTimestamp(getApplicationContext(), accountId, fileUri);
+        if (lastTimestamp == null) return null;
+        ParcelFileDescriptor descriptor = reopen(file.getUri());
+        if (descriptor == null) return null;
+        long size = descriptor.getStatSize();
+        if (size <= 0) {
+            closeQuietly(null, descriptor);
+            return null;
+        }
+        checkpoint.append = true;
+        checkpoint.fileUri = fileUri;
+        checkpoint.lastTimestamp = lastTimestamp;
+        checkpoint.bytesWritten = size;
+        checkpoint.appendBaseBytes = size;
+        return descriptor;
+    }
+
+    // One file per account: a full export recreates the file, often under the same URI, and must not
+    // leave another account's append cursor pointing at it.
+    private static String exportFileName(HistoryExportFormat format, String accountId) {
+        return format.fileName(EXPORT_FILE_BASE_NAME + "-" + accountId);
+    }
+
+    private Uri createExportFile(Uri treeUri, HistoryExportFormat format, String accountId) throws IOException {
+        DocumentFile directory = DocumentFile.fromTreeUri(getApplicationContext(), treeUri);
+        if (directory == null || !directory.canWrite()) {
+            throw new SecurityException("Export location is not writable.");
+        }
+        String fileName = exportFileName(format, accountId);
+        DocumentFile file = directory.findFile(fileName);
+        if (file != null) {
+            file.delete();
+        }
+        file = directory.createFile(format.mimeType, fileName);
+        if (file == null) {
+            throw new IOException("Error writing to file.");
+        }
+        return file.getUri();
+    }
+
+    private void closeQuietly(HistoryExportWriter writer, ParcelFileDescriptor descriptor) {
+        try {
+            if (writer != null) writer.close();
+        } catch (IOException ignored) {
+        }
+        try {
+            if (descriptor != null) descriptor.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private void startForeground() {
+        Notification notification = buildProgressNotification(0);
+        ForegroundInfo info = Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q
+                ? new ForegroundInfo(notificationId, notification, ServiceInfo.FOREGROUND_SERVICE_TYPE_DATA_SYNC)
+                : new ForegroundInfo(notificationId, notification);
+        try {
+            setForegroundAsync(info).get();
+        } catch (Exception e) {
+            // Not allowed to start a foreground service right now (e.g. resumed while in background); keep going.
+            Timber.w(e, "Could not promote export to foreground");
+            notificationManager.notify(notificationId, notification);
+        }
+    }
+
+    private void reportProgress(int rows) {
+        setProgressAsync(new Data.Builder().putInt(KEY_ROWS, rows).build());
+        notificationManager.notify(notificationId, buildProgressNotification(rows));
+    }
+
+    private Notification buildProgressNotification(int rows) {
+        return new NotificationCompat.Builder(getApplicationContext(), CHANNEL_ID)
+                .setSmallIcon(R.mipmap.ic_launcher)
+                .setContentTitle("Exporting transaction history")
+                .setContentText(rows + " transactions exported")
+                .setProgress(0, 0, true)
+                .setOngoing(true)
+                .setOnlyAlertOnce(true)
+                .addAction(0, "Cancel", WorkManager.getInstance(getApplicationContext()).createCancelPendingIntent(getId()))
+                .build();
+    }
+
+    private void showResultNotification(String title, String message) {
+        Notification notification = new NotificationCompat.Builder(getApplicationContext(), CHANNEL_ID)
+                .setSmallIcon(R.mipmap.ic_launcher)
+                .setContentTitle(title)
+                .setContentText(message)
+                .setAutoCancel(true)
+                .build();
+        notificationManager.notify(notificationId + 1, notification);
+    }
+
+    private void createNotificationChannel() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            NotificationChannel channel = new NotificationChannel(CHANNEL_ID, "History Export", NotificationManager.IMPORTANCE_LOW);
+            notificationManager.createNotificationChannel(channel);
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package anwar.mlsa.hadera.aou.export;
+
+import com.google.gson.Gson;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+import anwar.mlsa.hadera.aou.Transaction;
+
+/**
+ * Writes transactions one row at a time to a buffered stream. Nothing is accumulated between
+ * rows, so the memory used by an export does not depend on the size of the history.
+ */
+public abstract class HistoryExportWriter implements Closeable {
+
+    static final int BUFFER_SIZE = 16 * 1024;
+
+    private int rowCount = 0;
+
+    public static HistoryExportWriter create(HistoryExportFormat format, OutputStream outputStream) {
+        return create(format, outputStream, 0);
+    }
+
+    /**
+     * Creates a writer that continues a file which already holds {@code existingRows} rows,
+     * e.g. after a checkpointed export is resumed. {@link #begin()} must not be called again.
+     */
+    public static HistoryExportWriter create(HistoryExportFormat format, OutputStream outputStream, int existingRows) {
+        HistoryExportWriter writer;
+        switch (format) {
+            case JSON:
+                writer = new JsonWriter(outputStream);
+                break;
+            case NDJSON:
+                writer = new NdjsonWriter(outputStream);
+                break;
+            case NDJSON_GZIP:
+                writer = new GzipNdjsonWriter(outputStream);
+                break;
+            case COMPACT:
+                writer = new CompactHistoryWriter(outputStream);
+                break;
+            case LOG:
+                writer = new LogWriter(outputStream);
+                break;
+            case CSV:
+            default:
+                writer = new CsvWriter(outputStream);
+                break;
+        }
+        writer.rowCount = existingRows;
+        return writer;
+    }
+
+    public void begin() throws IOException {
+    }
+
+    public final void write(Transaction transaction) throws IOException {
+        writeRow(transaction, rowCount);
+        rowCount++;
+    }
+
+    public void end() throws IOException {
+    }
+
+    /**
+     * Pushes everything written so far to the underlying stream. Callers flush at page
+     * boundaries; the binary formats close a self-contained block or gzip member here.
+     */
+    public abstract void flush() throws IOException;
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    protected abstract void writeRow(Transaction t, int index) throws IOException;
+
+    abstract static class TextWriter extends HistoryExportWriter {
+        protected final Writer out;
+
+        TextWriter(OutputStream outputStream) {
+            this.out = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), BUFFER_SIZE);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    static class CsvWriter extends TextWriter {
+        private static final String HEADER = "Date,Party,Amount,Memo,Type,Status,Fee\n";
+
+        CsvWriter(OutputStream outputStream) {
+            super(outputStream);
+        }
+
+        @Override
+        public void begin() throws IOException {
+            out.write(HEADER);
+        }
+
+        @Override
+        protected void writeRow(Transaction t, int index) throws IOException {
+            writeField(t.date);
+            out.write(',');
+            writeField(t.party);
+            out.write(',');
+            writeField(t.amount);
+            out.write(',');
+            writeField(t.memo);
+            out.write(',');
+            writeField(t.type);
+            out.write(',');
+            writeField(t.status);
+            out.write(',');
+            writeField(t.fee);
+            out.write('\n');
+        }
+
+        // RFC 4180: fields containing separators, quotes or line breaks are quoted, quotes are doubled.
+        private void writeField(String value) throws IOException {
+            if (value == null || value.isEmpty()) return;
+            boolean needsQuoting = false;
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                    needsQuoting = true;
+                    break;
+                }
+            }
+            if (!needsQuoting) {
+                out.write(value);
+                return;
+            }
+            out.write('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"') out.write('"');
+                out.write(c);
+            }
+            out.write('"');
+        }
+    }
+
+    static class JsonWriter extends TextWriter {
+        private final Gson gson = new Gson();
+
+        JsonWriter(OutputStream outputStream) {
+            super(outputStream);
+        }
+
+        @Override
+        public void begin() throws IOException {
+            out.write('[');
+        }
+
+        @Override
+        protected void writeRow(Transaction t, int index) throws IOException {
+            out.write(index == 0 ? "\n" : ",\n");
+            gson.toJson(t, Transaction.class, out);
+        }
+
+        @Override
+        public void end() throws IOException {
+            out.write("\n]\n");
+        }
+    }
+
+    static class NdjsonWriter extends TextWriter {
+        private final Gson gson = new Gson();
+
+        NdjsonWriter(OutputStream outputStream) {
+            super(outputStream);
+        }
+
+        @Override
+        protected void writeRow(Transaction t, int index) throws IOException {
+            gson.toJson(t, Transaction.class, out);
+            out.write('\n');
+        }
+    }
+
+    static class LogWriter extends TextWriter {
+        LogWriter(OutputStream outputStream) {
+            super(outputStream);
+        }
+
+        @Override
+        protected void writeRow(Transaction t, int index) throws IOException {
+            out.write("Type: ");
+            out.write(String.valueOf(t.type));
+            out.write("\nDate: ");
+            out.write(String.valueOf(t.date));
+            out.write("\nAmount: ");
+            out.write(String.valueOf(t.amount));
+            out.write("\nParty: ");
+            out.write(String.valueOf(t.party));
+            out.write("\nStatus: ");
+            out.write(String.valueOf(t.status));
+            out.write('\n');
+            if (t.fee != null) {
+                out.write("Fee: ");
+                out.write(t.fee);
+                out.write('\n');
+            }
+            if (t.memo != null && !t.memo.isEmpty()) {
+                out.write("Memo: ");
+                out.write(t.memo);
+                out.write('\n');
+            }
+            out.write('\n');
+        }
+    }
+
+    /**
+     * NDJSON compressed as a series of gzip members, one per flush. Concatenated members are a
+     * valid gzip file, and each flush leaves the file complete, so checkpoints and appends work.
+     */
+    static class GzipNdjsonWriter extends HistoryExportWriter {
+        private final Gson gson = new Gson();
+        private final OutputStream target;
+        private GZIPOutputStream member;
+        private Writer memberWriter;
+
+        GzipNdjsonWriter(OutputStream outputStream) {
+            this.target = new BufferedOutputStream(outputStream, BUFFER_SIZE);
+        }
+
+        @Override
+        protected void writeRow(Transaction t, int index) throws IOException {
+            if (member == null) {
+                member = new GZIPOutputStream(target, BUFFER_SIZE);
+                memberWriter = new BufferedWriter(new OutputStreamWriter(member, StandardCharsets.UTF_8), BUFFER_SIZE);
+            }
+            gson.toJson(t, Transaction.class, memberWriter);
+            memberWriter.write('\n');
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (member != null) {
+                memberWriter.flush();
+                member.finish();
+                member = null;
+                memberWriter = null;
+            }
+            target.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+            target.close();
+        }
+    }
+}
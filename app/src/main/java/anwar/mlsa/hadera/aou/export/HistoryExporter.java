@@ -0,0 +1,70 @@
+package anwar.mlsa.hadera.aou.export;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import anwar.mlsa.hadera.aou.MirrorHistoryPager;
+import anwar.mlsa.hadera.aou.RequestNetworkController;
+import anwar.mlsa.hadera.aou.Transaction;
+import anwar.mlsa.hadera.aou.domain.util.Result;
+import timber.log.Timber;
+
+/**
+ * Streams an account's full mirror node history into an export file on a background thread.
+ * Rows go from each fetched page straight into the writer, so peak memory is one page.
+ */
+public class HistoryExporter {
+
+    public interface OutputOpener {
+        OutputStream open() throws IOException;
+    }
+
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    public static void export(String accountId, HistoryExportFormat format, OutputOpener opener, Consumer<Result<Integer>> callback) {
+        callback.accept(new Result.Loading<>());
+        executor.execute(() -> {
+            Result<Integer> result;
+            long start = SystemClock.elapsedRealtime();
+            try {
+                OutputStream outputStream = opener.open();
+                if (outputStream == null) {
+                    throw new IOException("Could not open the export file.");
+                }
+                try (HistoryExportWriter writer = HistoryExportWriter.create(format, outputStream)) {
+                    MirrorHistoryPager pager = new MirrorHistoryPager(RequestNetworkController.getInstance().getClient(), accountId);
+                    int rows = writeAll(pager, writer);
+                    Timber.d("Exported %d rows as %s in %d ms", rows, format, SystemClock.elapsedRealtime() - start);
+                    result = new Result.Success<>(rows);
+                }
+            } catch (IOException | RuntimeException e) {
+                // Anything that escapes here would leave the caller's progress showing for good.
+                Timber.e(e, "History export failed");
+                result = new Result.Error<>(e.getMessage() != null ? e.getMessage() : "Export failed.");
+            }
+            final Result<Integer> finalResult = result;
+            mainHandler.post(() -> callback.accept(finalResult));
+        });
+    }
+
+    public static int writeAll(MirrorHistoryPager pager, HistoryExportWriter writer) throws IOException {
+        writer.begin();
+        while (pager.hasNext()) {
+            for (Transaction transaction : pager.next().transactions) {
+                writer.write(transaction);
+            }
+            writer.flush();
+        }
+        writer.end();
+        writer.flush();
+        return writer.getRowCount();
+    }
+}
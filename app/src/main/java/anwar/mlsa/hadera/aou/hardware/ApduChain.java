@@ -0,0 +1,69 @@
+package anwar.mlsa.hadera.aou.hardware;
+
+/**
+ * Splits a command payload into chained APDUs of at most 255 data bytes, the most one Lc byte can
+ * describe. The first APDU carries the command's P1; the ones after it carry {@link #P1_CONTINUE}.
+ * Every APDU but the last has {@link #P2_MORE} set, so the device knows when the payload is complete.
+ * The device answers each with a status word, and the next APDU is only sent once it says 0x9000.
+ * APDUs are built in one reused buffer.
+ */
+final class ApduChain {
+
+    static final int MAX_DATA_LENGTH = 255;
+    static final byte P1_CONTINUE = (byte) 0x80;
+    static final byte P2_MORE = (byte) 0x80;
+    static final int SW_OK = 0x9000;
+
+    private static final int HEADER_SIZE = 5;
+
+    private final byte[] apdu = new byte[HEADER_SIZE + MAX_DATA_LENGTH];
+    private byte cla;
+    private byte ins;
+    private byte p1;
+    private byte p2;
+    private byte[] payload;
+    private int offset;
+    private boolean started;
+
+    void start(byte cla, byte ins, byte p1, byte p2, byte[] payload) {
+        this.cla = cla;
+        this.ins = ins;
+        this.p1 = p1;
+        this.p2 = p2;
+        this.payload = payload;
+        offset = 0;
+        started = false;
+    }
+
+    boolean hasNext() {
+        return payload != null && (!started || offset < payload.length);
+    }
+
+    /** Builds the next APDU into {@link #buffer()} and returns its length. */
+    int next() {
+        int count = Math.min(MAX_DATA_LENGTH, payload.length - offset);
+        apdu[0] = cla;
+        apdu[1] = ins;
+        apdu[2] = started ? P1_CONTINUE : p1;
+        apdu[4] = (byte) count;
+        System.arraycopy(payload, offset, apdu, HEADER_SIZE, count);
+        offset += count;
+        apdu[3] = offset < payload.length ? (byte) (p2 | P2_MORE) : p2;
+        started = true;
+        return HEADER_SIZE + count;
+    }
+
+    byte[] buffer() {
+        return apdu;
+    }
+
+    void clear() {
+        payload = null;
+    }
+
+    /** The status word at the end of a response of {@code length} bytes, or -1 if it is too short. */
+    static int statusWord(byte[] response, int length) {
+        if (length < 2) return -1;
+        return ((response[length - 2] & 0xff) << 8) | (response[length - 1] & 0xff);
+    }
+}
@@ -0,0 +1,175 @@
+package anwar.mlsa.hadera.aou.hardware;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Commands waiting for the device, each with its own future and timeout. The device handles one
+ * APDU at a time, so commands are sent in order; the next one goes out from the read thread as soon
+ * as the previous response is in, without a round trip through the caller.
+ * <p>
+ * A status word other than 0x9000 fails only that command. A timeout fails everything, because a
+ * late response can no longer be told apart from the answer to the next command.
+ */
+final class CommandQueue {
+
+    interface Link {
+        void write(byte[] apdu, int length) throws IOException;
+    }
+
+    interface StallListener {
+        void onStalled(Exception e);
+    }
+
+    private static final class Command {
+        final byte ins;
+        final byte p1;
+        final byte[] payload;
+        final long timeoutMs;
+        final CompletableFuture<byte[]> result = new CompletableFuture<>();
+
+        Command(byte ins, byte p1, byte[] payload, long timeoutMs) {
+            this.ins = ins;
+            this.p1 = p1;
+            this.payload = payload;
+            this.timeoutMs = timeoutMs;
+        }
+    }
+
+    private final byte cla;
+    private final Link link;
+    private final ScheduledExecutorService timer;
+    private final StallListener stallListener;
+    private final ApduChain chain = new ApduChain();
+
+    private final Deque<Command> pending = new ArrayDeque<>();
+    private Command active;
+    private ScheduledFuture<?> activeTimeout;
+
+    CommandQueue(byte cla, Link link, ScheduledExecutorService timer, StallListener stallListener) {
+        this.cla = cla;
+        this.link = link;
+        this.timer = timer;
+        this.stallListener = stallListener;
+    }
+
+    /**
+     * Queues a command. Cancelling the future takes a queued command out; a command already on the
+     * device runs to the end, but its response is dropped.
+     */
+    CompletableFuture<byte[]> submit(byte ins, byte p1, byte[] payload, long timeoutMs) {
+        Command command = new Command(ins, p1, payload, timeoutMs);
+        command.result.whenComplete((response, error) -> {
+            if (error instanceof CancellationException) onCancelled(command);
+        });
+        synchronized (this) {
+            pending.add(command);
+            if (active == null) startNext();
+        }
+        return command.result;
+    }
+
+    /** A complete response, status word included. Call from the read thread. */
+    void onResponse(byte[] response, int length) {
+        Command finished;
+        byte[] data = null;
+        Exception error = null;
+        synchronized (this) {
+            if (active == null) return;
+            int status = ApduChain.statusWord(response, length);
+            if (status == ApduChain.SW_OK && chain.hasNext()) {
+                sendChunk();
+                return;
+            }
+            if (status == ApduChain.SW_OK) {
+                data = new byte[length - 2];
+                System.arraycopy(response, 0, data, 0, data.length);
+            } else {
+                error = new IOException(String.format("Device returned status 0x%04X", status));
+            }
+            finished = active;
+            finishActive();
+            startNext();
+        }
+        if (error != null) {
+            finished.result.completeExceptionally(error);
+        } else {
+            finished.result.complete(data);
+        }
+    }
+
+    /** Fails the active command and everything queued, e.g. when the device goes away. */
+    void failAll(Exception e) {
+        List<Command> failed = new ArrayList<>();
+        synchronized (this) {
+            if (active != null) failed.add(active);
+            failed.addAll(pending);
+            pending.clear();
+            finishActive();
+        }
+        for (Command command : failed) {
+            command.result.completeExceptionally(e);
+        }
+    }
+
+    synchronized boolean isIdle() {
+        return active == null && pending.isEmpty();
+    }
+
+    private synchronized void onCancelled(Command command) {
+        pending.remove(command);
+    }
+
+    // Called with the lock held.
+    private void startNext() {
+        while (active == null && !pending.isEmpty()) {
+            Command next = pending.poll();
+            if (next.result.isDone()) continue;
+            active = next;
+            chain.start(cla, next.ins, next.p1, (byte) 0x00, next.payload);
+            sendChunk();
+        }
+    }
+
+    // Called with the lock held. Every chunk gets the command's full timeout, as the device answers each.
+    private void sendChunk() {
+        Command command = active;
+        if (activeTimeout != null) activeTimeout.cancel(false);
+        activeTimeout = timer.schedule(() -> onTimeout(command), command.timeoutMs, TimeUnit.MILLISECONDS);
+        try {
+            link.write(chain.buffer(), chain.next());
+        } catch (IOException e) {
+            timer.execute(() -> stall(e));
+        }
+    }
+
+    private void onTimeout(Command command) {
+        synchronized (this) {
+            if (active != command) return;
+        }
+        stall(new TimeoutException("The device did not respond in time."));
+    }
+
+    private void stall(Exception e) {
+        failAll(e);
+        stallListener.onStalled(e);
+    }
+
+    private void finishActive() {
+        if (activeTimeout != null) {
+            activeTimeout.cancel(false);
+            activeTimeout = null;
+        }
+        active = null;
+        chain.clear();
+    }
+}
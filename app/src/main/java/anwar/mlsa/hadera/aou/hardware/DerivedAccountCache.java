@@ -0,0 +1,59 @@
+package anwar.mlsa.hadera.aou.hardware;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Accounts already derived on a hardware wallet, keyed by the device's serial number and the
+ * derivation path, so the setup screen can list them without asking the device again. Entries are
+ * not proof: an account is checked against the device before it is imported.
+ */
+public final class DerivedAccountCache {
+
+    private static final String PREFS_NAME = "DerivedAccountCache";
+    private static final String KEY_LAST_DEVICE = "last_device";
+    private static final String ACCOUNT_PREFIX = "account/";
+
+    private DerivedAccountCache() {
+    }
+
+    /** Known accounts of {@code deviceId} among the first {@code indexCount} indexes, by index. */
+    public static SortedMap<Integer, String> getAccounts(Context context, String deviceId, int indexCount) {
+        SortedMap<Integer, String> accounts = new TreeMap<>();
+        if (deviceId == null) return accounts;
+        SharedPreferences prefs = getPrefs(context);
+        for (int index = 0; index < indexCount; index++) {
+            String accountId = prefs.getString(key(deviceId, index), null);
+            if (accountId != null) accounts.put(index, accountId);
+        }
+        return accounts;
+    }
+
+    public static void put(Context context, String deviceId, int accountIndex, String accountId) {
+        if (deviceId == null) return;
+        getPrefs(context).edit()
+                .putString(key(deviceId, accountIndex), accountId)
+                .putString(KEY_LAST_DEVICE, deviceId)
+                .apply();
+    }
+
+    /** The device accounts were last derived on, so its accounts can be shown before it is connected. */
+    public static String getLastDeviceId(Context context) {
+        return getPrefs(context).getString(KEY_LAST_DEVICE, null);
+    }
+
+    private static String key(String deviceId, int accountIndex) {
+        StringBuilder key = new StringBuilder(ACCOUNT_PREFIX).append(deviceId).append('/');
+        for (byte b : HederaLedgerApp.derivationPath(accountIndex)) {
+            key.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return key.toString();
+    }
+
+    private static SharedPreferences getPrefs(Context context) {
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+}
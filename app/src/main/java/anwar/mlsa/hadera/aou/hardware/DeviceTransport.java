@@ -0,0 +1,25 @@
+package anwar.mlsa.hadera.aou.hardware;
+
+import java.io.IOException;
+
+/**
+ * The byte stream to a hardware wallet. A transport owns the thread it reads on and stops it when
+ * closed; incoming data arrives there in reads of any size, and framing is left to the caller.
+ */
+public interface DeviceTransport {
+
+    interface Receiver {
+        void onData(byte[] data);
+        void onError(Exception e);
+    }
+
+    void open(Receiver receiver) throws IOException;
+
+    /** Blocks until the packet is written; the buffer is reused once this returns. */
+    void write(byte[] packet) throws IOException;
+
+    void close();
+
+    /** Tells physical devices apart, e.g. a USB serial number; null if this device can't be told apart. */
+    String deviceId();
+}
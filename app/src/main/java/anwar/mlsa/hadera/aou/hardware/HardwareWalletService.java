@@ -20,45 +20,39 @@ import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 
 import com.hoho.android.usbserial.driver.UsbSerialDriver;
-import com.hoho.android.usbserial.driver.UsbSerialPort;
 import com.hoho.android.usbserial.driver.UsbSerialProber;
-import com.hoho.android.usbserial.util.SerialInputOutputManager;
 
 import java.io.IOException;
-import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.Executors;
-import java.util.concurrent.TimeoutException;
+import java.util.concurrent.ScheduledExecutorService;
 
-public class HardwareWalletService extends Service implements SerialInputOutputManager.Listener {
+public class HardwareWalletService extends Service {
 
     private static final String TAG = "HardwareWalletService";
     private static final String ACTION_USB_PERMISSION = "anwar.mlsa.hadera.aou.USB_PERMISSION";
     private static final int LEDGER_VID = 11415; // Vendor ID for Ledger
     private static final int TIMEOUT_MS = 20000;
-
-    // APDU constants based on https://github.com/hashgraph/hedera-ledger-app/blob/main/src/hedera/handlers.h
-    private static final byte CLA = (byte) 0xE0;
-    private static final byte INS_GET_APP_CONFIGURATION = 0x01;
-    private static final byte INS_GET_PUBKEY = 0x02;
-    private static final byte INS_SIGN_TX = 0x04;
+    // Reading a public key needs no confirmation on the device, so a slow answer means something is wrong.
+    private static final int ACCOUNT_TIMEOUT_MS = 5000;
 
     public enum ConnectionStatus {DISCONNECTED, SEARCHING, CONNECTED, ERROR}
-    private enum PendingOperation {NONE, GET_ACCOUNT, SIGN_TRANSACTION}
 
     private final IBinder binder = new LocalBinder();
     private UsbManager usbManager;
-    private UsbSerialPort usbSerialPort;
-    private SerialInputOutputManager serialInputOutputManager;
+    private volatile LedgerConnection connection;
 
-    private HardwareWalletListener signingListener;
-    private AccountInfoListener accountInfoListener;
-    private PendingOperation currentOperation = PendingOperation.NONE;
-    private int activeAccountIndex = -1;
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "hardware-wallet-timeouts");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     private final Handler mainHandler = new Handler(Looper.getMainLooper());
-    private Runnable operationTimeoutRunnable;
 
     private final MutableLiveData<ConnectionStatus> _connectionStatus = new MutableLiveData<>(ConnectionStatus.DISCONNECTED);
     public final LiveData<ConnectionStatus> connectionStatus = _connectionStatus;
@@ -107,6 +101,7 @@ public class HardwareWalletService extends Service implements SerialInputOutputM
         super.onDestroy();
         disconnect();
         unregisterReceiver(usbReceiver);
+        timer.shutdownNow();
     }
 
     public void findAndConnectToDevice() {
@@ -135,8 +130,8 @@ public class HardwareWalletService extends Service implements SerialInputOutputM
     }
 
     private void connectToDevice(UsbDevice device) {
-        UsbDeviceConnection connection = usbManager.openDevice(device);
-        if (connection == null) {
+        UsbDeviceConnection usbConnection = usbManager.openDevice(device);
+        if (usbConnection == null) {
             _connectionStatus.postValue(ConnectionStatus.ERROR);
             return;
         }
@@ -145,151 +140,97 @@ public class HardwareWalletService extends Service implements SerialInputOutputM
             _connectionStatus.postValue(ConnectionStatus.ERROR);
             return;
         }
-        usbSerialPort = driver.getPorts().get(0);
-        try {
-            usbSerialPort.open(connection);
-            usbSerialPort.setParameters(115200, 8, UsbSerialPort.STOPBITS_1, UsbSerialPort.PARITY_NONE);
-            serialInputOutputManager = new SerialInputOutputManager(usbSerialPort, this);
-            Executors.newSingleThreadExecutor().submit(serialInputOutputManager);
-            _connectionStatus.postValue(ConnectionStatus.CONNECTED);
-        } catch (IOException e) {
-            disconnect();
-        }
-    }
-
-    public void disconnect() {
-        cancelOperationTimeout();
-        if (serialInputOutputManager != null) {
-            serialInputOutputManager.stop();
-            serialInputOutputManager = null;
-        }
-        if (usbSerialPort != null) {
-            try {
-                usbSerialPort.close();
-            } catch (IOException ignored) {}
-            usbSerialPort = null;
-        }
-        clearListeners();
-        _connectionStatus.postValue(ConnectionStatus.DISCONNECTED);
+        connect(new UsbSerialTransport(driver.getPorts().get(0), usbConnection));
     }
 
-    public void signTransaction(byte[] unsignedTransaction, HardwareWalletListener listener) {
-        if (_connectionStatus.getValue() != ConnectionStatus.CONNECTED) {
-            listener.onSignatureError(new IOException("Not connected"));
-            return;
-        }
-        this.signingListener = listener;
-        this.currentOperation = PendingOperation.SIGN_TRANSACTION;
+    /** Talks to a Ledger through {@code transport}; USB devices found by {@link #findAndConnectToDevice()} come through here. */
+    public void connect(DeviceTransport transport) {
+        closeConnection();
+        LedgerConnection opened = new LedgerConnection(transport, HederaLedgerApp.CLA, timer, this::onConnectionFailed);
         try {
-            usbSerialPort.write(createSignTransactionApdu(unsignedTransaction), TIMEOUT_MS);
-            startOperationTimeout();
+            opened.open();
         } catch (IOException e) {
-            listener.onSignatureError(e);
-        }
-    }
-
-    public void requestAccountInfo(int accountIndex, AccountInfoListener listener) {
-        if (_connectionStatus.getValue() != ConnectionStatus.CONNECTED) {
-            listener.onAccountInfoError(accountIndex, new IOException("Not connected"));
+            Log.w(TAG, "Could not open device", e);
+            _connectionStatus.postValue(ConnectionStatus.DISCONNECTED);
             return;
         }
-        this.accountInfoListener = listener;
-        this.currentOperation = PendingOperation.GET_ACCOUNT;
-        this.activeAccountIndex = accountIndex;
-        try {
-            usbSerialPort.write(createGetPublicKeyApdu(accountIndex), TIMEOUT_MS);
-            startOperationTimeout();
-        } catch (IOException e) {
-            listener.onAccountInfoError(accountIndex, e);
-        }
-    }
-
-    private void startOperationTimeout() {
-        cancelOperationTimeout();
-        final String message = currentOperation == PendingOperation.GET_ACCOUNT ? "Request for account info timed out." : "Signing timed out.";
-        operationTimeoutRunnable = () -> {
-            Exception e = new TimeoutException(message);
-            handleError(e);
-        };
-        mainHandler.postDelayed(operationTimeoutRunnable, TIMEOUT_MS);
+        connection = opened;
+        _connectionStatus.postValue(ConnectionStatus.CONNECTED);
     }
 
-    private void cancelOperationTimeout() {
-        if (operationTimeoutRunnable != null) {
-            mainHandler.removeCallbacks(operationTimeoutRunnable);
-            operationTimeoutRunnable = null;
-        }
+    public void disconnect() {
+        closeConnection();
+        _connectionStatus.postValue(ConnectionStatus.DISCONNECTED);
     }
 
-    private void clearListeners() {
-        signingListener = null;
-        accountInfoListener = null;
-        currentOperation = PendingOperation.NONE;
-        activeAccountIndex = -1;
+    private void closeConnection() {
+        LedgerConnection current = connection;
+        connection = null;
+        if (current != null) current.close();
     }
 
-    private byte[] createSignTransactionApdu(byte[] transaction) {
-        byte[] header = {CLA, INS_SIGN_TX, 0x00, 0x00, (byte) transaction.length};
-        byte[] apdu = new byte[header.length + transaction.length];
-        System.arraycopy(header, 0, apdu, 0, header.length);
-        System.arraycopy(transaction, 0, apdu, header.length, transaction.length);
-        return apdu;
+    private void onConnectionFailed(LedgerConnection failed, Exception e) {
+        Log.w(TAG, "Device connection failed", e);
+        if (connection != failed) return;
+        connection = null;
+        _connectionStatus.postValue(ConnectionStatus.DISCONNECTED);
     }
 
-    private byte[] createGetPublicKeyApdu(int accountIndex) {
-        // Real path is 44'/3030'/accountIndex'
-        // This requires a more complex serialization of the path components.
-        // This is a simplified simulation.
-        ByteBuffer path = ByteBuffer.allocate(4);
-        path.putInt(accountIndex);
-        byte[] pathBytes = path.array();
-
-        byte[] header = {CLA, INS_GET_PUBKEY, 0x40, 0x00, (byte) pathBytes.length}; 
-        byte[] apdu = new byte[header.length + pathBytes.length];
-        System.arraycopy(header, 0, apdu, 0, header.length);
-        System.arraycopy(pathBytes, 0, apdu, header.length, pathBytes.length);
-        return apdu;
+    public void signTransaction(byte[] unsignedTransaction, HardwareWalletListener listener) {
+        submit(HederaLedgerApp.INS_SIGN_TX, (byte) 0x00, unsignedTransaction, TIMEOUT_MS).whenComplete((signature, error) -> {
+            if (error != null) {
+                listener.onSignatureError(unwrap(error));
+            } else {
+                listener.onSignatureReceived(signature);
+            }
+        });
     }
 
-    @Override
-    public void onNewData(byte[] data) {
-        cancelOperationTimeout();
-        try {
-            switch (currentOperation) {
-                case SIGN_TRANSACTION:
-                    if (signingListener != null) signingListener.onSignatureReceived(data);
-                    break;
-                case GET_ACCOUNT:
-                    if (accountInfoListener != null) {
-                        // TODO: Proper parsing of the response which includes public key, chain code, etc.
-                        // For now, we assume the response is the account ID string which is a simplification.
-                        String accountId = new String(data, StandardCharsets.UTF_8).trim();
-                        accountInfoListener.onAccountInfoReceived(activeAccountIndex, accountId);
-                    }
-                    break;
+    public void requestAccountInfo(int accountIndex, AccountInfoListener listener) {
+        requestAccountId(accountIndex).whenComplete((accountId, error) -> {
+            if (error != null) {
+                listener.onAccountInfoError(accountIndex, unwrap(error));
+            } else {
+                listener.onAccountInfoReceived(accountIndex, accountId);
             }
-        } finally {
-            clearListeners();
+        });
+    }
+
+    /**
+     * Queues a lookup of the account at {@code accountIndex}. Lookups for several indexes can be
+     * queued at once; they are sent back to back, and cancelling the future drops one still queued.
+     */
+    public CompletableFuture<String> requestAccountId(int accountIndex) {
+        CompletableFuture<byte[]> response = submit(HederaLedgerApp.INS_GET_PUBKEY, (byte) 0x40,
+                HederaLedgerApp.derivationPath(accountIndex), ACCOUNT_TIMEOUT_MS);
+        // TODO: Proper parsing of the response which includes public key, chain code, etc.
+        // For now, we assume the response is the account ID string which is a simplification.
+        CompletableFuture<String> accountId = response.thenApply(data -> new String(data, StandardCharsets.UTF_8).trim());
+        accountId.whenComplete((id, error) -> {
+            if (error instanceof CancellationException) response.cancel(false);
+        });
+        return accountId;
+    }
+
+    /** Serial number of the connected device, or null if there is none or it can't be read. */
+    public String getDeviceId() {
+        LedgerConnection current = connection;
+        return current != null ? current.deviceId() : null;
+    }
+
+    private CompletableFuture<byte[]> submit(byte ins, byte p1, byte[] payload, long timeoutMs) {
+        LedgerConnection current = connection;
+        if (current == null) {
+            CompletableFuture<byte[]> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new IOException("Not connected"));
+            return failed;
         }
+        return current.submit(ins, p1, payload, timeoutMs);
     }
 
-    @Override
-    public void onRunError(Exception e) {
-        handleError(e);
-    }
-
-    private void handleError(Exception e) {
-        cancelOperationTimeout();
-        switch (currentOperation) {
-            case SIGN_TRANSACTION:
-                if (signingListener != null) signingListener.onSignatureError(e);
-                break;
-            case GET_ACCOUNT:
-                if (accountInfoListener != null) accountInfoListener.onAccountInfoError(activeAccountIndex, e);
-                break;
-        }
-        clearListeners();
-        disconnect();
+    private static Exception unwrap(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return cause instanceof Exception ? (Exception) cause : new Exception(cause);
     }
 
     @Nullable
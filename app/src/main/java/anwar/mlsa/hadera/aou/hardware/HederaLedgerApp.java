@@ -0,0 +1,29 @@
+package anwar.mlsa.hadera.aou.hardware;
+
+import java.nio.ByteBuffer;
+
+// APDU constants based on https://github.com/hashgraph/hedera-ledger-app/blob/main/src/hedera/handlers.h
+final class HederaLedgerApp {
+
+    static final byte CLA = (byte) 0xE0;
+    static final byte INS_GET_APP_CONFIGURATION = 0x01;
+    static final byte INS_GET_PUBKEY = 0x02;
+    static final byte INS_SIGN_TX = 0x04;
+
+    static final int SW_OK = ApduChain.SW_OK;
+    static final int SW_WRONG_DATA = 0x6A80;
+    static final int SW_INS_NOT_SUPPORTED = 0x6D00;
+    static final int SW_DENIED = 0x6985;
+
+    private HederaLedgerApp() {
+    }
+
+    static byte[] derivationPath(int accountIndex) {
+        // Real path is 44'/3030'/accountIndex'
+        // This requires a more complex serialization of the path components.
+        // This is a simplified simulation.
+        ByteBuffer path = ByteBuffer.allocate(4);
+        path.putInt(accountIndex);
+        return path.array();
+    }
+}
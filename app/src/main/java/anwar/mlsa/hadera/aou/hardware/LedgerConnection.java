@@ -0,0 +1,87 @@
+package anwar.mlsa.hadera.aou.hardware;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * A Ledger on the other end of a {@link DeviceTransport}: commands go through a {@link CommandQueue},
+ * out in Ledger framing, and responses are reassembled from whatever reads the transport delivers.
+ * Nothing here depends on Android, so the whole path runs against {@link LoopbackLedger} in tests.
+ * <p>
+ * Anything that leaves the link out of step (a timeout, a read error, a malformed packet) fails
+ * every command, closes the transport and is reported once to the failure listener.
+ */
+final class LedgerConnection implements DeviceTransport.Receiver {
+
+    interface FailureListener {
+        void onFailed(LedgerConnection connection, Exception e);
+    }
+
+    private static final int READ_BUFFER_SIZE = 4096;
+    private static final int MAX_RESPONSE_LENGTH = 1024;
+
+    private final DeviceTransport transport;
+    private final FailureListener failureListener;
+    private final LedgerFraming framing = new LedgerFraming();
+    private final LedgerFraming.Assembler assembler = new LedgerFraming.Assembler(READ_BUFFER_SIZE, MAX_RESPONSE_LENGTH);
+    private final CommandQueue commands;
+    private volatile boolean closed;
+
+    LedgerConnection(DeviceTransport transport, byte cla, ScheduledExecutorService timer, FailureListener failureListener) {
+        this.transport = transport;
+        this.failureListener = failureListener;
+        this.commands = new CommandQueue(cla, (apdu, length) -> framing.send(apdu, length, transport::write), timer, this::fail);
+    }
+
+    void open() throws IOException {
+        transport.open(this);
+    }
+
+    CompletableFuture<byte[]> submit(byte ins, byte p1, byte[] payload, long timeoutMs) {
+        if (closed) {
+            CompletableFuture<byte[]> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new IOException("Not connected"));
+            return failed;
+        }
+        return commands.submit(ins, p1, payload, timeoutMs);
+    }
+
+    String deviceId() {
+        return transport.deviceId();
+    }
+
+    void close() {
+        if (closed) return;
+        closed = true;
+        commands.failAll(new IOException("Disconnected"));
+        transport.close();
+    }
+
+    // Reads don't line up with responses: a read can hold part of a packet or several packets.
+    @Override
+    public void onData(byte[] data) {
+        int length;
+        try {
+            if (!assembler.append(data)) throw new IOException("Device sent more data than expected.");
+            length = assembler.poll();
+        } catch (IOException e) {
+            fail(e);
+            return;
+        }
+        if (length >= 0) commands.onResponse(assembler.response(), length);
+    }
+
+    @Override
+    public void onError(Exception e) {
+        fail(e);
+    }
+
+    private void fail(Exception e) {
+        if (closed) return;
+        closed = true;
+        commands.failAll(e);
+        transport.close();
+        failureListener.onFailed(this, e);
+    }
+}
@@ -0,0 +1,146 @@
+package anwar.mlsa.hadera.aou.hardware;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Ledger's transport framing. An APDU travels as 64-byte packets, each starting with the channel,
+ * the APDU tag and a sequence number; the first packet also carries the APDU's length. Responses
+ * come back framed the same way, split across however many reads the serial driver delivers.
+ * <p>
+ * Packets are written from one reused buffer. Incoming bytes go into a ring buffer and are
+ * reassembled into a reused response buffer, so neither direction allocates per packet.
+ */
+final class LedgerFraming {
+
+    static final int PACKET_SIZE = 64;
+
+    private static final int CHANNEL = 0x0101;
+    private static final byte TAG_APDU = 0x05;
+    // Channel, tag and sequence number; the first packet adds two length bytes.
+    private static final int HEADER_SIZE = 5;
+
+    interface PacketSink {
+        /** The packet buffer is reused once this returns. */
+        void write(byte[] packet) throws IOException;
+    }
+
+    private final byte[] packet = new byte[PACKET_SIZE];
+
+    synchronized void send(byte[] apdu, int length, PacketSink sink) throws IOException {
+        int offset = 0;
+        int sequence = 0;
+        do {
+            int pos = writeHeader(sequence);
+            if (sequence == 0) {
+                packet[pos++] = (byte) (length >> 8);
+                packet[pos++] = (byte) length;
+            }
+            int count = Math.min(PACKET_SIZE - pos, length - offset);
+            System.arraycopy(apdu, offset, packet, pos, count);
+            Arrays.fill(packet, pos + count, PACKET_SIZE, (byte) 0);
+            offset += count;
+            sequence++;
+            sink.write(packet);
+        } while (offset < length);
+    }
+
+    private int writeHeader(int sequence) {
+        packet[0] = (byte) (CHANNEL >> 8);
+        packet[1] = (byte) CHANNEL;
+        packet[2] = TAG_APDU;
+        packet[3] = (byte) (sequence >> 8);
+        packet[4] = (byte) sequence;
+        return HEADER_SIZE;
+    }
+
+    /** Reassembles framed responses from serial reads of any size. Not thread-safe; use from the read thread. */
+    static final class Assembler {
+
+        private final byte[] ring;
+        private int head;
+        private int size;
+
+        private final byte[] response;
+        private int responseLength = -1;
+        private int received;
+        private int expectedSequence;
+
+        Assembler(int ringCapacity, int maxResponseLength) {
+            ring = new byte[ringCapacity];
+            response = new byte[maxResponseLength];
+        }
+
+        /** Buffers a read; false if the ring is full, which means the stream is out of step. */
+        boolean append(byte[] data) {
+            if (data.length > ring.length - size) return false;
+            int tail = (head + size) % ring.length;
+            int first = Math.min(data.length, ring.length - tail);
+            System.arraycopy(data, 0, ring, tail, first);
+            System.arraycopy(data, first, ring, 0, data.length - first);
+            size += data.length;
+            return true;
+        }
+
+        /**
+         * Consumes buffered packets until a response is complete and returns its length, or -1 if
+         * more packets are needed. A complete response is in {@link #response()} until the next poll.
+         */
+        int poll() throws IOException {
+            while (size >= PACKET_SIZE) {
+                if (at(0) != (byte) (CHANNEL >> 8) || at(1) != (byte) CHANNEL || at(2) != TAG_APDU) {
+                    reset();
+                    throw new IOException("Unexpected packet from the device.");
+                }
+                int sequence = ((at(3) & 0xff) << 8) | (at(4) & 0xff);
+                if (sequence != expectedSequence) {
+                    reset();
+                    throw new IOException("Device packet out of sequence.");
+                }
+                int pos = HEADER_SIZE;
+                if (sequence == 0) {
+                    responseLength = ((at(5) & 0xff) << 8) | (at(6) & 0xff);
+                    received = 0;
+                    pos += 2;
+                    if (responseLength > response.length) {
+                        reset();
+                        throw new IOException("Device response is too large.");
+                    }
+                }
+                int count = Math.min(PACKET_SIZE - pos, responseLength - received);
+                for (int i = 0; i < count; i++) {
+                    response[received + i] = at(pos + i);
+                }
+                received += count;
+                head = (head + PACKET_SIZE) % ring.length;
+                size -= PACKET_SIZE;
+                expectedSequence++;
+
+                if (received == responseLength) {
+                    int length = responseLength;
+                    responseLength = -1;
+                    expectedSequence = 0;
+                    return length;
+                }
+            }
+            return -1;
+        }
+
+        byte[] response() {
+            return response;
+        }
+
+        /** Drops buffered bytes and any partial response, e.g. when a new command starts. */
+        void reset() {
+            head = 0;
+            size = 0;
+            responseLength = -1;
+            received = 0;
+            expectedSequence = 0;
+        }
+
+        private byte at(int index) {
+            return ring[(head + index) % ring.length];
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package anwar.mlsa.hadera.aou.hardware;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An in-process stand-in for a Ledger running the Hedera app, so the signing path can be tested and
+ * measured without a device. It reads framed APDUs the way the real app does and answers account
+ * lookups with {@code 0.0.<first account + index>}, signing requests (chained or not) with a
+ * deterministic 64-byte signature, and anything else with 0x6D00.
+ * <p>
+ * Answers arrive on the simulator's own I/O thread after the configured latency, split into reads of
+ * the configured size. A command can be made to fail with a status word or to go unanswered, and the
+ * link can be broken as if the cable were pulled.
+ */
+public final class LoopbackLedger implements DeviceTransport {
+
+    private static final int SIGNATURE_LENGTH = 64;
+    private static final int MAX_APDU_LENGTH = 5 + ApduChain.MAX_DATA_LENGTH;
+
+    private final LedgerFraming framing = new LedgerFraming();
+    private final LedgerFraming.Assembler requests = new LedgerFraming.Assembler(4096, MAX_APDU_LENGTH);
+    private final ByteArrayOutputStream signingBody = new ByteArrayOutputStream();
+    private final Map<Byte, Integer> failures = new HashMap<>();
+    private final Map<Byte, Integer> drops = new HashMap<>();
+    private final AtomicInteger commandCount = new AtomicInteger();
+
+    private volatile long latencyMs = 0;
+    private volatile int readSize = LedgerFraming.PACKET_SIZE;
+    private volatile long firstAccountNum = 1001;
+    private volatile String deviceId = "loopback";
+
+    private Receiver receiver;
+    private ScheduledExecutorService io;
+
+    /** Delay before each answer, standing in for USB round trips and the device's own work. */
+    public LoopbackLedger setLatency(long latencyMs) {
+        this.latencyMs = latencyMs;
+        return this;
+    }
+
+    /** Size of the reads answers are split into; anything but a multiple of 64 splits packets. */
+    public LoopbackLedger setReadSize(int readSize) {
+        this.readSize = readSize;
+        return this;
+    }
+
+    public LoopbackLedger setFirstAccountNum(long firstAccountNum) {
+        this.firstAccountNum = firstAccountNum;
+        return this;
+    }
+
+    public LoopbackLedger setDeviceId(String deviceId) {
+        this.deviceId = deviceId;
+        return this;
+    }
+
+    /** The next command with {@code ins} is answered with {@code statusWord} instead. */
+    public synchronized LoopbackLedger failNext(byte ins, int statusWord) {
+        failures.put(ins, statusWord);
+        return this;
+    }
+
+    /** The next command with {@code ins} is never answered. */
+    public synchronized LoopbackLedger dropNext(byte ins) {
+        drops.merge(ins, 1, Integer::sum);
+        return this;
+    }
+
+    /** Commands answered or dropped so far; chained APDUs count once. */
+    public int getCommandCount() {
+        return commandCount.get();
+    }
+
+    /** Breaks the link as if the device were unplugged. */
+    public void unplug() {
+        ScheduledExecutorService executor = io;
+        if (executor != null) executor.execute(() -> receiver.onError(new IOException("Device unplugged")));
+    }
+
+    @Override
+    public synchronized void open(Receiver receiver) {
+        this.receiver = receiver;
+        requests.reset();
+        signingBody.reset();
+        io = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "loopback-ledger-io");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public synchronized void write(byte[] packet) throws IOException {
+        if (io == null) throw new IOException("Not connected");
+        if (!requests.append(packet)) throw new IOException("Loopback device buffer overflow");
+        int length = requests.poll();
+        if (length >= 0) handle(requests.response(), length);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (io != null) {
+            io.shutdownNow();
+            io = null;
+        }
+    }
+
+    @Override
+    public String deviceId() {
+        return deviceId;
+    }
+
+    static byte[] signatureFor(byte[] body) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            byte[] first = sha256.digest(body);
+            byte[] second = sha256.digest(first);
+            return ByteBuffer.allocate(SIGNATURE_LENGTH).put(first).put(second).array();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Called with the lock held.
+    private void handle(byte[] apdu, int length) {
+        if (length < 5 || apdu[0] != HederaLedgerApp.CLA) {
+            answer(HederaLedgerApp.SW_INS_NOT_SUPPORTED);
+            return;
+        }
+        byte ins = apdu[1];
+        boolean continued = apdu[2] == ApduChain.P1_CONTINUE;
+        boolean more = (apdu[3] & ApduChain.P2_MORE) != 0;
+        int dataLength = apdu[4] & 0xff;
+
+        if (ins == HederaLedgerApp.INS_SIGN_TX) {
+            if (!continued) signingBody.reset();
+            signingBody.write(apdu, 5, dataLength);
+            if (more) {
+                answer(HederaLedgerApp.SW_OK);
+                return;
+            }
+        }
+
+        commandCount.incrementAndGet();
+        Integer drop = drops.get(ins);
+        if (drop != null) {
+            if (drop > 1) drops.put(ins, drop - 1); else drops.remove(ins);
+            return;
+        }
+        Integer failure = failures.remove(ins);
+        if (failure != null) {
+            answer(failure);
+            return;
+        }
+
+        switch (ins) {
+            case HederaLedgerApp.INS_GET_APP_CONFIGURATION:
+                answer(HederaLedgerApp.SW_OK, 0x01, 0x00, 0x00, 0x00);
+                break;
+            case HederaLedgerApp.INS_GET_PUBKEY:
+                if (dataLength != 4) {
+                    answer(HederaLedgerApp.SW_WRONG_DATA);
+                    break;
+                }
+                int index = ByteBuffer.wrap(apdu, 5, 4).getInt();
+                answer(("0.0." + (firstAccountNum + index)).getBytes(StandardCharsets.UTF_8), HederaLedgerApp.SW_OK);
+                break;
+            case HederaLedgerApp.INS_SIGN_TX:
+                answer(signatureFor(signingBody.toByteArray()), HederaLedgerApp.SW_OK);
+                break;
+            default:
+                answer(HederaLedgerApp.SW_INS_NOT_SUPPORTED);
+        }
+    }
+
+    private void answer(int statusWord, int... data) {
+        byte[] bytes = new byte[data.length];
+        for (int i = 0; i < data.length; i++) {
+            bytes[i] = (byte) data[i];
+        }
+        answer(bytes, statusWord);
+    }
+
+    private void answer(byte[] data, int statusWord) {
+        byte[] response = Arrays.copyOf(data, data.length + 2);
+        response[data.length] = (byte) (statusWord >> 8);
+        response[data.length + 1] = (byte) statusWord;
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        try {
+            framing.send(response, response.length, packet -> stream.write(packet, 0, packet.length));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] framed = stream.toByteArray();
+        Receiver target = receiver;
+        io.schedule(() -> {
+            for (int from = 0; from < framed.length; from += readSize) {
+                target.onData(Arrays.copyOfRange(framed, from, Math.min(framed.length, from + readSize)));
+            }
+        }, latencyMs, TimeUnit.MILLISECONDS);
+    }
+}
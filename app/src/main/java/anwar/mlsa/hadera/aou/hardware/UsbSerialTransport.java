@@ -0,0 +1,86 @@
+package anwar.mlsa.hadera.aou.hardware;
+
+import android.hardware.usb.UsbDeviceConnection;
+
+import com.hoho.android.usbserial.driver.UsbSerialPort;
+import com.hoho.android.usbserial.util.SerialInputOutputManager;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/** A device attached over USB serial. Reads run on one thread per connection, shut down on close. */
+final class UsbSerialTransport implements DeviceTransport, SerialInputOutputManager.Listener {
+
+    private static final int BAUD_RATE = 115200;
+    private static final int WRITE_TIMEOUT_MS = 20000;
+
+    private final UsbSerialPort port;
+    private final UsbDeviceConnection connection;
+    private Receiver receiver;
+    private SerialInputOutputManager ioManager;
+    private ExecutorService ioExecutor;
+
+    UsbSerialTransport(UsbSerialPort port, UsbDeviceConnection connection) {
+        this.port = port;
+        this.connection = connection;
+    }
+
+    @Override
+    public synchronized void open(Receiver receiver) throws IOException {
+        this.receiver = receiver;
+        try {
+            port.open(connection);
+            port.setParameters(BAUD_RATE, 8, UsbSerialPort.STOPBITS_1, UsbSerialPort.PARITY_NONE);
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+        ioManager = new SerialInputOutputManager(port, this);
+        ioExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "usb-serial-io");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ioExecutor.submit(ioManager);
+    }
+
+    @Override
+    public void write(byte[] packet) throws IOException {
+        port.write(packet, WRITE_TIMEOUT_MS);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (ioManager != null) {
+            ioManager.stop();
+            ioManager = null;
+        }
+        if (ioExecutor != null) {
+            ioExecutor.shutdownNow();
+            ioExecutor = null;
+        }
+        try {
+            port.close();
+        } catch (IOException ignored) {}
+    }
+
+    @Override
+    public String deviceId() {
+        try {
+            return port.getDriver().getDevice().getSerialNumber();
+        } catch (SecurityException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void onNewData(byte[] data) {
+        receiver.onData(data);
+    }
+
+    @Override
+    public void onRunError(Exception e) {
+        receiver.onError(e);
+    }
+}
@@ -0,0 +1,163 @@
+package anwar.mlsa.hadera.aou.hedera;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.hedera.hashgraph.sdk.Key;
+import com.hedera.hashgraph.sdk.KeyList;
+import com.hedera.hashgraph.sdk.PrivateKey;
+import com.hedera.hashgraph.sdk.PublicKey;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import anwar.mlsa.hadera.aou.RequestNetworkController;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import timber.log.Timber;
+
+/**
+ * Checks that a private key controls an account without the key leaving the device: the public key
+ * is derived locally and compared with the account's key as published by the mirror node. Published
+ * keys are cached for a while, so switching back to an account doesn't cost another lookup; a cached
+ * key that doesn't match is looked up again in case the account's key was changed.
+ */
+public final class AccountKeyVerifier {
+
+    public interface Listener {
+        /** Called on the main thread; {@code error} is null when the key controls the account. */
+        void onVerified(String error);
+    }
+
+    private static final String MIRROR_ACCOUNT_URL = "https://testnet.mirrornode.hedera.com/api/v1/accounts/";
+    private static final long KEY_TTL_MS = 10 * 60_000;
+
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private static final Map<String, CachedKey> keyCache = new ConcurrentHashMap<>();
+
+    private static class CachedKey {
+        final Key key;
+        final long fetchedAt;
+
+        CachedKey(Key key, long fetchedAt) {
+            this.key = key;
+            this.fetchedAt = fetchedAt;
+        }
+    }
+
+    private AccountKeyVerifier() {
+    }
+
+    public static void verify(String accountId, String privateKey, Listener listener) {
+        PublicKey publicKey;
+        try {
+            publicKey = PrivateKey.fromString(privateKey).getPublicKey();
+        } catch (RuntimeException e) {
+            listener.onVerified("Private key is not valid.");
+            return;
+        }
+
+        CachedKey cached = keyCache.get(accountId);
+        if (cached != null && System.currentTimeMillis() - cached.fetchedAt < KEY_TTL_MS
+                && canSignAlone(cached.key, publicKey)) {
+            listener.onVerified(null);
+            return;
+        }
+
+        Request request = new Request.Builder().url(MIRROR_ACCOUNT_URL + accountId).build();
+        RequestNetworkController.getInstance().getClient().newCall(request).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                deliver(listener, "Network Error: " + e.getMessage());
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (ResponseBody body = response.body()) {
+                    if (response.code() == HttpURLConnection.HTTP_NOT_FOUND) {
+                        deliver(listener, "Account not found.");
+                        return;
+                    }
+                    if (!response.isSuccessful() || body == null) {
+                        deliver(listener, "Network Error: code " + response.code());
+                        return;
+                    }
+                    JSONObject account = new JSONObject(body.string());
+                    if (account.optBoolean("deleted")) {
+                        deliver(listener, "This account has been deleted.");
+                        return;
+                    }
+                    Key accountKey = parseKey(account.optJSONObject("key"));
+                    if (accountKey == null) {
+                        deliver(listener, "This account's key type isn't supported.");
+                        return;
+                    }
+                    keyCache.put(accountId, new CachedKey(accountKey, System.currentTimeMillis()));
+                    deliver(listener, canSignAlone(accountKey, publicKey) ? null : "Private key does not match this account.");
+                } catch (IOException | JSONException e) {
+                    Timber.w(e, "Account key lookup failed");
+                    deliver(listener, "Error: Could not understand server response.");
+                }
+            }
+        });
+    }
+
+    private static void deliver(Listener listener, String error) {
+        mainHandler.post(() -> listener.onVerified(error));
+    }
+
+    // The mirror node gives single keys as raw hex with their type, and anything else as an encoded Key.
+    private static Key parseKey(JSONObject json) {
+        if (json == null) return null;
+        String type = json.optString("_type");
+        String hex = json.optString("key");
+        try {
+            switch (type) {
+                case "ED25519":
+                    return PublicKey.fromStringED25519(hex);
+                case "ECDSA_SECP256K1":
+                    return PublicKey.fromStringECDSA(hex);
+                case "ProtobufEncoded":
+                    return Key.fromBytes(decodeHex(hex));
+                default:
+                    return null;
+            }
+        } catch (Exception e) {
+            Timber.w(e, "Unreadable %s account key", type);
+            return null;
+        }
+    }
+
+    // Only keys this one signature satisfies: the key itself, or a one-of key list that contains it.
+    private static boolean canSignAlone(Key accountKey, PublicKey publicKey) {
+        if (accountKey instanceof PublicKey) {
+            return accountKey.equals(publicKey);
+        }
+        if (accountKey instanceof KeyList) {
+            KeyList keyList = (KeyList) accountKey;
+            Integer threshold = keyList.getThreshold();
+            boolean oneRequired = threshold != null ? threshold <= 1 : keyList.size() == 1;
+            if (!oneRequired) return false;
+            for (Key key : keyList) {
+                if (canSignAlone(key, publicKey)) return true;
+            }
+        }
+        return false;
+    }
+
+    private static byte[] decodeHex(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+        }
+        return bytes;
+    }
+}
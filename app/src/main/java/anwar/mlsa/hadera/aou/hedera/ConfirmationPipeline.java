@@ -0,0 +1,261 @@
+package anwar.mlsa.hadera.aou.hedera;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+
+import com.hedera.hashgraph.sdk.AccountId;
+import com.hedera.hashgraph.sdk.Client;
+import com.hedera.hashgraph.sdk.Status;
+import com.hedera.hashgraph.sdk.TransactionId;
+import com.hedera.hashgraph.sdk.TransactionReceipt;
+import com.hedera.hashgraph.sdk.TransactionReceiptQuery;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import anwar.mlsa.hadera.aou.LatencyStats;
+import anwar.mlsa.hadera.aou.RequestNetworkController;
+import anwar.mlsa.hadera.aou.Transaction;
+import anwar.mlsa.hadera.aou.WalletStorage;
+import anwar.mlsa.hadera.aou.outbox.OutboxStore;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import timber.log.Timber;
+
+/**
+ * Resolves the outcome of submitted transfers in the background, so a send returns as soon as a node
+ * accepts it. Each tracked transaction is checked with backoff: first with receipt queries against
+ * the network, then, once receipts have likely expired (or for ids the SDK can't parse), by looking
+ * the transaction id up on the mirror node. The local history row is updated in place and listeners
+ * are told on the main thread.
+ */
+public final class ConfirmationPipeline {
+
+    public interface Listener {
+        void onConfirmed(String hederaTransactionId, String status);
+
+        /** An expired transaction was signed again; its rows now carry {@code newId} instead of {@code oldId}. */
+        default void onTransactionIdReplaced(String oldId, String newId) {
+        }
+    }
+
+    public static final String STATUS_PENDING = "PENDING";
+
+    private static final String METRIC_CONFIRM = "submit_to_confirmed";
+    private static final String MIRROR_TRANSACTION_URL = "https://testnet.mirrornode.hedera.com/api/v1/transactions/";
+    // Consensus usually takes a few seconds, so the first check is soon and later ones spread out.
+    private static final long INITIAL_DELAY_MS = 1_000;
+    private static final long MAX_DELAY_MS = 30_000;
+    // Nodes only keep receipts for about three minutes; after these the mirror node is asked instead.
+    private static final int RECEIPT_ATTEMPTS = 6;
+    private static final int MAX_ATTEMPTS = 16;
+    // Outcomes kept for screens opened after the fact; older ones are in the history rows anyway.
+    private static final int MAX_RESOLVED = 200;
+
+    private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "confirmations");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private static final Set<Listener> listeners = new CopyOnWriteArraySet<>();
+    private static final Map<String, String> resolved = Collections.synchronizedMap(new LinkedHashMap<String, String>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > MAX_RESOLVED;
+        }
+    });
+    private static final Set<String> tracked = ConcurrentHashMap.newKeySet();
+
+    private static class Pending {
+        final Context context;
+        final String accountId;
+        final String transactionId;
+        final AccountId node;
+        final long submittedAt;
+        int attempts = 0;
+        long delayMs = INITIAL_DELAY_MS;
+
+        Pending(Context context, String accountId, String transactionId, AccountId node, long submittedAt) {
+            this.context = context;
+            this.accountId = accountId;
+            this.transactionId = transactionId;
+            this.node = node;
+            this.submittedAt = submittedAt;
+        }
+    }
+
+    private ConfirmationPipeline() {
+    }
+
+    public static void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public static void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /** The final status if it has been resolved in this process, otherwise null. */
+    public static String getStatus(String hederaTransactionId) {
+        return hederaTransactionId != null ? resolved.get(hederaTransactionId) : null;
+    }
+
+    /**
+     * Starts resolving a just-submitted transaction. {@code node} is the node that accepted it, if
+     * known, and is credited with the receipt latency.
+     */
+    public static void track(Context context, String accountId, String hederaTransactionId, AccountId node) {
+        track(new Pending(context.getApplicationContext(), accountId, hederaTransactionId, node, System.currentTimeMillis()));
+    }
+
+    /** Picks up rows that were still pending when the process last died. */
+    public static void resumePending(Context context) {
+        Context appContext = context.getApplicationContext();
+        scheduler.execute(() -> {
+            for (WalletStorage.Account account : WalletStorage.getAccounts(appContext)) {
+                for (Transaction t : WalletStorage.getHistory(appContext, account.getAccountId())) {
+                    // Queued rows haven't been sent yet; the outbox starts tracking them once they are.
+                    if (STATUS_PENDING.equals(t.status) && t.hederaTransactionId != null
+                            && !OutboxStore.containsTransaction(appContext, t.hederaTransactionId)) {
+                        track(new Pending(appContext, account.getAccountId(), t.hederaTransactionId, null, 0));
+                    }
+                }
+            }
+        });
+    }
+
+    private static void track(Pending pending) {
+        if (pending.transactionId == null || !tracked.add(pending.transactionId)) return;
+        scheduler.schedule(() -> check(pending), pending.delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Records an outcome learned elsewhere (the row has already been updated) and stops checking for
+     * it. Listeners are told as if the pipeline had resolved it.
+     */
+    public static void settle(String hederaTransactionId, String status) {
+        resolved.put(hederaTransactionId, status);
+        tracked.remove(hederaTransactionId);
+        notifyListeners(hederaTransactionId, status);
+    }
+
+    private static void check(Pending pending) {
+        if (resolved.containsKey(pending.transactionId)) {
+            // Settled elsewhere while this check was waiting.
+            tracked.remove(pending.transactionId);
+            return;
+        }
+        boolean viaReceipt = pending.attempts < RECEIPT_ATTEMPTS && pending.transactionId.indexOf('@') > 0;
+        String status = null;
+        try {
+            status = viaReceipt ? queryReceipt(pending.transactionId) : lookupMirrorResult(pending.transactionId);
+        } catch (Exception e) {
+            Timber.d(e, "Confirmation check %d for %s failed", pending.attempts, pending.transactionId);
+        }
+        pending.attempts++;
+
+        if (status != null) {
+            resolve(pending, status, viaReceipt);
+        } else if (pending.attempts >= MAX_ATTEMPTS) {
+            // Left pending; the next launch (or a later sync of the history) picks it up again.
+            tracked.remove(pending.transactionId);
+            Timber.w("Gave up confirming %s", pending.transactionId);
+        } else {
+            pending.delayMs = Math.min(MAX_DELAY_MS, pending.delayMs * 2);
+            scheduler.schedule(() -> check(pending), pending.delayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static String queryReceipt(String transactionId) throws Exception {
+        Client client = HederaClientProvider.acquire();
+        try {
+            // One attempt per check: the backoff here replaces the SDK's own blocking retry loop.
+            TransactionReceipt receipt = new TransactionReceiptQuery()
+                    .setTransactionId(TransactionId.fromString(transactionId))
+                    .setMaxAttempts(1)
+                    .execute(client);
+            return receipt.status == Status.UNKNOWN ? null : receipt.status.toString();
+        } finally {
+            HederaClientProvider.release();
+        }
+    }
+
+    /** The mirror node's result for {@code transactionId}, or null if it hasn't recorded the transaction. */
+    public static String lookupMirrorResult(String transactionId) throws IOException, JSONException {
+        Request request = new Request.Builder().url(MIRROR_TRANSACTION_URL + toMirrorId(transactionId)).build();
+        try (Response response = RequestNetworkController.getInstance().getClient().newCall(request).execute()) {
+            if (response.code() == HttpURLConnection.HTTP_NOT_FOUND) return null;
+            ResponseBody body = response.body();
+            if (!response.isSuccessful() || body == null) {
+                throw new IOException("Mirror lookup failed with code " + response.code());
+            }
+            JSONArray transactions = new JSONObject(body.string()).optJSONArray("transactions");
+            if (transactions == null || transactions.length() == 0) return null;
+            return transactions.getJSONObject(0).getString("result");
+        }
+    }
+
+    /** Converts the SDK's {@code 0.0.5@1700000000.5} form to the mirror node's {@code 0.0.5-1700000000-000000005}. */
+    public static String toMirrorId(String transactionId) {
+        int at = transactionId.indexOf('@');
+        if (at < 0) return transactionId;
+        String validStart = transactionId.substring(at + 1);
+        int dot = validStart.indexOf('.');
+        String seconds = dot < 0 ? validStart : validStart.substring(0, dot);
+        String nanos = dot < 0 ? "0" : validStart.substring(dot + 1);
+        StringBuilder sb = new StringBuilder(transactionId.length() + 8)
+                .append(transactionId, 0, at).append('-').append(seconds).append('-');
+        for (int i = nanos.length(); i < 9; i++) {
+            sb.append('0');
+        }
+        return sb.append(nanos).toString();
+    }
+
+    private static void resolve(Pending pending, String status, boolean viaReceipt) {
+        resolved.put(pending.transactionId, status);
+        tracked.remove(pending.transactionId);
+        WalletStorage.updateTransactionStatus(pending.context, pending.accountId, pending.transactionId, status);
+        if (pending.submittedAt > 0) {
+            long millis = System.currentTimeMillis() - pending.submittedAt;
+            LatencyStats.record(pending.context, METRIC_CONFIRM, millis);
+            if (viaReceipt && pending.node != null) {
+                NodeHealthTracker.getInstance(pending.context).recordReceiptLatency(pending.node, millis);
+            }
+        }
+        Timber.d("%s resolved as %s after %d checks", pending.transactionId, status, pending.attempts);
+        notifyListeners(pending.transactionId, status);
+    }
+
+    /** Tells listeners that {@code oldId} was re-signed as {@code newId}, which is what gets confirmed from now on. */
+    public static void replaceTransactionId(String oldId, String newId) {
+        mainHandler.post(() -> {
+            for (Listener listener : listeners) {
+                listener.onTransactionIdReplaced(oldId, newId);
+            }
+        });
+    }
+
+    private static void notifyListeners(String hederaTransactionId, String status) {
+        mainHandler.post(() -> {
+            for (Listener listener : listeners) {
+                listener.onConfirmed(hederaTransactionId, status);
+            }
+        });
+    }
+}
@@ -0,0 +1,79 @@
+package anwar.mlsa.hadera.aou.hedera;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import anwar.mlsa.hadera.aou.ConsensusTimestamps;
+import anwar.mlsa.hadera.aou.LocalHistoryStore;
+import anwar.mlsa.hadera.aou.Transaction;
+import anwar.mlsa.hadera.aou.WalletStorage;
+
+/**
+ * Fee estimates for the send screens without a network call. The {@link FeeModel} is kept in
+ * preferences, so an estimate is there as soon as a screen opens, and is rebuilt in the background
+ * from the synced history of every account on the device, since fees don't depend on the payer.
+ */
+public final class FeeEstimator {
+
+    private static final String PREFS_NAME = "FeeModel";
+    private static final String KEY_MODEL = "model";
+
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "fee-model");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private static volatile FeeModel model;
+
+    private FeeEstimator() {
+    }
+
+    /** Null until enough transfers of a similar shape have been seen. */
+    public static FeeModel.Estimate estimate(Context context, int transferCount, String memo) {
+        return getModel(context).estimate(transferCount, FeeModel.memoBytes(memo));
+    }
+
+    /** Rebuilds the model from the local history; {@code onUpdated} runs on the main thread afterwards. */
+    public static void refresh(Context context, Runnable onUpdated) {
+        Context appContext = context.getApplicationContext();
+        executor.execute(() -> {
+            List<Transaction> history = new ArrayList<>();
+            for (WalletStorage.Account account : WalletStorage.getAccounts(appContext)) {
+                history.addAll(LocalHistoryStore.getHistory(appContext, account.getAccountId()));
+            }
+            history.sort((a, b) -> ConsensusTimestamps.compare(b.transactionId, a.transactionId));
+            FeeModel rebuilt = FeeModel.fromHistory(history);
+            model = rebuilt;
+            getPrefs(appContext).edit().putString(KEY_MODEL, new Gson().toJson(rebuilt)).apply();
+            if (onUpdated != null) mainHandler.post(onUpdated);
+        });
+    }
+
+    private static FeeModel getModel(Context context) {
+        FeeModel current = model;
+        if (current != null) return current;
+        String json = getPrefs(context).getString(KEY_MODEL, null);
+        try {
+            current = json != null ? new Gson().fromJson(json, FeeModel.class) : null;
+        } catch (JsonSyntaxException e) {
+            current = null;
+        }
+        model = current != null ? current : new FeeModel();
+        return model;
+    }
+
+    private static SharedPreferences getPrefs(Context context) {
+        return context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+}
@@ -0,0 +1,115 @@
+package anwar.mlsa.hadera.aou.hedera;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import anwar.mlsa.hadera.aou.Transaction;
+
+/**
+ * Rolling statistics of the fees actually charged for this wallet's transfers, kept per transfer
+ * shape: how many accounts are in the transfer list and how long the memo is, the two things that
+ * move a crypto transfer's fee. Each shape keeps its most recent fees, so estimates follow fee
+ * schedule and exchange rate changes.
+ */
+public class FeeModel {
+
+    public static class Estimate {
+        public final long typicalTinybars;
+        public final long highTinybars;
+        public final int samples;
+
+        Estimate(long typicalTinybars, long highTinybars, int samples) {
+            this.typicalTinybars = typicalTinybars;
+            this.highTinybars = highTinybars;
+            this.samples = samples;
+        }
+    }
+
+    static final int WINDOW = 32;
+    private static final int MIN_SAMPLES = 3;
+    // Transfer counts 2, 3-4, 5-10, 11+; memos empty, up to 32 bytes, longer.
+    private static final int TRANSFER_BUCKETS = 4;
+    private static final int MEMO_BUCKETS = 3;
+
+    private static class Window {
+        long[] fees = new long[WINDOW];
+        int size;
+        int next;
+
+        void add(long fee) {
+            fees[next] = fee;
+            next = (next + 1) % WINDOW;
+            if (size < WINDOW) size++;
+        }
+    }
+
+    private final Window[] windows = new Window[TRANSFER_BUCKETS * MEMO_BUCKETS];
+
+    /** Builds a model from history rows, newest first as the stores keep them. */
+    public static FeeModel fromHistory(List<Transaction> history) {
+        FeeModel model = new FeeModel();
+        for (int i = history.size() - 1; i >= 0; i--) {
+            Transaction t = history.get(i);
+            if (!"Sent".equals(t.type) || t.feeTinybars <= 0) continue;
+            // Rows stored before the count was kept were nearly all plain two-party transfers.
+            int transfers = t.transferCount > 0 ? t.transferCount : 2;
+            model.add(transfers, memoBytes(t.memo), t.feeTinybars);
+        }
+        return model;
+    }
+
+    public static int memoBytes(String memo) {
+        return memo != null ? memo.getBytes(StandardCharsets.UTF_8).length : 0;
+    }
+
+    public void add(int transferCount, int memoBytes, long feeTinybars) {
+        int index = index(transferBucket(transferCount), memoBucket(memoBytes));
+        if (windows[index] == null) windows[index] = new Window();
+        windows[index].add(feeTinybars);
+    }
+
+    /**
+     * The median and highest recent fee for this shape, falling back to the same transfer count with
+     * any memo; null if there isn't enough history for either.
+     */
+    public Estimate estimate(int transferCount, int memoBytes) {
+        int transferBucket = transferBucket(transferCount);
+        Window exact = windows[index(transferBucket, memoBucket(memoBytes))];
+        if (exact != null && exact.size >= MIN_SAMPLES) {
+            return summarize(exact.fees, exact.size);
+        }
+        long[] pooled = new long[WINDOW * MEMO_BUCKETS];
+        int size = 0;
+        for (int memoBucket = 0; memoBucket < MEMO_BUCKETS; memoBucket++) {
+            Window window = windows[index(transferBucket, memoBucket)];
+            if (window == null) continue;
+            System.arraycopy(window.fees, 0, pooled, size, window.size);
+            size += window.size;
+        }
+        return size >= MIN_SAMPLES ? summarize(pooled, size) : null;
+    }
+
+    private static Estimate summarize(long[] fees, int size) {
+        long[] sorted = Arrays.copyOf(fees, size);
+        Arrays.sort(sorted);
+        return new Estimate(sorted[size / 2], sorted[size - 1], size);
+    }
+
+    private static int index(int transferBucket, int memoBucket) {
+        return transferBucket * MEMO_BUCKETS + memoBucket;
+    }
+
+    private static int transferBucket(int transferCount) {
+        if (transferCount <= 2) return 0;
+        if (transferCount <= 4) return 1;
+        if (transferCount <= 10) return 2;
+        return 3;
+    }
+
+    private static int memoBucket(int memoBytes) {
+        if (memoBytes == 0) return 0;
+        if (memoBytes <= 32) return 1;
+        return 2;
+    }
+}
@@ -0,0 +1,176 @@
+package anwar.mlsa.hadera.aou.hedera;
+
+import android.content.Context;
+
+import com.hedera.hashgraph.sdk.AccountId;
+import com.hedera.hashgraph.sdk.Client;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import timber.log.Timber;
+
+/**
+ * Application-wide Hedera SDK client. Building a client opens gRPC channels to the node list, so it
+ * is created once, lazily and off the main thread, and shared by every submission. Screens that are
+ * about to submit call {@link #prewarm()} so the channels are ready by the time the user confirms.
+ * <p>
+ * Callers bracket each use with {@link #acquire()} and {@link #release()}; {@link #close()} (e.g. on
+ * low memory) waits for the last user before shutting the channels down.
+ * <p>
+ * Warming pings the best scored node plus a few whose scores have gone stale, feeding
+ * {@link NodeHealthTracker} so {@link #preferredNodes(int)} keeps reflecting current conditions.
+ */
+public final class HederaClientProvider {
+
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "hedera-client");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final int MAX_REPROBES = 2;
+
+    private static Context appContext;
+    private static volatile List<AccountId> knownNodes = Collections.emptyList();
+    private static Future<Client> clientFuture;
+    private static int users = 0;
+    private static boolean closeRequested = false;
+    private static long lastProbeAt = 0;
+
+    private HederaClientProvider() {
+    }
+
+    public static synchronized void init(Context context) {
+        appContext = context.getApplicationContext();
+    }
+
+    /**
+     * Starts building the client in the background if it doesn't exist yet, or re-probes nodes
+     * if the existing client hasn't measured any for a while.
+     */
+    public static synchronized void prewarm() {
+        closeRequested = false;
+        if (clientFuture == null) {
+            lastProbeAt = System.currentTimeMillis();
+            clientFuture = executor.submit(HederaClientProvider::createClient);
+        } else if (System.currentTimeMillis() - lastProbeAt > NodeHealthTracker.REPROBE_INTERVAL_MS) {
+            lastProbeAt = System.currentTimeMillis();
+            final Future<Client> future = clientFuture;
+            executor.execute(() -> {
+                try {
+                    probe(future.get());
+                } catch (Exception e) {
+                    Timber.w(e, "Node re-probe failed");
+                }
+            });
+        }
+    }
+
+    /**
+     * The {@code count} best nodes in order of preference, or an empty list before the first client
+     * has been built, in which case the SDK's own selection applies.
+     */
+    public static List<AccountId> preferredNodes(int count) {
+        List<AccountId> nodes = knownNodes;
+        if (nodes.isEmpty() || appContext == null) return Collections.emptyList();
+        return NodeHealthTracker.getInstance(appContext).selectNodes(nodes, count);
+    }
+
+    /** Returns the shared client, waiting for it to be built if necessary. Pair with {@link #release()}. */
+    public static Client acquire() throws InterruptedException, ExecutionException {
+        Future<Client> future;
+        synchronized (HederaClientProvider.class) {
+            prewarm();
+            users++;
+            future = clientFuture;
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException | ExecutionException e) {
+            release();
+            synchronized (HederaClientProvider.class) {
+                // Don't keep a failed build around; the next acquire tries again.
+                if (clientFuture == future) clientFuture = null;
+            }
+            throw e;
+        }
+    }
+
+    public static synchronized void release() {
+        users = Math.max(0, users - 1);
+        if (users == 0 && closeRequested) {
+            closeNow();
+        }
+    }
+
+    /** Releases the client's channels, immediately if idle or after the last {@link #release()}. */
+    public static synchronized void close() {
+        if (clientFuture == null) return;
+        if (users > 0) {
+            closeRequested = true;
+            return;
+        }
+        closeNow();
+    }
+
+    private static void closeNow() {
+        final Future<Client> future = clientFuture;
+        clientFuture = null;
+        closeRequested = false;
+        executor.execute(() -> {
+            try {
+                future.get().close();
+                Timber.d("Hedera client closed");
+            } catch (Exception e) {
+                Timber.w(e, "Failed to close Hedera client");
+            }
+        });
+    }
+
+    private static Client createClient() {
+        long start = System.currentTimeMillis();
+        Client client = Client.forTestnet();
+        knownNodes = new ArrayList<>(new LinkedHashSet<>(client.getNetwork().values()));
+        probe(client);
+        Timber.d("Hedera client ready in %d ms", System.currentTimeMillis() - start);
+        return client;
+    }
+
+    /**
+     * Pings the currently preferred node, which also opens its channel so the first submission doesn't
+     * pay for the TLS handshake, and a few nodes whose scores are stale so a recovered node can win back
+     * its place.
+     */
+    private static void probe(Client client) {
+        List<AccountId> nodes = knownNodes;
+        if (nodes.isEmpty()) return;
+        Set<AccountId> targets = new LinkedHashSet<>();
+        if (appContext == null) {
+            targets.add(nodes.get(0));
+        } else {
+            NodeHealthTracker tracker = NodeHealthTracker.getInstance(appContext);
+            targets.addAll(tracker.selectNodes(nodes, 1));
+            targets.addAll(tracker.staleNodes(nodes, MAX_REPROBES));
+        }
+        for (AccountId node : targets) {
+            long start = System.currentTimeMillis();
+            try {
+                client.ping(node);
+                if (appContext != null) {
+                    NodeHealthTracker.getInstance(appContext).recordSuccess(node, System.currentTimeMillis() - start);
+                }
+            } catch (Exception e) {
+                Timber.w(e, "Ping to node %s failed", node);
+                if (appContext != null) NodeHealthTracker.getInstance(appContext).recordFailure(node);
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package anwar.mlsa.hadera.aou.hedera;
+
+import android.content.Context;
+
+import com.hedera.hashgraph.sdk.AccountId;
+import com.hedera.hashgraph.sdk.Client;
+import com.hedera.hashgraph.sdk.PrivateKey;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+import anwar.mlsa.hadera.aou.ConnectivityUtil;
+import anwar.mlsa.hadera.aou.LatencyStats;
+import anwar.mlsa.hadera.aou.outbox.OutboxEntry;
+import anwar.mlsa.hadera.aou.outbox.OutboxStore;
+import anwar.mlsa.hadera.aou.outbox.OutboxSubmitter;
+import anwar.mlsa.hadera.aou.outbox.OutboxWorker;
+
+/**
+ * Builds, freezes, signs and submits an hbar transfer on the device, so a software account's send
+ * goes straight to a consensus node instead of through the transfer API. The result map carries the
+ * same keys the API responds with, plus the accepting node; consensus is awaited by
+ * {@link ConfirmationPipeline}, not here.
+ * <p>
+ * The signed transfer goes into the outbox before the first attempt, so if the device is offline or
+ * the attempt fails on the way, it is sent later by {@link OutboxWorker} and reported as queued.
+ */
+public final class LocalTransferSigner {
+
+    private static final String HASHSCAN_TRANSACTION_URL = "https://hashscan.io/testnet/transaction/";
+
+    private LocalTransferSigner() {
+    }
+
+    /** Blocks until a node has accepted the transaction or it has been queued; call off the main thread. */
+    public static Map<String, Object> send(Context context, String senderAccountId, String privateKey,
+                                           String recipientId, double amount, String memo) throws Exception {
+        long start = System.currentTimeMillis();
+        long tinybars = toTinybars(amount);
+        OutboxEntry entry = SpeculativeTransfer.take(senderAccountId, recipientId, tinybars, memo);
+        boolean speculative = entry != null;
+
+        Client client = HederaClientProvider.acquire();
+        try {
+            if (entry == null) {
+                entry = OutboxSubmitter.prepare(client, senderAccountId, PrivateKey.fromString(privateKey), recipientId, tinybars, memo);
+            }
+            OutboxStore.add(context, entry);
+            if (!ConnectivityUtil.isConnected(context)) {
+                OutboxWorker.schedule(context);
+                return toResultMap(entry.transactionId, null, true);
+            }
+            OutboxSubmitter.SendResult result = OutboxSubmitter.submit(context, client, entry.id);
+            switch (result.outcome) {
+                case SUBMITTED:
+                    LatencyStats.record(context, speculative ? SubmissionMode.METRIC_SUBMIT_SPECULATIVE
+                            : SubmissionMode.METRIC_SUBMIT_COLD, System.currentTimeMillis() - start);
+                    return toResultMap(entry.transactionId, null, false);
+                case RETRY:
+                    OutboxWorker.schedule(context);
+                    return toResultMap(entry.transactionId, null, true);
+                default:
+                    throw new Exception("Transaction rejected: " + result.detail);
+            }
+        } finally {
+            HederaClientProvider.release();
+        }
+    }
+
+    /** Throws ArithmeticException with a message fit for the user if the amount is finer than a tinybar. */
+    public static long toTinybars(double hbar) {
+        try {
+            return BigDecimal.valueOf(hbar).movePointRight(8).longValueExact();
+        } catch (ArithmeticException e) {
+            throw new ArithmeticException("Amounts have at most 8 decimal places.");
+        }
+    }
+
+    public static Map<String, Object> toResultMap(String transactionId, AccountId nodeId) {
+        return toResultMap(transactionId, nodeId, false);
+    }
+
+    private static Map<String, Object> toResultMap(String transactionId, AccountId nodeId, boolean queued) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("status", "Transfer Success");
+        result.put("transactionId", transactionId);
+        result.put("nodeId", nodeId != null ? nodeId.toString() : null);
+        result.put("queued", queued);
+        result.put("hashscan", HASHSCAN_TRANSACTION_URL + transactionId);
+        return result;
+    }
+}
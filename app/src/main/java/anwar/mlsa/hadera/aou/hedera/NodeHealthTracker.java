@@ -0,0 +1,172 @@
+package anwar.mlsa.hadera.aou.hedera;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.reflect.TypeToken;
+import com.hedera.hashgraph.sdk.AccountId;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import timber.log.Timber;
+
+/**
+ * Per consensus node latency and error scores, persisted so the first send after a launch already
+ * avoids nodes that have been slow or failing from this device. Latency and error rate are
+ * exponentially weighted, so a node that recovers regains its place within a few samples.
+ */
+public class NodeHealthTracker {
+
+    private static final String PREFS_NAME = "NodeHealth";
+    private static final String KEY_SCORES = "scores";
+    private static final double ALPHA = 0.3;
+    // Assumed latency of a node we have never measured: worse than a healthy node, better than a slow one.
+    private static final double UNKNOWN_LATENCY_MS = 1500;
+    private static final double UNHEALTHY_ERROR_RATE = 0.5;
+    private static final long UNHEALTHY_COOLDOWN_MS = 10 * 60 * 1000;
+    static final long REPROBE_INTERVAL_MS = 30 * 60 * 1000;
+
+    private static NodeHealthTracker instance;
+
+    private final SharedPreferences prefs;
+    private final Map<String, NodeScore> scores;
+
+    static class NodeScore {
+        // Round trip of a submission or ping to this node; what node ordering is based on.
+        double latencyMs;
+        // Submission to receipt; mostly consensus time, kept for reporting.
+        double receiptLatencyMs;
+        double errorRate;
+        int samples;
+        long lastSampleAt;
+        long lastFailureAt;
+    }
+
+    private NodeHealthTracker(Context context) {
+        prefs = context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        scores = load();
+    }
+
+    public static synchronized NodeHealthTracker getInstance(Context context) {
+        if (instance == null) {
+            instance = new NodeHealthTracker(context);
+        }
+        return instance;
+    }
+
+    public synchronized void recordSuccess(AccountId node, long latencyMs) {
+        if (node == null) return;
+        NodeScore score = scoreFor(node);
+        score.latencyMs = score.latencyMs == 0 ? latencyMs : ALPHA * latencyMs + (1 - ALPHA) * score.latencyMs;
+        score.errorRate = (1 - ALPHA) * score.errorRate;
+        score.samples++;
+        score.lastSampleAt = System.currentTimeMillis();
+        save();
+    }
+
+    public synchronized void recordReceiptLatency(AccountId node, long receiptLatencyMs) {
+        if (node == null) return;
+        NodeScore score = scoreFor(node);
+        score.receiptLatencyMs = score.receiptLatencyMs == 0
+                ? receiptLatencyMs : ALPHA * receiptLatencyMs + (1 - ALPHA) * score.receiptLatencyMs;
+        save();
+    }
+
+    /** Records a BUSY, timeout or transport failure against the node that returned it. */
+    public synchronized void recordFailure(AccountId node) {
+        if (node == null) return;
+        NodeScore score = scoreFor(node);
+        score.errorRate = ALPHA + (1 - ALPHA) * score.errorRate;
+        score.samples++;
+        score.lastSampleAt = System.currentTimeMillis();
+        score.lastFailureAt = score.lastSampleAt;
+        save();
+        Timber.d("Node %s failed, error rate now %.2f", node, score.errorRate);
+    }
+
+    /**
+     * Orders {@code nodes} from best to worst and returns the first {@code count}. Nodes that failed
+     * recently and often are only used when nothing else is left.
+     */
+    public synchronized List<AccountId> selectNodes(Collection<AccountId> nodes, int count) {
+        long now = System.currentTimeMillis();
+        List<AccountId> healthy = new ArrayList<>();
+        List<AccountId> unhealthy = new ArrayList<>();
+        for (AccountId node : nodes) {
+            if (isUnhealthy(scores.get(node.toString()), now)) {
+                unhealthy.add(node);
+            } else {
+                healthy.add(node);
+            }
+        }
+        healthy.sort((a, b) -> Double.compare(cost(a), cost(b)));
+        unhealthy.sort((a, b) -> Double.compare(cost(a), cost(b)));
+        healthy.addAll(unhealthy);
+        return new ArrayList<>(healthy.subList(0, Math.min(count, healthy.size())));
+    }
+
+    /** Nodes whose score is older than {@link #REPROBE_INTERVAL_MS}, least recently measured first. */
+    public synchronized List<AccountId> staleNodes(Collection<AccountId> nodes, int max) {
+        long now = System.currentTimeMillis();
+        List<AccountId> stale = new ArrayList<>();
+        for (AccountId node : nodes) {
+            NodeScore score = scores.get(node.toString());
+            if (score == null || now - score.lastSampleAt > REPROBE_INTERVAL_MS) {
+                stale.add(node);
+            }
+        }
+        stale.sort((a, b) -> Long.compare(lastSampleAt(a), lastSampleAt(b)));
+        return new ArrayList<>(stale.subList(0, Math.min(max, stale.size())));
+    }
+
+    private double cost(AccountId node) {
+        NodeScore score = scores.get(node.toString());
+        if (score == null) return UNKNOWN_LATENCY_MS;
+        double latency = score.latencyMs > 0 ? score.latencyMs : UNKNOWN_LATENCY_MS;
+        // Each failure is roughly a wasted attempt plus the SDK's retry delay.
+        return latency * (1 + 4 * score.errorRate);
+    }
+
+    private long lastSampleAt(AccountId node) {
+        NodeScore score = scores.get(node.toString());
+        return score != null ? score.lastSampleAt : 0;
+    }
+
+    private static boolean isUnhealthy(NodeScore score, long now) {
+        return score != null && score.errorRate >= UNHEALTHY_ERROR_RATE && now - score.lastFailureAt < UNHEALTHY_COOLDOWN_MS;
+    }
+
+    private NodeScore scoreFor(AccountId node) {
+        NodeScore score = scores.get(node.toString());
+        if (score == null) {
+            score = new NodeScore();
+            scores.put(node.toString(), score);
+        }
+        return score;
+    }
+
+    private Map<String, NodeScore> load() {
+        String json = prefs.getString(KEY_SCORES, null);
+        if (json != null) {
+            try {
+                Type type = new TypeToken<HashMap<String, NodeScore>>() {}.getType();
+                Map<String, NodeScore> stored = new Gson().fromJson(json, type);
+                if (stored != null) return stored;
+            } catch (JsonSyntaxException e) {
+                Timber.w(e, "Discarding unreadable node scores");
+            }
+        }
+        return new HashMap<>();
+    }
+
+    private void save() {
+        prefs.edit().putString(KEY_SCORES, new Gson().toJson(scores)).apply();
+    }
+}
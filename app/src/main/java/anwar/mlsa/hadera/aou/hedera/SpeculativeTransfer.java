@@ -0,0 +1,91 @@
+package anwar.mlsa.hadera.aou.hedera;
+
+import com.hedera.hashgraph.sdk.Client;
+import com.hedera.hashgraph.sdk.PrivateKey;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import anwar.mlsa.hadera.aou.outbox.OutboxEntry;
+import anwar.mlsa.hadera.aou.outbox.OutboxSubmitter;
+import timber.log.Timber;
+
+/**
+ * Builds, freezes and signs the transfer on screen while the user is still confirming it, so that
+ * after the biometric prompt only the submission is left. The prepared transaction is never sent on
+ * its own: it is used only if the confirmed transfer matches it exactly and enough of its validity
+ * window is left, and is thrown away as soon as the inputs change.
+ */
+public final class SpeculativeTransfer {
+
+    // Less than this left and the bytes could expire before a slow submission gets through.
+    private static final long MIN_REMAINING_VALIDITY_MS = 60_000;
+
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "speculative-transfer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static String preparedKey;
+    private static Future<OutboxEntry> prepared;
+
+    private SpeculativeTransfer() {
+    }
+
+    public static synchronized void prepare(String senderAccountId, String privateKey, String recipientId,
+                                            long amountTinybars, String memo) {
+        String key = key(senderAccountId, recipientId, amountTinybars, memo);
+        if (key.equals(preparedKey)) return;
+        discard();
+        preparedKey = key;
+        prepared = executor.submit(() -> {
+            long start = System.currentTimeMillis();
+            Client client = HederaClientProvider.acquire();
+            try {
+                OutboxEntry entry = OutboxSubmitter.prepare(client, senderAccountId, PrivateKey.fromString(privateKey),
+                        recipientId, amountTinybars, memo);
+                Timber.d("Speculative transfer prepared in %d ms", System.currentTimeMillis() - start);
+                return entry;
+            } finally {
+                HederaClientProvider.release();
+            }
+        });
+    }
+
+    public static synchronized void discard() {
+        if (prepared != null) {
+            prepared.cancel(false);
+        }
+        prepared = null;
+        preparedKey = null;
+    }
+
+    /**
+     * Hands over the prepared transfer if it is exactly this one and still usable, waiting for it if
+     * preparation is still running. Returns null otherwise. Either way the speculation is used up.
+     */
+    public static OutboxEntry take(String senderAccountId, String recipientId, long amountTinybars, String memo) {
+        Future<OutboxEntry> future;
+        synchronized (SpeculativeTransfer.class) {
+            boolean matches = key(senderAccountId, recipientId, amountTinybars, memo).equals(preparedKey);
+            future = matches ? prepared : null;
+            prepared = null;
+            preparedKey = null;
+        }
+        if (future == null) return null;
+        try {
+            OutboxEntry entry = future.get();
+            long remaining = entry.validStartMillis + entry.validDurationMillis - System.currentTimeMillis();
+            return remaining >= MIN_REMAINING_VALIDITY_MS ? entry : null;
+        } catch (Exception e) {
+            Timber.w(e, "Speculative transfer unusable");
+            return null;
+        }
+    }
+
+    private static String key(String senderAccountId, String recipientId, long amountTinybars, String memo) {
+        return senderAccountId + "|" + recipientId + "|" + amountTinybars + "|" + memo;
+    }
+}
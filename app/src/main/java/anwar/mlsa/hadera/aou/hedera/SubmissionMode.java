@@ -0,0 +1,29 @@
+package anwar.mlsa.hadera.aou.hedera;
+
+import android.content.Context;
+
+/**
+ * Whether software accounts sign and submit transfers on the device through the SDK, or hand the
+ * key and transfer details to the transfer API and let it submit.
+ */
+public class SubmissionMode {
+
+    private static final String PREF_NAME = "SubmissionPrefs";
+    private static final String LOCAL_SIGNING_KEY = "local_signing_enabled";
+
+    public static final String METRIC_SEND_LOCAL = "send_local";
+    public static final String METRIC_SEND_PROXY = "send_proxy";
+    // Confirmation to node acceptance, with and without a transfer prepared while the user confirmed.
+    public static final String METRIC_SUBMIT_SPECULATIVE = "confirm_to_submitted_speculative";
+    public static final String METRIC_SUBMIT_COLD = "confirm_to_submitted_cold";
+
+    public static void setLocalSigningEnabled(Context context, boolean enabled) {
+        context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE).edit()
+                .putBoolean(LOCAL_SIGNING_KEY, enabled)
+                .apply();
+    }
+
+    public static boolean isLocalSigningEnabled(Context context) {
+        return context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE).getBoolean(LOCAL_SIGNING_KEY, true);
+    }
+}
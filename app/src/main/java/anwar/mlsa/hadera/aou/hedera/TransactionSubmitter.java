@@ -0,0 +1,81 @@
+package anwar.mlsa.hadera.aou.hedera;
+
+import android.content.Context;
+
+import com.hedera.hashgraph.sdk.AccountId;
+import com.hedera.hashgraph.sdk.Client;
+import com.hedera.hashgraph.sdk.PrecheckStatusException;
+import com.hedera.hashgraph.sdk.Status;
+import com.hedera.hashgraph.sdk.Transaction;
+import com.hedera.hashgraph.sdk.TransactionResponse;
+
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+
+import anwar.mlsa.hadera.aou.LatencyStats;
+
+/**
+ * Submits transactions through the SDK and feeds the outcome back into {@link NodeHealthTracker},
+ * so that later transactions can be pinned to the nodes that have been fastest from this device.
+ * Submission returns once a node has accepted the transaction; {@link ConfirmationPipeline} resolves
+ * the receipt afterwards.
+ */
+public final class TransactionSubmitter {
+
+    public static final int PREFERRED_NODE_COUNT = 3;
+
+    private static final String METRIC_SUBMIT = "sdk_submit";
+
+    private TransactionSubmitter() {
+    }
+
+    /**
+     * Restricts a not yet frozen transaction to the best known nodes, in order of preference.
+     * Leaves the SDK's default selection alone until the node list is known.
+     */
+    public static <T extends Transaction<T>> T preferHealthyNodes(T transaction) {
+        List<AccountId> nodes = HederaClientProvider.preferredNodes(PREFERRED_NODE_COUNT);
+        if (!nodes.isEmpty()) {
+            transaction.setNodeAccountIds(nodes);
+        }
+        return transaction;
+    }
+
+    public static TransactionResponse submit(Context context, Client client, Transaction<?> transaction)
+            throws PrecheckStatusException, TimeoutException {
+        NodeHealthTracker tracker = NodeHealthTracker.getInstance(context);
+        List<AccountId> candidates = transaction.getNodeAccountIds();
+
+        long start = System.currentTimeMillis();
+        TransactionResponse response;
+        try {
+            response = transaction.execute(client);
+        } catch (PrecheckStatusException e) {
+            if (isNodeFailure(e.status)) recordFailures(tracker, candidates, null);
+            throw e;
+        } catch (TimeoutException e) {
+            recordFailures(tracker, candidates, null);
+            throw e;
+        }
+        long submitMillis = System.currentTimeMillis() - start;
+        // The SDK works through the listed nodes in order, so any listed before the one that accepted it failed.
+        recordFailures(tracker, candidates, response.nodeId);
+        tracker.recordSuccess(response.nodeId, submitMillis);
+        LatencyStats.record(context, METRIC_SUBMIT, submitMillis);
+        return response;
+    }
+
+    private static boolean isNodeFailure(Status status) {
+        return status == Status.BUSY
+                || status == Status.PLATFORM_TRANSACTION_NOT_CREATED
+                || status == Status.PLATFORM_NOT_ACTIVE;
+    }
+
+    private static void recordFailures(NodeHealthTracker tracker, List<AccountId> candidates, AccountId acceptedBy) {
+        if (candidates == null) return;
+        for (AccountId node : candidates) {
+            if (node.equals(acceptedBy)) break;
+            tracker.recordFailure(node);
+        }
+    }
+}
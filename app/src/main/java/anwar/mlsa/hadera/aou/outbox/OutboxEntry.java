@@ -0,0 +1,40 @@
+package anwar.mlsa.hadera.aou.outbox;
+
+import java.util.List;
+
+/**
+ * A transfer that has been signed but not yet accepted by a node. The signed bytes are kept as they
+ * are, so every retry resubmits the same transaction id and a node can only ever execute it once.
+ */
+public class OutboxEntry {
+    public String id;
+    public String accountId;
+    public String recipientId;
+    public long amountTinybars;
+    public String memo;
+    public String transactionId;
+    public String signedBytes;
+    public long validStartMillis;
+    public long validDurationMillis;
+    public long createdAt;
+    public int attempts;
+    public String lastError;
+    // Set for a batch payout, which pays several recipients in one transaction; recipientId and
+    // amountTinybars are unused then.
+    public List<Transfer> transfers;
+
+    public static class Transfer {
+        public final String recipientId;
+        public final long amountTinybars;
+
+        public Transfer(String recipientId, long amountTinybars) {
+            this.recipientId = recipientId;
+            this.amountTinybars = amountTinybars;
+        }
+    }
+
+    /** True once no node will accept the signed bytes any more. */
+    boolean isExpired(long now) {
+        return now >= validStartMillis + validDurationMillis;
+    }
+}
@@ -0,0 +1,90 @@
+package anwar.mlsa.hadera.aou.outbox;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.reflect.TypeToken;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+
+import timber.log.Timber;
+
+/** Persisted queue of {@link OutboxEntry}s, oldest first. Written synchronously so an entry survives a crash right after a send. */
+public class OutboxStore {
+
+    private static final String PREFS_NAME = "Outbox";
+    private static final String KEY_ENTRIES = "entries";
+
+    private static SharedPreferences getPrefs(Context context) {
+        return context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    public static synchronized List<OutboxEntry> getAll(Context context) {
+        return load(context);
+    }
+
+    public static synchronized OutboxEntry get(Context context, String id) {
+        for (OutboxEntry entry : load(context)) {
+            if (entry.id.equals(id)) return entry;
+        }
+        return null;
+    }
+
+    public static synchronized boolean containsTransaction(Context context, String transactionId) {
+        for (OutboxEntry entry : load(context)) {
+            if (entry.transactionId.equals(transactionId)) return true;
+        }
+        return false;
+    }
+
+    public static synchronized boolean isEmpty(Context context) {
+        return load(context).isEmpty();
+    }
+
+    public static synchronized void add(Context context, OutboxEntry entry) {
+        List<OutboxEntry> entries = load(context);
+        entries.add(entry);
+        save(context, entries);
+    }
+
+    public static synchronized void update(Context context, OutboxEntry entry) {
+        List<OutboxEntry> entries = load(context);
+        for (int i = 0; i < entries.size(); i++) {
+            if (entries.get(i).id.equals(entry.id)) {
+                entries.set(i, entry);
+                save(context, entries);
+                return;
+            }
+        }
+    }
+
+    public static synchronized void remove(Context context, String id) {
+        List<OutboxEntry> entries = load(context);
+        if (entries.removeIf(e -> e.id.equals(id))) {
+            save(context, entries);
+        }
+    }
+
+    private static List<OutboxEntry> load(Context context) {
+        String json = getPrefs(context).getString(KEY_ENTRIES, null);
+        if (json != null) {
+            try {
+                Type type = new TypeToken<ArrayList<OutboxEntry>>() {}.getType();
+                List<OutboxEntry> entries = new Gson().fromJson(json, type);
+                if (entries != null) return entries;
+            } catch (JsonSyntaxException e) {
+                Timber.e(e, "Outbox is unreadable");
+            }
+        }
+        return new ArrayList<>();
+    }
+
+    private static void save(Context context, List<OutboxEntry> entries) {
+        // commit(), not apply(): the entry has to be on disk before the send is reported as queued.
+        getPrefs(context).edit().putString(KEY_ENTRIES, new Gson().toJson(entries)).commit();
+    }
+}
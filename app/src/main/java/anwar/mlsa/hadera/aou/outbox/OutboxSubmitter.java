@@ -0,0 +1,219 @@
+package anwar.mlsa.hadera.aou.outbox;
+
+import android.content.Context;
+
+import com.hedera.hashgraph.sdk.AccountId;
+import com.hedera.hashgraph.sdk.Client;
+import com.hedera.hashgraph.sdk.Hbar;
+import com.hedera.hashgraph.sdk.PrecheckStatusException;
+import com.hedera.hashgraph.sdk.PrivateKey;
+import com.hedera.hashgraph.sdk.Status;
+import com.hedera.hashgraph.sdk.Transaction;
+import com.hedera.hashgraph.sdk.TransactionId;
+import com.hedera.hashgraph.sdk.TransactionResponse;
+import com.hedera.hashgraph.sdk.TransferTransaction;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import anwar.mlsa.hadera.aou.WalletStorage;
+import anwar.mlsa.hadera.aou.hedera.ConfirmationPipeline;
+import anwar.mlsa.hadera.aou.hedera.TransactionSubmitter;
+import timber.log.Timber;
+
+/**
+ * Signs outbox entries and submits them. A retry always resends the stored bytes, so a send whose
+ * response was lost is answered with DUPLICATE_TRANSACTION instead of paying twice. Only when the
+ * signed transaction has expired, and the mirror node confirms it never executed, is the entry
+ * signed again under a new transaction id.
+ */
+public final class OutboxSubmitter {
+
+    public enum Outcome { SUBMITTED, RETRY, FAILED }
+
+    public static final class SendResult {
+        public final Outcome outcome;
+        // The network status for FAILED, the last error for RETRY.
+        public final String detail;
+
+        SendResult(Outcome outcome, String detail) {
+            this.outcome = outcome;
+            this.detail = detail;
+        }
+    }
+
+    private static final SendResult SUBMITTED = new SendResult(Outcome.SUBMITTED, null);
+
+    // The longest validity a node accepts, to ride out short outages without re-signing.
+    private static final Duration VALID_DURATION = Duration.ofSeconds(180);
+    // Time for an execution just before expiry to show up on the mirror node.
+    private static final long MIRROR_LAG_MS = 60_000;
+
+    private static final Set<String> inProgress = ConcurrentHashMap.newKeySet();
+
+    private OutboxSubmitter() {
+    }
+
+    public static OutboxEntry prepare(Client client, String senderAccountId, PrivateKey key,
+                                      String recipientId, long amountTinybars, String memo) {
+        OutboxEntry entry = new OutboxEntry();
+        entry.id = UUID.randomUUID().toString();
+        entry.accountId = senderAccountId;
+        entry.recipientId = recipientId;
+        entry.amountTinybars = amountTinybars;
+        entry.memo = memo;
+        entry.createdAt = System.currentTimeMillis();
+        sign(client, key, entry);
+        return entry;
+    }
+
+    /**
+     * Signs one transfer paying every recipient in {@code transfers}. Batches sign several of these at
+     * once, so the caller picks the valid start to keep their transaction ids apart.
+     */
+    public static OutboxEntry prepareBatch(Client client, String senderAccountId, PrivateKey key,
+                                           List<OutboxEntry.Transfer> transfers, String memo, Instant validStart) {
+        OutboxEntry entry = new OutboxEntry();
+        entry.id = UUID.randomUUID().toString();
+        entry.accountId = senderAccountId;
+        entry.transfers = transfers;
+        entry.memo = memo;
+        entry.createdAt = System.currentTimeMillis();
+        sign(client, key, entry, TransactionId.withValidStart(AccountId.fromString(senderAccountId), validStart));
+        return entry;
+    }
+
+    private static void sign(Client client, PrivateKey key, OutboxEntry entry) {
+        sign(client, key, entry, TransactionId.generate(AccountId.fromString(entry.accountId)));
+    }
+
+    private static void sign(Client client, PrivateKey key, OutboxEntry entry, TransactionId transactionId) {
+        AccountId sender = AccountId.fromString(entry.accountId);
+        TransferTransaction transfer = new TransferTransaction();
+        if (entry.transfers == null) {
+            transfer.addHbarTransfer(sender, Hbar.fromTinybars(-entry.amountTinybars))
+                    .addHbarTransfer(AccountId.fromString(entry.recipientId), Hbar.fromTinybars(entry.amountTinybars));
+        } else {
+            long total = 0;
+            for (OutboxEntry.Transfer t : entry.transfers) {
+                transfer.addHbarTransfer(AccountId.fromString(t.recipientId), Hbar.fromTinybars(t.amountTinybars));
+                total = Math.addExact(total, t.amountTinybars);
+            }
+            transfer.addHbarTransfer(sender, Hbar.fromTinybars(-total));
+        }
+        TransferTransaction transaction = TransactionSubmitter.preferHealthyNodes(transfer
+                .setTransactionMemo(entry.memo)
+                .setTransactionId(transactionId)
+                .setTransactionValidDuration(VALID_DURATION))
+                .freezeWith(client)
+                .sign(key);
+        entry.transactionId = transactionId.toString();
+        entry.validStartMillis = transactionId.validStart.toEpochMilli();
+        entry.validDurationMillis = VALID_DURATION.toMillis();
+        entry.signedBytes = Base64.getEncoder().encodeToString(transaction.toBytes());
+    }
+
+    public static SendResult submit(Context context, Client client, String entryId) {
+        if (!inProgress.add(entryId)) {
+            // Being sent by another thread right now; never let two of them re-sign the same entry.
+            return new SendResult(Outcome.RETRY, "Already sending");
+        }
+        try {
+            OutboxEntry entry = OutboxStore.get(context, entryId);
+            if (entry == null) return SUBMITTED;
+            return submit(context, client, entry);
+        } finally {
+            inProgress.remove(entryId);
+        }
+    }
+
+    private static SendResult submit(Context context, Client client, OutboxEntry entry) {
+        long now = System.currentTimeMillis();
+        if (entry.isExpired(now)) {
+            if (now < entry.validStartMillis + entry.validDurationMillis + MIRROR_LAG_MS) {
+                return new SendResult(Outcome.RETRY, "Waiting for the mirror node");
+            }
+            String result;
+            try {
+                result = ConfirmationPipeline.lookupMirrorResult(entry.transactionId);
+            } catch (Exception e) {
+                return retry(context, entry, e);
+            }
+            if (result != null) {
+                // It did go through before the connection dropped.
+                return finish(context, entry, result);
+            }
+            PrivateKey key = findKey(context, entry.accountId);
+            if (key == null) {
+                return finish(context, entry, "ACCOUNT_REMOVED");
+            }
+            String oldTransactionId = entry.transactionId;
+            sign(client, key, entry);
+            OutboxStore.update(context, entry);
+            WalletStorage.replaceHederaTransactionId(context, entry.accountId, oldTransactionId, entry.transactionId);
+            ConfirmationPipeline.replaceTransactionId(oldTransactionId, entry.transactionId);
+            Timber.d("Re-signed expired %s as %s", oldTransactionId, entry.transactionId);
+        }
+
+        try {
+            Transaction<?> transaction = Transaction.fromBytes(Base64.getDecoder().decode(entry.signedBytes));
+            TransactionResponse response = TransactionSubmitter.submit(context, client, transaction);
+            onSubmitted(context, entry, response.nodeId);
+            return SUBMITTED;
+        } catch (PrecheckStatusException e) {
+            if (e.status == Status.DUPLICATE_TRANSACTION) {
+                // An earlier attempt reached a node even though we never heard back.
+                onSubmitted(context, entry, null);
+                return SUBMITTED;
+            }
+            if (isRetryable(e.status)) {
+                return retry(context, entry, e);
+            }
+            return finish(context, entry, e.status.toString());
+        } catch (Exception e) {
+            return retry(context, entry, e);
+        }
+    }
+
+    private static boolean isRetryable(Status status) {
+        return status == Status.BUSY
+                || status == Status.PLATFORM_TRANSACTION_NOT_CREATED
+                || status == Status.PLATFORM_NOT_ACTIVE
+                || status == Status.TRANSACTION_EXPIRED
+                || status == Status.INVALID_TRANSACTION_START;
+    }
+
+    private static SendResult retry(Context context, OutboxEntry entry, Exception e) {
+        entry.attempts++;
+        entry.lastError = e.getMessage();
+        OutboxStore.update(context, entry);
+        Timber.w(e, "Outbox send of %s failed (attempt %d)", entry.transactionId, entry.attempts);
+        return new SendResult(Outcome.RETRY, entry.lastError);
+    }
+
+    private static void onSubmitted(Context context, OutboxEntry entry, AccountId node) {
+        OutboxStore.remove(context, entry.id);
+        ConfirmationPipeline.track(context, entry.accountId, entry.transactionId, node);
+    }
+
+    private static SendResult finish(Context context, OutboxEntry entry, String status) {
+        OutboxStore.remove(context, entry.id);
+        WalletStorage.updateTransactionStatus(context, entry.accountId, entry.transactionId, status);
+        ConfirmationPipeline.settle(entry.transactionId, status);
+        return "SUCCESS".equals(status) ? SUBMITTED : new SendResult(Outcome.FAILED, status);
+    }
+
+    private static PrivateKey findKey(Context context, String accountId) {
+        for (WalletStorage.Account account : WalletStorage.getAccounts(context)) {
+            if (accountId.equals(account.getAccountId()) && !account.isHardware && account.getPrivateKey() != null) {
+                return PrivateKey.fromString(account.getPrivateKey());
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,105 @@
+package anwar.mlsa.hadera.aou.outbox;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.hedera.hashgraph.sdk.Client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import anwar.mlsa.hadera.aou.LatencyStats;
+import anwar.mlsa.hadera.aou.hedera.HederaClientProvider;
+import timber.log.Timber;
+
+/**
+ * Sends everything in the outbox once there is a connection, several entries at a time, and retries
+ * with backoff until the outbox is empty.
+ */
+public class OutboxWorker extends Worker {
+
+    public static final String WORK_NAME = "hadera_outbox";
+
+    private static final int MAX_IN_FLIGHT = 3;
+    private static final String METRIC_OUTBOX_RUN = "outbox_run";
+
+    public OutboxWorker(@NonNull Context context, @NonNull WorkerParameters workerParams) {
+        super(context, workerParams);
+    }
+
+    /** Schedules a run for when the device is online; a run that is already waiting is kept. */
+    public static void schedule(Context context) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .build();
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(OutboxWorker.class)
+                .setConstraints(constraints)
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, 30, TimeUnit.SECONDS)
+                .build();
+        WorkManager.getInstance(context).enqueueUniqueWork(WORK_NAME, ExistingWorkPolicy.KEEP, request);
+    }
+
+    public static void scheduleIfPending(Context context) {
+        if (!OutboxStore.isEmpty(context)) {
+            schedule(context);
+        }
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Context context = getApplicationContext();
+        List<OutboxEntry> entries = OutboxStore.getAll(context);
+        if (entries.isEmpty()) return Result.success();
+
+        long start = System.currentTimeMillis();
+        Client client;
+        try {
+            client = HederaClientProvider.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Result.retry();
+        } catch (ExecutionException e) {
+            Timber.w(e, "Outbox run could not get a client");
+            return Result.retry();
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(MAX_IN_FLIGHT, entries.size()));
+        try {
+            List<Future<OutboxSubmitter.SendResult>> results = new ArrayList<>();
+            for (OutboxEntry entry : entries) {
+                results.add(pool.submit(() -> OutboxSubmitter.submit(context, client, entry.id)));
+            }
+            int submitted = 0;
+            for (Future<OutboxSubmitter.SendResult> result : results) {
+                if (result.get().outcome == OutboxSubmitter.Outcome.SUBMITTED) submitted++;
+            }
+            Timber.d("Outbox run sent %d of %d", submitted, entries.size());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Result.retry();
+        } catch (ExecutionException e) {
+            Timber.e(e, "Outbox run failed");
+        } finally {
+            pool.shutdown();
+            HederaClientProvider.release();
+        }
+        LatencyStats.record(context, METRIC_OUTBOX_RUN, System.currentTimeMillis() - start);
+        // Also covers entries queued while this run was going.
+        return OutboxStore.isEmpty(context) ? Result.success() : Result.retry();
+    }
+}
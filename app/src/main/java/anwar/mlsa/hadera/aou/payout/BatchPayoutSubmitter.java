@@ -0,0 +1,230 @@
+package anwar.mlsa.hadera.aou.payout;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+
+import com.hedera.hashgraph.sdk.AccountId;
+import com.hedera.hashgraph.sdk.Client;
+import com.hedera.hashgraph.sdk.PrivateKey;
+
+import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import anwar.mlsa.hadera.aou.HistoryApiParser;
+import anwar.mlsa.hadera.aou.LatencyStats;
+import anwar.mlsa.hadera.aou.Transaction;
+import anwar.mlsa.hadera.aou.WalletStorage;
+import anwar.mlsa.hadera.aou.hedera.ConfirmationPipeline;
+import anwar.mlsa.hadera.aou.hedera.HederaClientProvider;
+import anwar.mlsa.hadera.aou.outbox.OutboxEntry;
+import anwar.mlsa.hadera.aou.outbox.OutboxStore;
+import anwar.mlsa.hadera.aou.outbox.OutboxSubmitter;
+import anwar.mlsa.hadera.aou.outbox.OutboxWorker;
+import timber.log.Timber;
+
+/**
+ * Sends a validated batch payout. Recipients are packed into as few transfer transactions as the
+ * network allows, the transactions are signed on the device and submitted a few at a time, and each
+ * entry's state follows its transaction through {@link ConfirmationPipeline}.
+ * <p>
+ * Each signed transaction goes into the outbox before it is first sent. A send that fails without a
+ * definite answer from the network leaves its entries pending and is retried with the same bytes, so
+ * a transaction a node accepted before the response was lost is never paid a second time.
+ */
+public class BatchPayoutSubmitter implements ConfirmationPipeline.Listener {
+
+    public interface Listener {
+        /** Called on the main thread whenever an entry changes state. */
+        void onEntriesChanged();
+
+        /** Called on the main thread once every entry has confirmed or failed. */
+        void onFinished(int confirmed, int failed);
+    }
+
+    // A crypto transfer may list at most ten account amounts, and one of them is the sender's debit.
+    public static final int MAX_RECIPIENTS_PER_TRANSACTION = 9;
+    private static final int MAX_IN_FLIGHT = 3;
+    private static final String METRIC_BATCH_SUBMIT = "batch_payout_submit";
+
+    private final Context context;
+    private final Listener listener;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Object validStartLock = new Object();
+    private List<PayoutEntry> entries;
+    private long lastValidStartNanos = 0;
+    private boolean finished = false;
+
+    public BatchPayoutSubmitter(Context context, Listener listener) {
+        this.context = context.getApplicationContext();
+        this.listener = listener;
+    }
+
+    /** Number of transactions {@code recipients} entries will be packed into. */
+    public static int transactionCount(int recipients) {
+        return (recipients + MAX_RECIPIENTS_PER_TRANSACTION - 1) / MAX_RECIPIENTS_PER_TRANSACTION;
+    }
+
+    static List<List<PayoutEntry>> pack(List<PayoutEntry> entries, int perTransaction) {
+        List<List<PayoutEntry>> chunks = new ArrayList<>();
+        for (int i = 0; i < entries.size(); i += perTransaction) {
+            chunks.add(new ArrayList<>(entries.subList(i, Math.min(entries.size(), i + perTransaction))));
+        }
+        return chunks;
+    }
+
+    public void submit(String senderAccountId, String privateKey, List<PayoutEntry> entries, String memo) {
+        this.entries = entries;
+        ConfirmationPipeline.addListener(this);
+        new Thread(() -> {
+            long start = System.currentTimeMillis();
+            Client client;
+            AccountId sender;
+            PrivateKey key;
+            try {
+                sender = AccountId.fromString(senderAccountId);
+                key = PrivateKey.fromString(privateKey);
+                client = HederaClientProvider.acquire();
+            } catch (Exception e) {
+                Timber.w(e, "Batch payout could not start");
+                for (PayoutEntry entry : entries) fail(entry, e);
+                notifyChanged();
+                return;
+            }
+            ExecutorService pool = Executors.newFixedThreadPool(MAX_IN_FLIGHT);
+            try {
+                for (List<PayoutEntry> chunk : pack(entries, MAX_RECIPIENTS_PER_TRANSACTION)) {
+                    pool.execute(() -> submitChunk(client, sender, key, chunk, memo));
+                }
+                pool.shutdown();
+                pool.awaitTermination(10, TimeUnit.MINUTES);
+                LatencyStats.record(context, METRIC_BATCH_SUBMIT, System.currentTimeMillis() - start);
+            } catch (InterruptedException e) {
+                pool.shutdownNow();
+                Thread.currentThread().interrupt();
+            } finally {
+                HederaClientProvider.release();
+            }
+        }, "batch-payout").start();
+    }
+
+    public void cancel() {
+        ConfirmationPipeline.removeListener(this);
+    }
+
+    private void submitChunk(Client client, AccountId sender, PrivateKey key, List<PayoutEntry> chunk, String memo) {
+        OutboxEntry outboxEntry;
+        try {
+            List<OutboxEntry.Transfer> transfers = new ArrayList<>(chunk.size());
+            for (PayoutEntry entry : chunk) {
+                transfers.add(new OutboxEntry.Transfer(entry.recipientId, entry.amountTinybars));
+            }
+            outboxEntry = OutboxSubmitter.prepareBatch(client, sender.toString(), key, transfers, memo, nextValidStart());
+        } catch (Exception e) {
+            Timber.w(e, "Batch payout transaction could not be signed");
+            for (PayoutEntry entry : chunk) fail(entry, e);
+            notifyChanged();
+            return;
+        }
+
+        OutboxStore.add(context, outboxEntry);
+        for (PayoutEntry entry : chunk) {
+            entry.transactionId = outboxEntry.transactionId;
+            entry.state = PayoutEntry.State.SUBMITTED;
+            WalletStorage.saveTransaction(context, toHistoryRow(entry, memo));
+        }
+        OutboxSubmitter.SendResult result = OutboxSubmitter.submit(context, client, outboxEntry.id);
+        switch (result.outcome) {
+            case RETRY:
+                // It may already have reached a node, so it stays pending while the outbox resends it.
+                for (PayoutEntry entry : chunk) entry.status = result.detail;
+                OutboxWorker.schedule(context);
+                break;
+            case FAILED:
+                for (PayoutEntry entry : chunk) {
+                    entry.state = PayoutEntry.State.FAILED;
+                    entry.status = result.detail;
+                }
+                break;
+            default:
+                break;
+        }
+        notifyChanged();
+    }
+
+    /**
+     * Valid start times for the batch's transactions. Ids generated in parallel could otherwise share a
+     * timestamp and be rejected as duplicates.
+     */
+    private Instant nextValidStart() {
+        synchronized (validStartLock) {
+            // Slightly in the past so a node whose clock lags ours doesn't see it as in the future.
+            long now = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis() - 1_000);
+            lastValidStartNanos = Math.max(now, lastValidStartNanos + 1);
+            return Instant.ofEpochSecond(0, lastValidStartNanos);
+        }
+    }
+
+    private Transaction toHistoryRow(PayoutEntry entry, String memo) {
+        Transaction transaction = new Transaction();
+        transaction.type = "Sent";
+        transaction.amount = HistoryApiParser.formatAmount(entry.amountTinybars, true);
+        transaction.amountTinybars = entry.amountTinybars;
+        transaction.party = entry.recipientId;
+        transaction.date = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault()).format(new Date());
+        transaction.status = ConfirmationPipeline.STATUS_PENDING;
+        transaction.memo = memo;
+        transaction.hederaTransactionId = entry.transactionId;
+        return transaction;
+    }
+
+    private void fail(PayoutEntry entry, Exception e) {
+        entry.state = PayoutEntry.State.FAILED;
+        entry.status = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+    }
+
+    @Override
+    public void onConfirmed(String hederaTransactionId, String status) {
+        if (entries == null) return;
+        boolean changed = false;
+        for (PayoutEntry entry : entries) {
+            if (hederaTransactionId.equals(entry.transactionId)) {
+                entry.status = status;
+                entry.state = "SUCCESS".equals(status) ? PayoutEntry.State.CONFIRMED : PayoutEntry.State.FAILED;
+                changed = true;
+            }
+        }
+        if (changed) notifyChanged();
+    }
+
+    @Override
+    public void onTransactionIdReplaced(String oldId, String newId) {
+        if (entries == null) return;
+        for (PayoutEntry entry : entries) {
+            if (oldId.equals(entry.transactionId)) entry.transactionId = newId;
+        }
+    }
+
+    private void notifyChanged() {
+        mainHandler.post(() -> {
+            listener.onEntriesChanged();
+            if (finished) return;
+            int confirmed = 0;
+            int failed = 0;
+            for (PayoutEntry entry : entries) {
+                if (!entry.isFinished()) return;
+                if (entry.state == PayoutEntry.State.CONFIRMED) confirmed++; else failed++;
+            }
+            finished = true;
+            ConfirmationPipeline.removeListener(this);
+            listener.onFinished(confirmed, failed);
+        });
+    }
+}
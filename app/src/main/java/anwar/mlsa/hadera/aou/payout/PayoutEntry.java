@@ -0,0 +1,26 @@
+package anwar.mlsa.hadera.aou.payout;
+
+/** One recipient/amount line of a batch payout and how far it has got. */
+public class PayoutEntry {
+
+    public enum State { QUEUED, SUBMITTED, CONFIRMED, FAILED }
+
+    public final int line;
+    public final String recipientId;
+    public final long amountTinybars;
+
+    public volatile State state = State.QUEUED;
+    public volatile String transactionId;
+    // Network result once known, or why the entry failed.
+    public volatile String status;
+
+    public PayoutEntry(int line, String recipientId, long amountTinybars) {
+        this.line = line;
+        this.recipientId = recipientId;
+        this.amountTinybars = amountTinybars;
+    }
+
+    public boolean isFinished() {
+        return state == State.CONFIRMED || state == State.FAILED;
+    }
+}
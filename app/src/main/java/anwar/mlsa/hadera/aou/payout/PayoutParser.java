@@ -0,0 +1,126 @@
+package anwar.mlsa.hadera.aou.payout;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import anwar.mlsa.hadera.aou.domain.use_case.VerifyAccountUseCase;
+import anwar.mlsa.hadera.aou.domain.util.EntityIdCodec;
+
+/**
+ * Parses and validates a pasted or imported list of {@code recipient,amount} lines (comma, semicolon
+ * or tab separated, amounts in hbar). Every line is checked before anything is sent, and all problems
+ * are reported at once rather than stopping at the first.
+ */
+public final class PayoutParser {
+
+    public static final int MAX_ENTRIES = 1000;
+
+    private static final Pattern SEPARATOR = Pattern.compile("[,;\t]");
+    private static final int HBAR_DECIMALS = 8;
+
+    public static class Parsed {
+        public final List<PayoutEntry> entries = new ArrayList<>();
+        public final List<String> errors = new ArrayList<>();
+        public long totalTinybars;
+
+        public boolean isValid() {
+            return errors.isEmpty() && !entries.isEmpty();
+        }
+    }
+
+    private PayoutParser() {
+    }
+
+    /**
+     * {@code feePerTransactionTinybars} is the fee expected for each packed transaction; the batch must
+     * leave room for all of them in the balance. Pass 0 when no estimate is available.
+     */
+    public static Parsed parse(String text, String senderAccountId, long balanceTinybars, long feePerTransactionTinybars) {
+        Parsed parsed = new Parsed();
+        boolean overflow = false;
+        Map<String, Integer> seen = new HashMap<>();
+        String[] lines = text != null ? text.split("\r?\n") : new String[0];
+        for (int i = 0; i < lines.length; i++) {
+            int lineNumber = i + 1;
+            String line = lines[i].trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+
+            String[] fields = SEPARATOR.split(line);
+            if (fields.length != 2) {
+                parsed.errors.add("Line " + lineNumber + ": expected recipient and amount");
+                continue;
+            }
+            String rawRecipient = fields[0].trim();
+            String amount = fields[1].trim();
+            if (parsed.entries.isEmpty() && parsed.errors.isEmpty() && !EntityIdCodec.isValid(rawRecipient)
+                    && parseTinybars(amount) == null) {
+                // Header row of an exported spreadsheet.
+                continue;
+            }
+
+            boolean valid = true;
+            String formatError = VerifyAccountUseCase.formatError(rawRecipient);
+            String recipient = formatError == null ? EntityIdCodec.normalize(rawRecipient) : rawRecipient;
+            if (formatError != null) {
+                parsed.errors.add("Line " + lineNumber + ": " + formatError);
+                valid = false;
+            } else if (recipient.equals(senderAccountId)) {
+                parsed.errors.add("Line " + lineNumber + ": cannot pay the sending account");
+                valid = false;
+            } else if (seen.containsKey(recipient)) {
+                parsed.errors.add("Line " + lineNumber + ": " + recipient + " is already paid on line " + seen.get(recipient));
+                valid = false;
+            }
+            Long tinybars = parseTinybars(amount);
+            if (tinybars == null) {
+                parsed.errors.add("Line " + lineNumber + ": invalid amount \"" + amount + "\"");
+                valid = false;
+            } else if (tinybars <= 0) {
+                parsed.errors.add("Line " + lineNumber + ": amount must be positive");
+                valid = false;
+            }
+            if (!valid) continue;
+
+            if (!overflow) {
+                try {
+                    parsed.totalTinybars = Math.addExact(parsed.totalTinybars, tinybars);
+                } catch (ArithmeticException e) {
+                    parsed.errors.add("Line " + lineNumber + ": total is too large");
+                    overflow = true;
+                }
+            }
+            seen.put(recipient, lineNumber);
+            parsed.entries.add(new PayoutEntry(lineNumber, recipient, tinybars));
+        }
+
+        if (parsed.entries.size() > MAX_ENTRIES) {
+            parsed.errors.add("At most " + MAX_ENTRIES + " recipients per batch");
+        }
+        if (parsed.entries.isEmpty() && parsed.errors.isEmpty()) {
+            parsed.errors.add("No recipients");
+        }
+        if (!overflow) {
+            long fees = feePerTransactionTinybars * BatchPayoutSubmitter.transactionCount(parsed.entries.size());
+            if (parsed.totalTinybars > balanceTinybars) {
+                parsed.errors.add("Total exceeds balance");
+            } else if (fees > balanceTinybars - parsed.totalTinybars) {
+                parsed.errors.add("Total plus estimated fees exceeds balance");
+            }
+        }
+        return parsed;
+    }
+
+    /** Hbar amount to tinybars, or null if it isn't a number or has more than eight decimals. */
+    static Long parseTinybars(String amount) {
+        try {
+            BigDecimal tinybars = new BigDecimal(amount).movePointRight(HBAR_DECIMALS);
+            return tinybars.longValueExact();
+        } catch (NumberFormatException | ArithmeticException e) {
+            return null;
+        }
+    }
+}
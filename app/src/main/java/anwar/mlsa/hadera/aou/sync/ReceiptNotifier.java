@@ -0,0 +1,242 @@
+package anwar.mlsa.hadera.aou.sync;
+
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+
+import androidx.core.app.NotificationCompat;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import anwar.mlsa.hadera.aou.HistoryApiParser;
+import anwar.mlsa.hadera.aou.LatencyStats;
+import anwar.mlsa.hadera.aou.LocalHistoryStore;
+import anwar.mlsa.hadera.aou.MirrorHistoryPager;
+import anwar.mlsa.hadera.aou.R;
+import anwar.mlsa.hadera.aou.RequestNetworkController;
+import anwar.mlsa.hadera.aou.Transaction;
+import anwar.mlsa.hadera.aou.TransferActivity;
+import anwar.mlsa.hadera.aou.WalletStorage;
+import timber.log.Timber;
+
+/**
+ * Fetches every transaction since the previous sync for all stored accounts and notifies about
+ * the transfers received. A consensus timestamp cursor is kept per account and only newer
+ * transactions are fetched, oldest first, so nothing is missed when several payments arrive
+ * between runs. A batch of receipts produces a single notification per account.
+ * <p>
+ * Accounts are polled a few at a time over the shared HTTP client, and the new rows are merged
+ * into {@link LocalHistoryStore}.
+ */
+public class ReceiptNotifier {
+
+    private static final String CHANNEL_ID = "hadera_channel";
+    private static final String PREFS_NAME = "worker_prefs";
+    private static final String CURSOR_KEY_PREFIX = "sync_cursor_";
+    private static final int MAX_PAGES_PER_RUN = 10;
+    private static final int MAX_INBOX_LINES = 5;
+    private static final int MAX_CONCURRENT_POLLS = 3;
+    private static final String METRIC_RUN = "notification_poll_run";
+    private static final String METRIC_SEQUENTIAL = "notification_poll_sequential";
+
+    public static class PollResult {
+        public int accounts;
+        public int newTransactions;
+        public boolean failed;
+    }
+
+    public static PollResult pollAllAccounts(Context context, boolean notify) throws InterruptedException {
+        PollResult result = new PollResult();
+        Set<String> accountIds = new LinkedHashSet<>();
+        for (WalletStorage.Account account : WalletStorage.getAccounts(context)) {
+            if (account.getAccountId() != null && !account.getAccountId().isEmpty()) {
+                accountIds.add(account.getAccountId());
+            }
+        }
+        result.accounts = accountIds.size();
+        if (accountIds.isEmpty()) {
+            Timber.d("No accounts found, skipping poll.");
+            return result;
+        }
+
+        long runStart = System.currentTimeMillis();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(MAX_CONCURRENT_POLLS, accountIds.size()));
+        List<Future<AccountPoll>> polls = new ArrayList<>();
+        for (String accountId : accountIds) {
+            polls.add(executor.submit(() -> poll(context, accountId)));
+        }
+
+        long sequentialMillis = 0;
+        try {
+            for (Future<AccountPoll> future : polls) {
+                AccountPoll poll = future.get();
+                sequentialMillis += poll.durationMillis;
+                if (poll.error != null) {
+                    Timber.e(poll.error, "Polling %s failed", poll.accountId);
+                    result.failed = true;
+                    continue;
+                }
+                result.newTransactions += poll.transactions.size();
+                List<Transaction> receipts = new ArrayList<>();
+                for (Transaction transaction : poll.transactions) {
+                    if ("Received".equals(transaction.type)) {
+                        receipts.add(transaction);
+                    }
+                }
+                if (notify && !receipts.isEmpty()) {
+                    Timber.i("%d new transactions received by %s, sending notification.", receipts.size(), poll.accountId);
+                    sendNotification(context, poll.accountId, receipts, accountIds.size() > 1);
+                }
+            }
+        } catch (ExecutionException e) {
+            Timber.e(e.getCause(), "Polling failed");
+            result.failed = true;
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Sum of per-account durations is what polling the accounts one after another would take.
+        LatencyStats.record(context, METRIC_RUN, System.currentTimeMillis() - runStart);
+        LatencyStats.record(context, METRIC_SEQUENTIAL, sequentialMillis);
+        return result;
+    }
+
+    private static AccountPoll poll(Context context, String accountId) {
+        AccountPoll poll = new AccountPoll(accountId);
+        long start = System.currentTimeMillis();
+        try {
+            poll.transactions = fetchNewTransactions(context, accountId);
+        } catch (IOException | RuntimeException e) {
+            // Kept per account: one bad response must not skip the accounts polled after it.
+            poll.error = e;
+        }
+        poll.durationMillis = System.currentTimeMillis() - start;
+        return poll;
+    }
+
+    private static class AccountPoll {
+        final String accountId;
+        List<Transaction> transactions = new ArrayList<>();
+        Exception error;
+        long durationMillis;
+
+        AccountPoll(String accountId) {
+            this.accountId = accountId;
+        }
+    }
+
+    /**
+     * Returns the transactions of {@code accountId} since the stored cursor and advances it.
+     * On the first run for an account the latest page seeds the local history and the cursor,
+     * and nothing is reported, so enabling sync doesn't replay the whole history.
+     */
+    static List<Transaction> fetchNewTransactions(Context context, String accountId) throws IOException {
+        List<Transaction> transactions = new ArrayList<>();
+        String cursor = getCursor(context, accountId);
+        if (cursor == null) {
+            HistoryApiParser.HistoryResponse latest = new MirrorHistoryPager(RequestNetworkController.getInstance().getClient(), accountId).next();
+            LocalHistoryStore.merge(context, accountId, latest.transactions);
+            saveCursor(context, accountId, latest.firstConsensusTimestamp != null ? latest.firstConsensusTimestamp : "0.0");
+            return transactions;
+        }
+
+        MirrorHistoryPager pager = MirrorHistoryPager.ascendingAfter(RequestNetworkController.getInstance().getClient(), accountId, cursor);
+        int pages = 0;
+        while (pager.hasNext() && pages < MAX_PAGES_PER_RUN) {
+            HistoryApiParser.HistoryResponse page;
+            try {
+                page = pager.next();
+            } catch (IOException e) {
+                if (pages == 0) throw e;
+                // Report what did arrive; the rest is fetched from the saved cursor next run.
+                Timber.w(e, "Stopped after %d pages", pages);
+                break;
+            }
+            pages++;
+            transactions.addAll(page.transactions);
+            if (page.lastConsensusTimestamp != null) {
+                cursor = page.lastConsensusTimestamp;
+            }
+        }
+        LocalHistoryStore.merge(context, accountId, transactions);
+        saveCursor(context, accountId, cursor);
+        return transactions;
+    }
+
+    private static void sendNotification(Context context, String accountId, List<Transaction> receipts, boolean showAccount) {
+        String title;
+        String messageBody;
+        NotificationCompat.Style style = null;
+        if (receipts.size() == 1) {
+            Transaction transaction = receipts.get(0);
+            title = "Transaction Received";
+            messageBody = "You received " + transaction.amount + " from " + transaction.party;
+        } else {
+            long totalTinybars = 0;
+            NotificationCompat.InboxStyle inboxStyle = new NotificationCompat.InboxStyle();
+            for (int i = 0; i < receipts.size(); i++) {
+                Transaction transaction = receipts.get(i);
+                totalTinybars += transaction.amountTinybars;
+                if (i < MAX_INBOX_LINES) {
+                    inboxStyle.addLine(transaction.amount + " from " + transaction.party);
+                }
+            }
+            if (receipts.size() > MAX_INBOX_LINES) {
+                inboxStyle.setSummaryText("+" + (receipts.size() - MAX_INBOX_LINES) + " more");
+            }
+            title = receipts.size() + " Transactions Received";
+            messageBody = "You received " + HistoryApiParser.formatAmount(totalTinybars, false) + " in total";
+            style = inboxStyle.setBigContentTitle(title);
+        }
+        if (showAccount) {
+            title = title + " · " + accountId;
+        }
+
+        Intent intent = new Intent(context, TransferActivity.class);
+        intent.addFlags(Intent.FLAG_ACTIVITY_CLEAR_TOP);
+        PendingIntent pendingIntent = PendingIntent.getActivity(context, accountId.hashCode(), intent, PendingIntent.FLAG_ONE_SHOT | PendingIntent.FLAG_IMMUTABLE);
+
+        NotificationCompat.Builder notificationBuilder = new NotificationCompat.Builder(context, CHANNEL_ID)
+                .setSmallIcon(R.mipmap.ic_launcher)
+                .setContentTitle(title)
+                .setContentText(messageBody)
+                .setStyle(style)
+                .setNumber(receipts.size())
+                .setAutoCancel(true)
+                .setPriority(NotificationCompat.PRIORITY_HIGH)
+                .setContentIntent(pendingIntent);
+
+        NotificationManager notificationManager = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            NotificationChannel channel = new NotificationChannel(CHANNEL_ID, "Hadera Channel", NotificationManager.IMPORTANCE_HIGH);
+            notificationManager.createNotificationChannel(channel);
+        }
+
+        // One notification per account so that a batch for one account doesn't replace another's.
+        notificationManager.notify(accountId.hashCode(), notificationBuilder.build());
+    }
+
+    private static void saveCursor(Context context, String accountId, String timestamp) {
+        context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
+                .edit()
+                .putString(CURSOR_KEY_PREFIX + accountId, timestamp)
+                .apply();
+    }
+
+    private static String getCursor(Context context, String accountId) {
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
+                .getString(CURSOR_KEY_PREFIX + accountId, null);
+    }
+}
@@ -0,0 +1,106 @@
+package anwar.mlsa.hadera.aou.sync;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import timber.log.Timber;
+
+/**
+ * Owns all recurring background work. A single chain of one-off {@link SyncWorker} runs replaces
+ * the periodic workers: each run schedules the next one, coming back quickly after account
+ * activity and doubling the delay while nothing happens, up to {@link #MAX_INTERVAL_MINUTES}.
+ */
+public class SyncScheduler {
+
+    public static final String WORK_NAME = "hadera_sync";
+
+    private static final String[] LEGACY_WORK_NAMES = {"transaction_check_worker", "transaction_notification_work"};
+    private static final String PREFS_NAME = "SyncPrefs";
+    private static final String KEY_INTERVAL_MINUTES = "interval_minutes";
+    private static final String KEY_LAST_RUN_AT = "last_run_at";
+    private static final String KEY_LAST_RUN_MILLIS = "last_run_millis";
+    private static final String KEY_LAST_NEW_TRANSACTIONS = "last_new_transactions";
+    private static final String KEY_RUNS = "runs";
+    private static final String KEY_ACTIVE_RUNS = "active_runs";
+    private static final String KEY_FAILED_RUNS = "failed_runs";
+
+    static final long MIN_INTERVAL_MINUTES = 5;
+    static final long MAX_INTERVAL_MINUTES = 60;
+
+    /** Makes sure the sync chain exists; an already scheduled run is left alone. Call on app start. */
+    public static void start(Context context) {
+        WorkManager workManager = WorkManager.getInstance(context);
+        for (String legacyName : LEGACY_WORK_NAMES) {
+            workManager.cancelUniqueWork(legacyName);
+        }
+        enqueue(context, getIntervalMinutes(context), ExistingWorkPolicy.KEEP);
+    }
+
+    /** Brings the next run forward after the user did something that changes account state. */
+    public static void onUserActivity(Context context) {
+        getPrefs(context).edit().putLong(KEY_INTERVAL_MINUTES, MIN_INTERVAL_MINUTES).apply();
+        enqueue(context, MIN_INTERVAL_MINUTES, ExistingWorkPolicy.REPLACE);
+    }
+
+    static void onRunFinished(Context context, long runMillis, int newTransactions) {
+        SharedPreferences prefs = getPrefs(context);
+        long interval = newTransactions > 0
+                ? MIN_INTERVAL_MINUTES
+                : Math.min(MAX_INTERVAL_MINUTES, getIntervalMinutes(context) * 2);
+        prefs.edit()
+                .putLong(KEY_INTERVAL_MINUTES, interval)
+                .putLong(KEY_LAST_RUN_AT, System.currentTimeMillis())
+                .putLong(KEY_LAST_RUN_MILLIS, runMillis)
+                .putInt(KEY_LAST_NEW_TRANSACTIONS, newTransactions)
+                .putInt(KEY_RUNS, prefs.getInt(KEY_RUNS, 0) + 1)
+                .putInt(KEY_ACTIVE_RUNS, prefs.getInt(KEY_ACTIVE_RUNS, 0) + (newTransactions > 0 ? 1 : 0))
+                .apply();
+        Timber.d("Sync found %d new transactions in %d ms; next run in %d min", newTransactions, runMillis, interval);
+        // Appended to the running work, so the next run starts once this one has succeeded.
+        enqueue(context, interval, ExistingWorkPolicy.APPEND_OR_REPLACE);
+    }
+
+    static void onRunFailed(Context context) {
+        SharedPreferences prefs = getPrefs(context);
+        prefs.edit().putInt(KEY_FAILED_RUNS, prefs.getInt(KEY_FAILED_RUNS, 0) + 1).apply();
+    }
+
+    public static String describeStats(Context context) {
+        SharedPreferences prefs = getPrefs(context);
+        return String.format(Locale.US, "%d runs (%d with activity, %d failed), last took %d ms and found %d, interval %d min",
+                prefs.getInt(KEY_RUNS, 0), prefs.getInt(KEY_ACTIVE_RUNS, 0), prefs.getInt(KEY_FAILED_RUNS, 0),
+                prefs.getLong(KEY_LAST_RUN_MILLIS, 0), prefs.getInt(KEY_LAST_NEW_TRANSACTIONS, 0),
+                getIntervalMinutes(context));
+    }
+
+    private static void enqueue(Context context, long delayMinutes, ExistingWorkPolicy policy) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .setRequiresBatteryNotLow(true)
+                .build();
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(SyncWorker.class)
+                .setInitialDelay(delayMinutes, TimeUnit.MINUTES)
+                .setConstraints(constraints)
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, 1, TimeUnit.MINUTES)
+                .build();
+        WorkManager.getInstance(context).enqueueUniqueWork(WORK_NAME, policy, request);
+    }
+
+    private static long getIntervalMinutes(Context context) {
+        return getPrefs(context).getLong(KEY_INTERVAL_MINUTES, MIN_INTERVAL_MINUTES);
+    }
+
+    private static SharedPreferences getPrefs(Context context) {
+        return context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+}
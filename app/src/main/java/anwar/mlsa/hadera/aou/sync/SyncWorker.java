@@ -0,0 +1,77 @@
+package anwar.mlsa.hadera.aou.sync;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+
+import anwar.mlsa.hadera.aou.ApiConfig;
+import anwar.mlsa.hadera.aou.ExchangeRateCache;
+import anwar.mlsa.hadera.aou.LatencyStats;
+import anwar.mlsa.hadera.aou.NotificationManager;
+import anwar.mlsa.hadera.aou.RequestNetworkController;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import timber.log.Timber;
+
+/**
+ * One background sync pass: fetches new transactions for every account into the local history,
+ * notifies about receipts when notifications are enabled, and refreshes the exchange rate.
+ */
+public class SyncWorker extends Worker {
+
+    private static final String METRIC_SYNC_RUN = "sync_run";
+
+    public SyncWorker(@NonNull Context context, @NonNull WorkerParameters workerParams) {
+        super(context, workerParams);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Context context = getApplicationContext();
+        long start = System.currentTimeMillis();
+
+        ReceiptNotifier.PollResult poll;
+        try {
+            poll = ReceiptNotifier.pollAllAccounts(context, NotificationManager.areNotificationsEnabled(context));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Result.retry();
+        }
+        refreshExchangeRate(context);
+
+        long runMillis = System.currentTimeMillis() - start;
+        LatencyStats.record(context, METRIC_SYNC_RUN, runMillis);
+        if (poll.failed) {
+            // Cursors of accounts that succeeded have advanced, so a retry only repeats the failed ones' work.
+            SyncScheduler.onRunFailed(context);
+            return Result.retry();
+        }
+        SyncScheduler.onRunFinished(context, runMillis, poll.newTransactions);
+        return Result.success();
+    }
+
+    private void refreshExchangeRate(Context context) {
+        Request request = new Request.Builder().url(ApiConfig.EXCHANGE_RATE_URL).build();
+        try (Response response = RequestNetworkController.getInstance().getClient().newCall(request).execute()) {
+            ResponseBody body = response.body();
+            if (!response.isSuccessful() || body == null) {
+                Timber.w("Exchange rate refresh failed with code: %d", response.code());
+                return;
+            }
+            JSONObject currentRate = new JSONObject(body.string()).getJSONObject("current_rate");
+            ExchangeRateCache.save(context, currentRate.getInt("cent_equivalent"), currentRate.getInt("hbar_equivalent"));
+        } catch (IOException | JSONException e) {
+            // The cached rate stays usable; it is retried on the next run.
+            Timber.w(e, "Exchange rate refresh failed");
+        }
+    }
+}
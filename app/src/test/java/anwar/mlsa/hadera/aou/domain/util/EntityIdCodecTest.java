@@ -0,0 +1,55 @@
+package anwar.mlsa.hadera.aou.domain.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class EntityIdCodecTest {
+
+    @Test
+    public void checksum_matchesHip15Examples() {
+        assertEquals("vfmkw", EntityIdCodec.checksum("0.0.123", EntityIdCodec.LEDGER_MAINNET));
+        assertEquals(EntityIdCodec.VALID, EntityIdCodec.check("0.0.123-vfmkw", EntityIdCodec.LEDGER_MAINNET));
+        assertEquals(EntityIdCodec.BAD_CHECKSUM, EntityIdCodec.check("0.0.123-vfmkw", EntityIdCodec.LEDGER_TESTNET));
+    }
+
+    @Test
+    public void checksum_catchesSingleDigitTypos() {
+        String id = "0.0.4829173";
+        String withChecksum = id + "-" + EntityIdCodec.checksum(0, 0, 4829173);
+        assertEquals(EntityIdCodec.VALID, EntityIdCodec.check(withChecksum));
+        for (int i = 4; i < id.length(); i++) {
+            char original = withChecksum.charAt(i);
+            char typo = original == '9' ? '0' : (char) (original + 1);
+            String mistyped = withChecksum.substring(0, i) + typo + withChecksum.substring(i + 1);
+            assertEquals(mistyped, EntityIdCodec.BAD_CHECKSUM, EntityIdCodec.check(mistyped));
+        }
+    }
+
+    @Test
+    public void check_acceptsPlainAndEvmForms() {
+        assertTrue(EntityIdCodec.isAccountNum("0.0.98"));
+        assertTrue(EntityIdCodec.isAccountNum("0.0.4829173"));
+        assertTrue(EntityIdCodec.isEvmAddress("0x00000000000000000000000000000000004a2b3c"));
+        assertTrue(EntityIdCodec.isEvmAddress("0.0.00000000000000000000000000000000004A2B3C"));
+        assertFalse(EntityIdCodec.isAccountNum("0x00000000000000000000000000000000004a2b3c"));
+    }
+
+    @Test
+    public void check_rejectsMalformedIds() {
+        String[] malformed = {"", "0", "0.0", "0.0.", "0..1", "0.0.0123", "0.0.12a", "0.0.123-abc",
+                "0.0.123-", " 0.0.1", "0.0.1234567890123456789", "0x1234"};
+        for (String id : malformed) {
+            assertEquals(id, EntityIdCodec.MALFORMED, EntityIdCodec.check(id));
+        }
+        assertNull(EntityIdCodec.normalize("0.0.0123"));
+    }
+
+    @Test
+    public void normalize_stripsChecksum() {
+        String checksum = EntityIdCodec.checksum(0, 0, 123);
+        assertEquals("0.0.123", EntityIdCodec.normalize("0.0.123-" + checksum));
+        assertEquals("0.0.123", EntityIdCodec.normalize("0.0.123-" + checksum.toUpperCase()));
+        assertEquals("0.0.123", EntityIdCodec.normalize("0.0.123"));
+    }
+}
@@ -0,0 +1,48 @@
+package anwar.mlsa.hadera.aou.export;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import anwar.mlsa.hadera.aou.Transaction;
+
+/**
+ * Prints size and write time of every export format relative to CSV for a large synthetic history.
+ * Takes a while and asserts nothing, so it is left out of the regular unit test run; remove the
+ * {@code @Ignore} to run it by hand.
+ */
+@Ignore("Benchmark; run by hand")
+public class ExportFormatBenchmarkTest {
+
+    private static final int ROWS = 50_000;
+    private static final int RUNS = 5;
+
+    @Test
+    public void sizeAndWriteTime_againstCsv() throws IOException {
+        List<Transaction> history = HistoryExportFormatTest.syntheticHistory(ROWS);
+        for (HistoryExportFormat format : HistoryExportFormat.values()) {
+            HistoryExportFormatTest.export(format, history); // warm up
+        }
+
+        long csvSize = 0;
+        long csvNanos = 0;
+        for (HistoryExportFormat format : HistoryExportFormat.values()) {
+            byte[] bytes = null;
+            long best = Long.MAX_VALUE;
+            for (int run = 0; run < RUNS; run++) {
+                long start = System.nanoTime();
+                bytes = HistoryExportFormatTest.export(format, history);
+                best = Math.min(best, System.nanoTime() - start);
+            }
+            if (format == HistoryExportFormat.CSV) {
+                csvSize = bytes.length;
+                csvNanos = best;
+            }
+            System.out.printf("%-12s %9d bytes (%5.1f%% of csv) %6d ms (%.2fx csv)%n",
+                    format.extension, bytes.length, 100.0 * bytes.length / csvSize,
+                    best / 1_000_000, (double) best / csvNanos);
+        }
+    }
+}
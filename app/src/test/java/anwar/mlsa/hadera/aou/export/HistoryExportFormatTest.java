@@ -0,0 +1,109 @@
+package anwar.mlsa.hadera.aou.export;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import anwar.mlsa.hadera.aou.ConsensusTimestamps;
+import anwar.mlsa.hadera.aou.HistoryApiParser;
+import anwar.mlsa.hadera.aou.Transaction;
+
+import static org.junit.Assert.*;
+
+/**
+ * Round-trips a synthetic history through the export formats and compares their sizes. Written in
+ * pages of 100 rows with a flush after each, like the export worker.
+ */
+public class HistoryExportFormatTest {
+
+    private static final int PAGE_SIZE = 100;
+
+    @Test
+    public void gzipNdjson_roundTrips() throws IOException {
+        List<Transaction> history = syntheticHistory(2_000);
+        byte[] bytes = export(HistoryExportFormat.NDJSON_GZIP, history);
+        assertRoundTrip(history, HistoryExportFormat.NDJSON_GZIP, bytes);
+    }
+
+    @Test
+    public void compact_roundTrips() throws IOException {
+        List<Transaction> history = syntheticHistory(10_000);
+        byte[] bytes = export(HistoryExportFormat.COMPACT, history);
+        assertRoundTrip(history, HistoryExportFormat.COMPACT, bytes);
+    }
+
+    @Test
+    public void compact_isSmallerThanCsv() throws IOException {
+        List<Transaction> history = syntheticHistory(2_000);
+        byte[] csv = export(HistoryExportFormat.CSV, history);
+        byte[] compact = export(HistoryExportFormat.COMPACT, history);
+        assertTrue(compact.length + " vs " + csv.length + " bytes", compact.length < csv.length / 2);
+    }
+
+    static byte[] export(HistoryExportFormat format, List<Transaction> history) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (HistoryExportWriter writer = HistoryExportWriter.create(format, out)) {
+            writer.begin();
+            for (int i = 0; i < history.size(); i++) {
+                writer.write(history.get(i));
+                if ((i + 1) % PAGE_SIZE == 0) writer.flush();
+            }
+            writer.end();
+        }
+        return out.toByteArray();
+    }
+
+    private static void assertRoundTrip(List<Transaction> expected, HistoryExportFormat format, byte[] bytes) throws IOException {
+        try (HistoryExportReader reader = HistoryExportReader.open(format, new ByteArrayInputStream(bytes))) {
+            for (Transaction e : expected) {
+                Transaction a = reader.read();
+                assertNotNull(a);
+                assertEquals(e.transactionId, a.transactionId);
+                assertEquals(e.type, a.type);
+                assertEquals(e.amount, a.amount);
+                assertEquals(e.amountTinybars, a.amountTinybars);
+                assertEquals(e.fee, a.fee);
+                assertEquals(e.party, a.party);
+                assertEquals(e.status, a.status);
+                assertEquals(e.date, a.date);
+                assertEquals(e.memo, a.memo);
+            }
+            assertNull(reader.read());
+        }
+    }
+
+    static List<Transaction> syntheticHistory(int rows) {
+        Random random = new Random(42);
+        String[] parties = new String[40];
+        for (int i = 0; i < parties.length; i++) {
+            parties[i] = "0.0." + (4_000_000 + random.nextInt(3_000_000));
+        }
+        List<Transaction> history = new ArrayList<>(rows);
+        long nanos = ConsensusTimestamps.toNanos("1735689600.000000000");
+        for (int i = 0; i < rows; i++) {
+            nanos -= 1_000_000_000L * random.nextInt(7_200) + random.nextInt(1_000_000_000);
+            boolean sent = random.nextBoolean();
+            long amount = 1 + (long) random.nextInt(500_000_000);
+            Transaction t = new Transaction();
+            t.transactionId = ConsensusTimestamps.fromNanos(nanos);
+            t.type = sent ? "Sent" : "Received";
+            t.amountTinybars = sent ? -amount : amount;
+            t.amount = HistoryApiParser.formatAmount(amount, sent);
+            if (sent) {
+                t.feeTinybars = 80_000 + random.nextInt(40_000);
+                t.fee = HistoryApiParser.formatFee(t.feeTinybars);
+            }
+            t.party = parties[random.nextInt(parties.length)];
+            t.status = random.nextInt(50) == 0 ? "INSUFFICIENT_PAYER_BALANCE" : "SUCCESS";
+            t.date = HistoryApiParser.formatHederaTimestamp(t.transactionId);
+            t.memo = random.nextInt(4) == 0 ? "Invoice #" + random.nextInt(10_000) : "";
+            history.add(t);
+        }
+        return history;
+    }
+}
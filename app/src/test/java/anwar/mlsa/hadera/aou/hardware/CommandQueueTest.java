@@ -0,0 +1,105 @@
+package anwar.mlsa.hadera.aou.hardware;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.*;
+
+public class CommandQueueTest {
+
+    private static final byte CLA = (byte) 0xE0;
+    private static final byte[] OK = {(byte) 0x90, 0x00};
+
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+    private final List<byte[]> written = new ArrayList<>();
+    private final CompletableFuture<Exception> stalled = new CompletableFuture<>();
+    private final CommandQueue queue = new CommandQueue(CLA,
+            (apdu, length) -> written.add(Arrays.copyOf(apdu, length)), timer, stalled::complete);
+
+    @After
+    public void tearDown() {
+        timer.shutdownNow();
+    }
+
+    @Test
+    public void commands_areSentOneAtATimeInOrder() throws Exception {
+        CompletableFuture<byte[]> first = queue.submit((byte) 0x02, (byte) 0, new byte[]{1}, 5000);
+        CompletableFuture<byte[]> second = queue.submit((byte) 0x02, (byte) 0, new byte[]{2}, 5000);
+        assertEquals(1, written.size());
+
+        queue.onResponse(new byte[]{7, (byte) 0x90, 0x00}, 3);
+        assertArrayEquals(new byte[]{7}, first.get());
+        assertEquals(2, written.size());
+        assertEquals(2, written.get(1)[5]);
+
+        queue.onResponse(OK, 2);
+        assertEquals(0, second.get().length);
+        assertTrue(queue.isIdle());
+    }
+
+    @Test
+    public void longPayload_isSentInChainedChunks() throws Exception {
+        CompletableFuture<byte[]> sign = queue.submit((byte) 0x04, (byte) 0, new byte[400], 5000);
+        queue.onResponse(OK, 2);
+        assertFalse(sign.isDone());
+        assertEquals(2, written.size());
+        assertEquals(ApduChain.P1_CONTINUE, written.get(1)[2]);
+        queue.onResponse(new byte[]{9, (byte) 0x90, 0x00}, 3);
+        assertArrayEquals(new byte[]{9}, sign.get());
+    }
+
+    @Test
+    public void errorStatus_failsOnlyThatCommand() throws Exception {
+        CompletableFuture<byte[]> first = queue.submit((byte) 0x02, (byte) 0, new byte[0], 5000);
+        CompletableFuture<byte[]> second = queue.submit((byte) 0x02, (byte) 0, new byte[0], 5000);
+        queue.onResponse(new byte[]{0x6A, (byte) 0x80}, 2);
+        try {
+            first.get();
+            fail("Expected the error status to fail the command");
+        } catch (ExecutionException expected) {
+            assertTrue(expected.getCause().getMessage().contains("6A80"));
+        }
+        queue.onResponse(OK, 2);
+        assertNotNull(second.get());
+        assertFalse(stalled.isDone());
+    }
+
+    @Test
+    public void cancelledCommand_isNeverSent() throws Exception {
+        CompletableFuture<byte[]> first = queue.submit((byte) 0x02, (byte) 0, new byte[]{1}, 5000);
+        CompletableFuture<byte[]> second = queue.submit((byte) 0x02, (byte) 0, new byte[]{2}, 5000);
+        CompletableFuture<byte[]> third = queue.submit((byte) 0x02, (byte) 0, new byte[]{3}, 5000);
+        second.cancel(false);
+        queue.onResponse(OK, 2);
+        assertTrue(first.isDone());
+        assertEquals(2, written.size());
+        assertEquals(3, written.get(1)[5]);
+        queue.onResponse(OK, 2);
+        assertTrue(third.isDone());
+    }
+
+    @Test
+    public void timeout_failsEverythingQueued() throws Exception {
+        CompletableFuture<byte[]> first = queue.submit((byte) 0x02, (byte) 0, new byte[0], 50);
+        CompletableFuture<byte[]> second = queue.submit((byte) 0x02, (byte) 0, new byte[0], 5000);
+        try {
+            second.get(2, TimeUnit.SECONDS);
+            fail("Expected the queued command to fail with the stalled one");
+        } catch (ExecutionException expected) {
+            assertTrue(expected.getCause() instanceof TimeoutException);
+        }
+        assertTrue(first.isCompletedExceptionally());
+        assertTrue(stalled.get(2, TimeUnit.SECONDS) instanceof TimeoutException);
+        assertTrue(queue.isIdle());
+    }
+}
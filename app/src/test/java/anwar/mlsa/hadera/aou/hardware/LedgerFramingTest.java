@@ -0,0 +1,102 @@
+package anwar.mlsa.hadera.aou.hardware;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class LedgerFramingTest {
+
+    @Test
+    public void send_framesApduIntoSequencedPackets() throws Exception {
+        byte[] apdu = bytes(130);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new LedgerFraming().send(apdu, apdu.length, packet -> out.write(packet, 0, packet.length));
+
+        byte[] stream = out.toByteArray();
+        // 57 bytes fit in the first packet and 59 in each one after it.
+        assertEquals(3 * LedgerFraming.PACKET_SIZE, stream.length);
+        assertEquals(0x01, stream[0]);
+        assertEquals(0x05, stream[2]);
+        assertEquals(130, ((stream[5] & 0xff) << 8) | (stream[6] & 0xff));
+        assertEquals(2, stream[2 * LedgerFraming.PACKET_SIZE + 4]);
+    }
+
+    @Test
+    public void assembler_reassemblesResponseSplitAcrossArbitraryReads() throws Exception {
+        byte[] response = bytes(300);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new LedgerFraming().send(response, response.length, packet -> out.write(packet, 0, packet.length));
+        byte[] stream = out.toByteArray();
+
+        LedgerFraming.Assembler assembler = new LedgerFraming.Assembler(256, 1024);
+        int length = -1;
+        for (int from = 0; from < stream.length; from += 37) {
+            assertEquals(-1, length);
+            assertTrue(assembler.append(Arrays.copyOfRange(stream, from, Math.min(stream.length, from + 37))));
+            length = assembler.poll();
+        }
+        assertEquals(response.length, length);
+        assertArrayEquals(response, Arrays.copyOf(assembler.response(), length));
+    }
+
+    @Test
+    public void assembler_rejectsOutOfSequencePackets() throws Exception {
+        byte[] response = bytes(100);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new LedgerFraming().send(response, response.length, packet -> out.write(packet, 0, packet.length));
+        byte[] stream = out.toByteArray();
+
+        LedgerFraming.Assembler assembler = new LedgerFraming.Assembler(256, 1024);
+        assembler.append(Arrays.copyOfRange(stream, LedgerFraming.PACKET_SIZE, stream.length));
+        try {
+            assembler.poll();
+            fail("Expected the second packet to be rejected without the first");
+        } catch (IOException expected) {
+            // The assembler drops what it buffered, so the next response starts clean.
+        }
+        assembler.append(Arrays.copyOf(stream, LedgerFraming.PACKET_SIZE * 2));
+        assertEquals(response.length, assembler.poll());
+    }
+
+    @Test
+    public void chain_splitsPayloadIntoApdusOfAtMost255Bytes() {
+        byte[] payload = bytes(600);
+        ApduChain chain = new ApduChain();
+        chain.start((byte) 0xE0, (byte) 0x04, (byte) 0x00, (byte) 0x00, payload);
+
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        int apdus = 0;
+        while (chain.hasNext()) {
+            int length = chain.next();
+            byte[] apdu = chain.buffer();
+            assertEquals(apdus == 0 ? 0x00 : ApduChain.P1_CONTINUE, apdu[2]);
+            assertEquals(apdus < 2 ? ApduChain.P2_MORE : 0x00, apdu[3]);
+            assertEquals(length - 5, apdu[4] & 0xff);
+            data.write(apdu, 5, length - 5);
+            apdus++;
+        }
+        assertEquals(3, apdus);
+        assertArrayEquals(payload, data.toByteArray());
+    }
+
+    @Test
+    public void chain_sendsEmptyPayloadAsOneApdu() {
+        ApduChain chain = new ApduChain();
+        chain.start((byte) 0xE0, (byte) 0x01, (byte) 0x00, (byte) 0x00, new byte[0]);
+        assertTrue(chain.hasNext());
+        assertEquals(5, chain.next());
+        assertFalse(chain.hasNext());
+    }
+
+    private static byte[] bytes(int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) (i * 7 + 3);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,116 @@
+package anwar.mlsa.hadera.aou.hardware;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Drives the signing and account lookup paths end to end against {@link LoopbackLedger}, including
+ * a long queued run of commands at a simulated per-answer latency.
+ */
+public class LoopbackLedgerTest {
+
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+    private final LoopbackLedger device = new LoopbackLedger();
+    private final CompletableFuture<Exception> failure = new CompletableFuture<>();
+    private final LedgerConnection connection = new LedgerConnection(device, HederaLedgerApp.CLA, timer,
+            (failed, e) -> failure.complete(e));
+
+    @After
+    public void tearDown() {
+        connection.close();
+        timer.shutdownNow();
+    }
+
+    @Test
+    public void sign_handlesTransactionsLongerThanOneApdu() throws Exception {
+        device.setReadSize(23);
+        connection.open();
+        byte[] body = new byte[1200];
+        new Random(7).nextBytes(body);
+
+        byte[] signature = connection.submit(HederaLedgerApp.INS_SIGN_TX, (byte) 0, body, 2000).get(5, TimeUnit.SECONDS);
+        assertArrayEquals(LoopbackLedger.signatureFor(body), signature);
+        assertEquals(1, device.getCommandCount());
+    }
+
+    @Test
+    public void accountLookups_queuedTogetherAllComplete() throws Exception {
+        device.setLatency(2).setFirstAccountNum(5000);
+        connection.open();
+        List<CompletableFuture<byte[]>> lookups = new ArrayList<>();
+        for (int index = 0; index < 10; index++) {
+            lookups.add(connection.submit(HederaLedgerApp.INS_GET_PUBKEY, (byte) 0x40, HederaLedgerApp.derivationPath(index), 1000));
+        }
+        for (int index = 0; index < 10; index++) {
+            String accountId = new String(lookups.get(index).get(5, TimeUnit.SECONDS), StandardCharsets.UTF_8);
+            assertEquals("0.0." + (5000 + index), accountId);
+        }
+    }
+
+    @Test
+    public void rejectedSigning_failsOnlyThatCommand() throws Exception {
+        device.failNext(HederaLedgerApp.INS_SIGN_TX, HederaLedgerApp.SW_DENIED);
+        connection.open();
+        CompletableFuture<byte[]> sign = connection.submit(HederaLedgerApp.INS_SIGN_TX, (byte) 0, new byte[600], 1000);
+        CompletableFuture<byte[]> lookup = connection.submit(HederaLedgerApp.INS_GET_PUBKEY, (byte) 0x40, HederaLedgerApp.derivationPath(0), 1000);
+        try {
+            sign.get(5, TimeUnit.SECONDS);
+            fail("Expected the device to refuse");
+        } catch (ExecutionException expected) {
+            assertTrue(expected.getCause().getMessage().contains("6985"));
+        }
+        assertNotNull(lookup.get(5, TimeUnit.SECONDS));
+        assertFalse(failure.isDone());
+    }
+
+    @Test
+    public void unansweredCommand_timesOutAndClosesTheConnection() throws Exception {
+        device.dropNext(HederaLedgerApp.INS_GET_PUBKEY);
+        connection.open();
+        CompletableFuture<byte[]> lookup = connection.submit(HederaLedgerApp.INS_GET_PUBKEY, (byte) 0x40, HederaLedgerApp.derivationPath(0), 100);
+        assertTrue(failure.get(5, TimeUnit.SECONDS) instanceof TimeoutException);
+        assertTrue(lookup.isCompletedExceptionally());
+        assertTrue(connection.submit(HederaLedgerApp.INS_GET_PUBKEY, (byte) 0x40, new byte[4], 100).isCompletedExceptionally());
+    }
+
+    @Test
+    public void unplug_failsPendingCommands() throws Exception {
+        device.setLatency(200);
+        connection.open();
+        CompletableFuture<byte[]> sign = connection.submit(HederaLedgerApp.INS_SIGN_TX, (byte) 0, new byte[100], 5000);
+        device.unplug();
+        assertNotNull(failure.get(5, TimeUnit.SECONDS));
+        assertTrue(sign.isCompletedExceptionally());
+    }
+
+    @Test
+    public void queuedLookups_areSentBackToBackAndAllAnswered() throws Exception {
+        int lookups = 100;
+        device.setLatency(5).setReadSize(48).setFirstAccountNum(7000);
+        connection.open();
+
+        List<CompletableFuture<byte[]>> results = new ArrayList<>();
+        for (int index = 0; index < lookups; index++) {
+            results.add(connection.submit(HederaLedgerApp.INS_GET_PUBKEY, (byte) 0x40, HederaLedgerApp.derivationPath(index), 1000));
+        }
+        for (int index = 0; index < lookups; index++) {
+            assertEquals("0.0." + (7000 + index), new String(results.get(index).get(30, TimeUnit.SECONDS), StandardCharsets.UTF_8));
+        }
+        // Every queued command reached the device exactly once, and none of them timed out.
+        assertEquals(lookups, device.getCommandCount());
+        assertFalse(failure.isDone());
+    }
+}